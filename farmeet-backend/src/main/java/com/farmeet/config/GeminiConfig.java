@@ -4,7 +4,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.farmeet.service.OutboundGateway;
 import com.google.genai.Client;
+import com.google.genai.types.HttpOptions;
 
 @Configuration
 public class GeminiConfig {
@@ -16,13 +18,16 @@ public class GeminiConfig {
     private String model;
 
     @Bean
-    public Client geminiClient() {
+    public Client geminiClient(OutboundGateway outboundGateway) {
         if (apiKey == null || apiKey.isEmpty()) {
             System.out.println("WARNING: GEMINI_API_KEY is not configured. AI chat will be disabled.");
             return null;
         }
         // Use builder to pass API key directly
-        return Client.builder().apiKey(apiKey).build();
+        HttpOptions httpOptions = HttpOptions.builder()
+                .timeout(outboundGateway.readTimeoutMs(OutboundGateway.GEMINI))
+                .build();
+        return Client.builder().apiKey(apiKey).httpOptions(httpOptions).build();
     }
 
     public String getModel() {
@@ -33,7 +33,8 @@ public class SecurityConfig {
                                                                 "/api/events/**",
                                                                 "/api/upload/**", "/oauth2/**", "/login/oauth2/**",
                                                                 "/error", "/api/ai/**", "/api/reservations/join/**",
-                                                                "/api/gift-vouchers/check/**")
+                                                                "/api/gift-vouchers/check/**",
+                                                                "/api/payments/webhook/stripe")
                                                 .permitAll()
                                                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                                                 .requestMatchers("/api/gift-vouchers/admin/**").hasRole("ADMIN")
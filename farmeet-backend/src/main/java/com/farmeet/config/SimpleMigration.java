@@ -28,6 +28,16 @@ public class SimpleMigration {
             jdbcTemplate.execute(
                     "ALTER TABLE experience_events ADD COLUMN IF NOT EXISTS deleted BOOLEAN DEFAULT false NOT NULL");
 
+            // Farm rating histogram (maintained by ReviewService)
+            for (int rating = 1; rating <= 5; rating++) {
+                jdbcTemplate.execute("ALTER TABLE farms ADD COLUMN IF NOT EXISTS rating_count_" + rating
+                        + " BIGINT DEFAULT 0 NOT NULL");
+            }
+
+            // Event reservation counter (maintained by PopularityService)
+            jdbcTemplate.execute(
+                    "ALTER TABLE experience_events ADD COLUMN IF NOT EXISTS reservation_count BIGINT DEFAULT 0 NOT NULL");
+
             // Users avatar
             jdbcTemplate.execute("ALTER TABLE users ADD COLUMN IF NOT EXISTS avatar_url VARCHAR(255)");
 
@@ -4,9 +4,12 @@ import com.farmeet.entity.Farm;
 import com.farmeet.entity.User;
 import com.farmeet.dto.FarmDto;
 import com.farmeet.service.AdminService;
+import com.farmeet.service.FarmRatingAggregateService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -15,9 +18,11 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final FarmRatingAggregateService farmRatingAggregateService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, FarmRatingAggregateService farmRatingAggregateService) {
         this.adminService = adminService;
+        this.farmRatingAggregateService = farmRatingAggregateService;
     }
 
     @GetMapping("/users")
@@ -46,6 +51,14 @@ public class AdminController {
         return adminService.getDeletedFarms();
     }
 
+    @PostMapping("/farms/ratings/rebuild")
+    public ResponseEntity<?> rebuildFarmRatings() {
+        return farmRatingAggregateService.rebuildExclusively(Duration.ZERO)
+                .<ResponseEntity<?>>map(count -> ResponseEntity.ok(Map.of("farms", count)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Rating rebuild is already running")));
+    }
+
     @DeleteMapping("/farms/{id}")
     public ResponseEntity<Void> deleteFarm(@PathVariable Long id) {
         adminService.deleteFarm(id);
@@ -0,0 +1,114 @@
+package com.farmeet.controller;
+
+import com.farmeet.entity.SchedulerLease;
+import com.farmeet.scheduler.SchedulerLockService;
+import com.farmeet.scheduler.StripeWebhookProcessor;
+import com.farmeet.service.ActivityLogWriter;
+import com.farmeet.service.AdminDashboardBroadcaster;
+import com.farmeet.service.FavoriteCache;
+import com.farmeet.service.GiftVoucherCodeAllocator;
+import com.farmeet.service.OutboundGateway;
+import com.farmeet.service.PaymentService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/monitoring")
+public class AdminMonitoringController {
+
+    private final SchedulerLockService schedulerLockService;
+    private final StripeWebhookProcessor stripeWebhookProcessor;
+    private final OutboundGateway outboundGateway;
+    private final FavoriteCache favoriteCache;
+    private final ActivityLogWriter activityLogWriter;
+    private final AdminDashboardBroadcaster dashboardBroadcaster;
+    private final GiftVoucherCodeAllocator giftVoucherCodeAllocator;
+    private final PaymentService paymentService;
+
+    public AdminMonitoringController(SchedulerLockService schedulerLockService,
+            StripeWebhookProcessor stripeWebhookProcessor,
+            OutboundGateway outboundGateway,
+            FavoriteCache favoriteCache,
+            ActivityLogWriter activityLogWriter,
+            AdminDashboardBroadcaster dashboardBroadcaster,
+            GiftVoucherCodeAllocator giftVoucherCodeAllocator,
+            PaymentService paymentService) {
+        this.schedulerLockService = schedulerLockService;
+        this.stripeWebhookProcessor = stripeWebhookProcessor;
+        this.outboundGateway = outboundGateway;
+        this.favoriteCache = favoriteCache;
+        this.activityLogWriter = activityLogWriter;
+        this.dashboardBroadcaster = dashboardBroadcaster;
+        this.giftVoucherCodeAllocator = giftVoucherCodeAllocator;
+        this.paymentService = paymentService;
+    }
+
+    /**
+     * Get scheduled job leases and last-run metrics
+     */
+    @GetMapping("/jobs")
+    public Map<String, Object> getJobs() {
+        List<SchedulerLease> jobs = schedulerLockService.getJobStatuses();
+        return Map.of(
+                "nodeId", schedulerLockService.getNodeId(),
+                "jobs", jobs);
+    }
+
+    /**
+     * Get Stripe webhook inbox backlog and worker usage
+     */
+    @GetMapping("/stripe-webhooks")
+    public Map<String, Object> getStripeWebhooks() {
+        return stripeWebhookProcessor.getStats();
+    }
+
+    /**
+     * Get latency, error and bulkhead usage per outbound integration
+     */
+    @GetMapping("/outbound")
+    public Map<String, Object> getOutbound() {
+        return outboundGateway.getMetrics();
+    }
+
+    /**
+     * Get favorites cache size and hit rate on this node
+     */
+    @GetMapping("/favorites-cache")
+    public Map<String, Object> getFavoritesCache() {
+        return favoriteCache.getStats();
+    }
+
+    /**
+     * Get activity log buffer usage and dropped/failed counts on this node
+     */
+    @GetMapping("/activity-log")
+    public Map<String, Object> getActivityLog() {
+        return activityLogWriter.getStats();
+    }
+
+    /**
+     * Get live dashboard subscribers on this node
+     */
+    @GetMapping("/dashboard-stream")
+    public Map<String, Object> getDashboardStream() {
+        return dashboardBroadcaster.getStats();
+    }
+
+    /**
+     * Get gift voucher code filter state and regeneration count on this node
+     */
+    @GetMapping("/gift-voucher-codes")
+    public Map<String, Object> getGiftVoucherCodes() {
+        return giftVoucherCodeAllocator.getStats();
+    }
+
+    /**
+     * Get completed payments whose gift voucher share could not be debited
+     */
+    @GetMapping("/voucher-shortfalls")
+    public List<Map<String, Object>> getVoucherShortfalls() {
+        return paymentService.getVoucherShortfalls();
+    }
+}
@@ -0,0 +1,71 @@
+package com.farmeet.controller;
+
+import com.farmeet.entity.ReconciliationRun;
+import com.farmeet.service.LocalStripeGateway;
+import com.farmeet.service.PaymentReconciliationService;
+import com.farmeet.service.StripeGateway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+public class AdminReconciliationController {
+
+    private final PaymentReconciliationService reconciliationService;
+    private final ObjectProvider<LocalStripeGateway> localStripeGateway;
+
+    public AdminReconciliationController(PaymentReconciliationService reconciliationService,
+            ObjectProvider<LocalStripeGateway> localStripeGateway) {
+        this.reconciliationService = reconciliationService;
+        this.localStripeGateway = localStripeGateway;
+    }
+
+    /**
+     * Get recent reconciliation runs
+     */
+    @GetMapping("/runs")
+    public List<ReconciliationRun> getRuns() {
+        return reconciliationService.getRecentRuns();
+    }
+
+    /**
+     * Get a reconciliation run with its diff report
+     */
+    @GetMapping("/runs/{id}")
+    public ResponseEntity<ReconciliationRun> getRun(@PathVariable Long id) {
+        return reconciliationService.getRun(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Run reconciliation now (skipped if another node is running it)
+     */
+    @PostMapping("/run")
+    public ResponseEntity<?> run() {
+        return reconciliationService.runExclusively(Duration.ZERO)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Reconciliation is already running")));
+    }
+
+    /**
+     * Register session states on the local Stripe stub (only when stripe.stub.enabled=true)
+     */
+    @PostMapping("/stub-states")
+    public ResponseEntity<?> putStubStates(@RequestBody List<StripeGateway.CheckoutState> states) {
+        LocalStripeGateway stub = localStripeGateway.getIfAvailable();
+        if (stub == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Local Stripe stub is not enabled"));
+        }
+        states.forEach(stub::put);
+        return ResponseEntity.ok(Map.of("registered", states.size()));
+    }
+}
@@ -1,10 +1,27 @@
 package com.farmeet.controller;
 
 import com.farmeet.entity.ActivityLog;
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.service.ActivityLogArchiveService;
 import com.farmeet.service.ActivityLogService;
+import com.farmeet.service.ActivityRollupService;
+import com.farmeet.service.ActiveUserService;
+import com.farmeet.service.AdminDashboardBroadcaster;
 import com.farmeet.service.AnalyticsService;
+import com.farmeet.service.DataExportService;
+import com.farmeet.service.PopularityService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -14,10 +31,37 @@ public class AnalyticsController {
 
     private final ActivityLogService activityLogService;
     private final AnalyticsService analyticsService;
+    private final ActivityRollupService activityRollupService;
+    private final PopularityService popularityService;
+    private final ActivityLogArchiveService activityLogArchiveService;
+    private final DataExportService dataExportService;
+    private final AdminDashboardBroadcaster dashboardBroadcaster;
+    private final ActiveUserService activeUserService;
 
-    public AnalyticsController(ActivityLogService activityLogService, AnalyticsService analyticsService) {
+    public AnalyticsController(ActivityLogService activityLogService, AnalyticsService analyticsService,
+            ActivityRollupService activityRollupService, PopularityService popularityService,
+            ActivityLogArchiveService activityLogArchiveService, DataExportService dataExportService,
+            AdminDashboardBroadcaster dashboardBroadcaster, ActiveUserService activeUserService) {
         this.activityLogService = activityLogService;
         this.analyticsService = analyticsService;
+        this.activityRollupService = activityRollupService;
+        this.popularityService = popularityService;
+        this.activityLogArchiveService = activityLogArchiveService;
+        this.dataExportService = dataExportService;
+        this.dashboardBroadcaster = dashboardBroadcaster;
+        this.activeUserService = activeUserService;
+    }
+
+    /**
+     * Live dashboard stream: a "snapshot" event with stats, daily, popular and recent activities,
+     * followed by coalesced "delta" events (activity counts by type and the newest activities)
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> stream() {
+        return dashboardBroadcaster.subscribe()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", "Too many dashboard subscribers")));
     }
 
     /**
@@ -28,6 +72,43 @@ public class AnalyticsController {
         return activityLogService.getRecentActivities(limit);
     }
 
+    /**
+     * Stream activity logs as NDJSON or CSV (format: ndjson or csv, dates are inclusive)
+     */
+    @GetMapping("/activities/export")
+    public ResponseEntity<StreamingResponseBody> exportActivities(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) ActivityType type) {
+        DataExportService.Format exportFormat = DataExportService.Format.fromParam(format);
+        return exportResponse("activities", exportFormat,
+                out -> dataExportService.exportActivities(exportFormat, from, to, type, out));
+    }
+
+    /**
+     * Stream reservations as NDJSON or CSV (format: ndjson or csv, dates are inclusive)
+     */
+    @GetMapping("/reservations/export")
+    public ResponseEntity<StreamingResponseBody> exportReservations(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) ReservationStatus status) {
+        DataExportService.Format exportFormat = DataExportService.Format.fromParam(format);
+        return exportResponse("reservations", exportFormat,
+                out -> dataExportService.exportReservations(exportFormat, from, to, status, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(String name,
+            DataExportService.Format format, StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
     /**
      * Get overview stats
      */
@@ -45,18 +126,71 @@ public class AnalyticsController {
     }
 
     /**
-     * Get popular farms
+     * Get estimated unique active users (DAU/WAU/MAU) for the days ending on the given date (default today)
+     */
+    @GetMapping("/active-users")
+    public Map<String, Object> getActiveUsers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return activeUserService.getActiveUsers(date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * Get estimated daily active users for the last N days
+     */
+    @GetMapping("/active-users/daily")
+    public List<Map<String, Object>> getDailyActiveUsers(@RequestParam(defaultValue = "30") int days) {
+        return activeUserService.getDailyActiveUsers(days);
+    }
+
+    /**
+     * Get popular farms (window: all, 7d or 30d)
      */
     @GetMapping("/popular-farms")
-    public List<Map<String, Object>> getPopularFarms(@RequestParam(defaultValue = "5") int limit) {
-        return analyticsService.getPopularFarms(limit);
+    public List<Map<String, Object>> getPopularFarms(@RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "all") String window) {
+        return analyticsService.getPopularFarms(PopularityService.Window.fromParam(window), limit);
     }
 
     /**
-     * Get popular events
+     * Get popular events (window: all, 7d or 30d)
      */
     @GetMapping("/popular-events")
-    public List<Map<String, Object>> getPopularEvents(@RequestParam(defaultValue = "5") int limit) {
-        return analyticsService.getPopularEvents(limit);
+    public List<Map<String, Object>> getPopularEvents(@RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "all") String window) {
+        return analyticsService.getPopularEvents(PopularityService.Window.fromParam(window), limit);
+    }
+
+    /**
+     * Rebuild daily rollups for the last N closed days from the activity logs (all days when omitted; today is never rebuilt)
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildRollups(@RequestParam(required = false) Integer days) {
+        LocalDate from = days != null ? LocalDate.now().minusDays(days) : null;
+        return activityRollupService.rebuildExclusively(from, Duration.ZERO)
+                .<ResponseEntity<?>>map(rows -> ResponseEntity.ok(Map.of("rows", rows)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Rollup rebuild is already running")));
+    }
+
+    /**
+     * Recount reservation counters from the reservations table and refresh the popularity rankings
+     */
+    @PostMapping("/popularity/rebuild")
+    public ResponseEntity<?> rebuildPopularity() {
+        return popularityService.rebuildExclusively(Duration.ZERO)
+                .<ResponseEntity<?>>map(corrected -> ResponseEntity.ok(Map.of("correctedEvents", corrected)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Popularity rebuild is already running")));
+    }
+
+    /**
+     * Archive activity logs older than the retention period to monthly gzip NDJSON files and delete them
+     */
+    @PostMapping("/activities/archive")
+    public ResponseEntity<?> archiveActivities() {
+        return activityLogArchiveService.archiveExclusively(Duration.ZERO)
+                .<ResponseEntity<?>>map(archived -> ResponseEntity.ok(Map.of("archived", archived)))
+                .orElse(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "Activity log archive is already running")));
     }
 }
@@ -1,7 +1,6 @@
 package com.farmeet.controller;
 
-import com.farmeet.dto.FarmDto;
-import com.farmeet.entity.Favorite;
+import com.farmeet.dto.FavoriteFarmDto;
 import com.farmeet.entity.User;
 import com.farmeet.service.FavoriteService;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +9,6 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/favorites")
@@ -26,12 +24,19 @@ public class FavoriteController {
      * お気に入り一覧取得
      */
     @GetMapping
-    public ResponseEntity<List<FarmDto>> getFavorites(@AuthenticationPrincipal User user) {
-        List<Favorite> favorites = favoriteService.getFavorites(user);
-        List<FarmDto> farms = favorites.stream()
-                .map(f -> FarmDto.fromEntity(f.getFarm()))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(farms);
+    public ResponseEntity<List<FavoriteFarmDto>> getFavorites(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(favoriteService.getFavorites(user));
+    }
+
+    /**
+     * お気に入り一覧取得（新しい順にページング）
+     */
+    @GetMapping("/page")
+    public ResponseEntity<FavoriteFarmDto.Page> getFavoritePage(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(favoriteService.getFavoritePage(user, cursor, limit));
     }
 
     /**
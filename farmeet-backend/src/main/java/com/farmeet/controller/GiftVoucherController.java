@@ -2,13 +2,21 @@ package com.farmeet.controller;
 
 import com.farmeet.dto.GiftVoucherDto;
 import com.farmeet.entity.GiftVoucher;
+import com.farmeet.entity.GiftVoucherStatus;
 import com.farmeet.entity.User;
+import com.farmeet.service.GiftVoucherCampaignService;
 import com.farmeet.service.GiftVoucherService;
 import com.stripe.exception.StripeException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -17,9 +25,12 @@ import java.util.Map;
 public class GiftVoucherController {
 
     private final GiftVoucherService giftVoucherService;
+    private final GiftVoucherCampaignService campaignService;
 
-    public GiftVoucherController(GiftVoucherService giftVoucherService) {
+    public GiftVoucherController(GiftVoucherService giftVoucherService,
+            GiftVoucherCampaignService campaignService) {
         this.giftVoucherService = giftVoucherService;
+        this.campaignService = campaignService;
     }
 
     /**
@@ -55,7 +66,7 @@ public class GiftVoucherController {
     }
 
     /**
-     * 管理者用: 全ギフト券一覧取得
+     * 管理者用: 全ギフト券一覧取得（件数が多い場合は /admin/vouchers を使用）
      */
     @GetMapping("/admin/all")
     public ResponseEntity<?> getAllVouchersForAdmin(@AuthenticationPrincipal User admin) {
@@ -70,6 +81,113 @@ public class GiftVoucherController {
         }
     }
 
+    /**
+     * 管理者用: ギフト券一覧（条件指定・キーセットページング）
+     */
+    @GetMapping("/admin/vouchers")
+    public ResponseEntity<?> searchVouchersForAdmin(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate issuedTo,
+            @RequestParam(required = false) Long purchaserId,
+            @RequestParam(required = false) Boolean freeIssue,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        try {
+            GiftVoucherStatus statusFilter = status != null ? GiftVoucherStatus.valueOf(status) : null;
+            return ResponseEntity.ok(giftVoucherService.searchVouchersForAdmin(
+                    statusFilter, issuedFrom, issuedTo, purchaserId, freeIssue, cursor, limit));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 管理者用: ギフト券の集計（残高合計・利用額など）
+     */
+    @GetMapping("/admin/summary")
+    public ResponseEntity<?> getVoucherSummary(@AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        return ResponseEntity.ok(giftVoucherService.getAdminSummary());
+    }
+
+    /**
+     * 管理者用: ギフト券の残高増減履歴
+     */
+    @GetMapping("/admin/{voucherId}/ledger")
+    public ResponseEntity<?> getVoucherLedger(@PathVariable Long voucherId, @AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        return ResponseEntity.ok(giftVoucherService.getLedgerEntries(voucherId));
+    }
+
+    /**
+     * 管理者用: 一括発行キャンペーンを作成（発行は非同期で進む）
+     */
+    @PostMapping("/admin/campaigns")
+    public ResponseEntity<?> createCampaign(
+            @RequestBody GiftVoucherDto.CampaignRequest request,
+            @AuthenticationPrincipal User admin) {
+        try {
+            return ResponseEntity.accepted().body(campaignService.createCampaign(request, admin));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 管理者用: 一括発行キャンペーン一覧
+     */
+    @GetMapping("/admin/campaigns")
+    public ResponseEntity<?> getCampaigns(@AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        return ResponseEntity.ok(campaignService.getCampaigns());
+    }
+
+    /**
+     * 管理者用: 一括発行キャンペーンの進捗
+     */
+    @GetMapping("/admin/campaigns/{id}")
+    public ResponseEntity<?> getCampaign(@PathVariable Long id, @AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        try {
+            return ResponseEntity.ok(campaignService.getCampaign(id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 管理者用: 発行済みコードをCSVでダウンロード
+     */
+    @GetMapping("/admin/campaigns/{id}/codes.csv")
+    public ResponseEntity<?> exportCampaignCodes(@PathVariable Long id, @AuthenticationPrincipal User admin) {
+        if (!"ADMIN".equals(admin.getRole().name())) {
+            return ResponseEntity.status(403).body(Map.of("error", "権限がありません"));
+        }
+        try {
+            campaignService.getCampaign(id);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        StreamingResponseBody body = out -> campaignService.exportCodes(id, out);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"campaign-" + id + "-codes.csv\"")
+                .body(body);
+    }
+
     /**
      * ギフト券を有効化（決済完了後）
      */
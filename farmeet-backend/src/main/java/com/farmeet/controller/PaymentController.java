@@ -6,6 +6,8 @@ import com.farmeet.entity.Reservation;
 import com.farmeet.entity.User;
 import com.farmeet.repository.ReservationRepository;
 import com.farmeet.service.PaymentService;
+import com.farmeet.service.StripeWebhookInboxService;
+import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -20,11 +22,14 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final ReservationRepository reservationRepository;
+    private final StripeWebhookInboxService stripeWebhookInboxService;
 
     public PaymentController(PaymentService paymentService,
-            ReservationRepository reservationRepository) {
+            ReservationRepository reservationRepository,
+            StripeWebhookInboxService stripeWebhookInboxService) {
         this.paymentService = paymentService;
         this.reservationRepository = reservationRepository;
+        this.stripeWebhookInboxService = stripeWebhookInboxService;
     }
 
     /**
@@ -162,18 +167,17 @@ public class PaymentController {
     }
 
     /**
-     * Stripe Webhook受信
+     * Stripe Webhook受信（署名検証後に受信箱へ保存し、処理は非同期で行う）
      */
     @PostMapping("/webhook/stripe")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String sigHeader) {
         try {
-            // Webhook処理（実際の実装ではStripeのWebhook署名検証が必要）
-            // 簡易実装のため、checkout.session.completedイベントを処理
+            stripeWebhookInboxService.receive(payload, sigHeader);
             return ResponseEntity.ok("Received");
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.badRequest().body("Invalid signature");
         }
     }
 
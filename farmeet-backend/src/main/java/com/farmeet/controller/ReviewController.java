@@ -8,9 +8,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api")
@@ -23,22 +23,31 @@ public class ReviewController {
     }
 
     /**
-     * 農園のレビュー一覧取得
+     * 農園のレビュー一覧取得（新しい順にページング、集計を含む）
      */
     @GetMapping("/farms/{farmId}/reviews")
-    public ResponseEntity<Map<String, Object>> getReviews(@PathVariable Long farmId) {
-        List<Review> reviews = reviewService.getReviewsByFarm(farmId);
-        List<ReviewDto> reviewDtos = reviews.stream()
-                .map(ReviewDto::fromEntity)
-                .collect(Collectors.toList());
+    public ResponseEntity<Map<String, Object>> getReviews(
+            @PathVariable Long farmId,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        ReviewDto.Summary summary = reviewService.getReviewSummary(farmId);
+        ReviewDto.Page page = reviewService.getReviewPage(farmId, cursor, limit);
 
-        Double avgRating = reviewService.getAverageRating(farmId);
-        Long reviewCount = reviewService.getReviewCount(farmId);
+        Map<String, Object> body = new HashMap<>();
+        body.put("reviews", page.getReviews());
+        body.put("nextCursor", page.getNextCursor());
+        body.put("averageRating", summary.getAverageRating() != null ? summary.getAverageRating() : 0.0);
+        body.put("reviewCount", summary.getReviewCount());
+        body.put("distribution", summary.getDistribution());
+        return ResponseEntity.ok(body);
+    }
 
-        return ResponseEntity.ok(Map.of(
-                "reviews", reviewDtos,
-                "averageRating", avgRating != null ? avgRating : 0.0,
-                "reviewCount", reviewCount));
+    /**
+     * 農園のレビュー集計（平均・件数・評価ごとの件数）
+     */
+    @GetMapping("/farms/{farmId}/reviews/summary")
+    public ResponseEntity<ReviewDto.Summary> getReviewSummary(@PathVariable Long farmId) {
+        return ResponseEntity.ok(reviewService.getReviewSummary(farmId));
     }
 
     /**
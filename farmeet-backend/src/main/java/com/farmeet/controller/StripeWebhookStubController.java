@@ -0,0 +1,161 @@
+package com.farmeet.controller;
+
+import com.farmeet.service.LocalStripeGateway;
+import com.farmeet.service.StripeGateway;
+import com.farmeet.service.StripeService;
+import com.farmeet.service.StripeWebhookInboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.Stripe;
+import com.stripe.exception.SignatureVerificationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stripe Webhookの署名付きスタブを生成する（負荷試験・動作確認用。stripe.webhook.stub-enabled=true の場合のみ有効）
+ * <p>
+ * 生成したセッションは支払い済みとしてローカルのStripeスタブ（stripe.stub.enabled=true）に登録するため、
+ * イベントの処理時にStripe APIを呼び出さない。
+ */
+@RestController
+@RequestMapping("/api/admin/stripe/webhook-stub")
+@ConditionalOnProperty(name = "stripe.webhook.stub-enabled", havingValue = "true")
+public class StripeWebhookStubController {
+
+    private final StripeService stripeService;
+    private final StripeWebhookInboxService stripeWebhookInboxService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<LocalStripeGateway> localStripeGateway;
+
+    public StripeWebhookStubController(StripeService stripeService,
+            StripeWebhookInboxService stripeWebhookInboxService,
+            ObjectMapper objectMapper,
+            ObjectProvider<LocalStripeGateway> localStripeGateway) {
+        this.stripeService = stripeService;
+        this.stripeWebhookInboxService = stripeWebhookInboxService;
+        this.objectMapper = objectMapper;
+        this.localStripeGateway = localStripeGateway;
+    }
+
+    /**
+     * 署名付きのcheckout.session.completedイベントを生成
+     */
+    @PostMapping("/sign")
+    public ResponseEntity<Map<String, Object>> sign(@RequestBody Map<String, Object> request) {
+        try {
+            String payload = buildPayload(request);
+            return ResponseEntity.ok(Map.of(
+                    "payload", payload,
+                    "signatureHeader", signatureHeader(payload)));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * 署名付きイベントを生成して受信処理に直接投入（deliveries回再送して重複排除を確認できる）
+     */
+    @PostMapping("/deliver")
+    public ResponseEntity<Map<String, Object>> deliver(@RequestBody Map<String, Object> request) {
+        try {
+            int deliveries = request.get("deliveries") != null
+                    ? ((Number) request.get("deliveries")).intValue()
+                    : 1;
+            String payload = buildPayload(request);
+            String header = signatureHeader(payload);
+
+            int accepted = 0;
+            for (int i = 0; i < deliveries; i++) {
+                if (stripeWebhookInboxService.receive(payload, header)) {
+                    accepted++;
+                }
+            }
+            return ResponseEntity.ok(Map.of(
+                    "accepted", accepted,
+                    "duplicates", deliveries - accepted));
+        } catch (SignatureVerificationException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private String buildPayload(Map<String, Object> request) {
+        String sessionId = (String) request.get("sessionId");
+        if (sessionId == null || sessionId.isEmpty()) {
+            throw new RuntimeException("sessionId is required");
+        }
+        registerPaidSession(sessionId);
+        String eventId = request.get("eventId") != null
+                ? (String) request.get("eventId")
+                : "evt_stub_" + UUID.randomUUID().toString().replace("-", "");
+
+        Map<String, String> metadata = new HashMap<>();
+        if ("gift_voucher".equals(request.get("type"))) {
+            metadata.put("type", "gift_voucher");
+        }
+
+        Map<String, Object> session = new LinkedHashMap<>();
+        session.put("id", sessionId);
+        session.put("object", "checkout.session");
+        session.put("status", "complete");
+        session.put("payment_status", "paid");
+        session.put("metadata", metadata);
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("id", eventId);
+        event.put("object", "event");
+        event.put("api_version", Stripe.API_VERSION);
+        event.put("created", Instant.now().getEpochSecond());
+        event.put("type", "checkout.session.completed");
+        event.put("livemode", false);
+        event.put("data", Map.of("object", session));
+
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to build stub payload", e);
+        }
+    }
+
+    /**
+     * セッションを支払い済みとしてローカルのStripeスタブに登録（処理時の状態取得をスタブで完結させる）
+     */
+    private void registerPaidSession(String sessionId) {
+        LocalStripeGateway stub = localStripeGateway.getIfAvailable();
+        if (stub == null) {
+            throw new RuntimeException("Local Stripe stub is not enabled. Please set stripe.stub.enabled=true");
+        }
+        stub.put(new StripeGateway.CheckoutState(sessionId, "complete", "paid", "pi_stub_" + sessionId, null, 0L));
+    }
+
+    /**
+     * Stripeと同じ形式（t=タイムスタンプ,v1=HMAC-SHA256）の署名ヘッダーを作成
+     */
+    private String signatureHeader(String payload) {
+        String secret = stripeService.getWebhookSecret();
+        if (secret == null || secret.isEmpty()) {
+            throw new RuntimeException("Stripe webhook secret is not configured. Please set stripe.webhook-secret");
+        }
+        long timestamp = Instant.now().getEpochSecond();
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Failed to sign stub payload", e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.farmeet.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * お気に入り一覧のカード表示用（JPQLのコンストラクタ式で直接生成）
+ */
+@Data
+@NoArgsConstructor
+public class FavoriteFarmDto {
+    private Long favoriteId;
+    private Long id; // 農園ID
+    private UUID publicId;
+    private String name;
+    private String location;
+    private String imageUrl;
+    private Double averageRating;
+    private long reviewCount;
+    private LocalDateTime favoritedAt;
+
+    public FavoriteFarmDto(Long favoriteId, Long id, UUID publicId, String name, String location, String imageUrl,
+            LocalDateTime favoritedAt, long ratingCount1, long ratingCount2, long ratingCount3, long ratingCount4,
+            long ratingCount5) {
+        this.favoriteId = favoriteId;
+        this.id = id;
+        this.publicId = publicId;
+        this.name = name;
+        this.location = location;
+        this.imageUrl = imageUrl;
+        this.favoritedAt = favoritedAt;
+        this.reviewCount = ratingCount1 + ratingCount2 + ratingCount3 + ratingCount4 + ratingCount5;
+        long sum = ratingCount1 + 2 * ratingCount2 + 3 * ratingCount3 + 4 * ratingCount4 + 5 * ratingCount5;
+        this.averageRating = reviewCount > 0 ? (double) sum / reviewCount : null;
+    }
+
+    /**
+     * お気に入り一覧の1ページ分
+     */
+    @Data
+    public static class Page {
+        private List<FavoriteFarmDto> items;
+        private Long nextCursor; // 次ページの取得に渡すID（最終ページの場合はnull）
+    }
+}
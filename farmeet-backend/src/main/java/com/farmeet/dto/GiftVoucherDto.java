@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 /**
  * ギフト券のDTO
@@ -30,6 +32,7 @@ public class GiftVoucherDto {
     private boolean hasMessage;
     private boolean isFreeIssue; // 無料発行フラグ
     private String issueReason; // 発行理由
+    private BigDecimal ledgerBalance; // 台帳から計算した残高（管理者用一覧のみ）
 
     /**
      * 購入リクエスト
@@ -148,4 +151,86 @@ public class GiftVoucherDto {
         private BigDecimal amount;
         private BigDecimal balance;
     }
+
+    /**
+     * 一括発行キャンペーンリクエスト
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CampaignRequest {
+        private String name; // キャンペーン名
+        private BigDecimal amount; // 1枚あたりの額面金額
+        private Integer quantity; // 発行枚数
+        private String issueReason; // 発行理由
+        private Integer expiryMonths; // 有効期限（月数、デフォルト12ヶ月）
+    }
+
+    /**
+     * 一括発行キャンペーンの進捗
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class CampaignResponse {
+        private Long id;
+        private String name;
+        private BigDecimal amount;
+        private Integer quantity;
+        private Integer issuedCount;
+        private int progressPercent;
+        private String status;
+        private LocalDateTime expiresAt;
+        private LocalDateTime createdAt;
+        private LocalDateTime startedAt;
+        private LocalDateTime completedAt;
+        private String lastError;
+    }
+
+    /**
+     * 残高増減履歴（管理者用）
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LedgerEntry {
+        private Long id;
+        private Long paymentId;
+        private String entryType;
+        private BigDecimal amount;
+        private String note;
+        private LocalDateTime createdAt;
+    }
+
+    /**
+     * 管理者用一覧の1ページ分
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AdminPage {
+        private List<GiftVoucherDto> items;
+        private Long nextCursor; // 次ページの取得に渡すID（最終ページの場合はnull）
+    }
+
+    /**
+     * 管理者用集計
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AdminSummary {
+        private long totalCount;
+        private Map<String, Long> countByStatus;
+        private BigDecimal issuedAmount; // 発行済み額面合計（決済待ち・キャンセルを除く）
+        private BigDecimal purchasedAmount; // うち有料購入分
+        private BigDecimal freeIssuedAmount; // うち無料発行分
+        private BigDecimal outstandingBalance; // 使用可能な残高合計
+        private BigDecimal redeemedAmount; // 利用済み額合計
+        private BigDecimal expiredBalance; // 期限切れで失効した残高合計
+    }
 }
@@ -4,6 +4,8 @@ import com.farmeet.entity.Review;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Data
 public class ReviewDto {
@@ -24,4 +26,23 @@ public class ReviewDto {
         dto.setCreatedAt(review.getCreatedAt());
         return dto;
     }
+
+    /**
+     * 農園のレビュー集計（平均・件数・評価ごとの件数）
+     */
+    @Data
+    public static class Summary {
+        private Double averageRating;
+        private long reviewCount;
+        private Map<Integer, Long> distribution; // 評価(1〜5) -> 件数
+    }
+
+    /**
+     * レビュー一覧の1ページ分
+     */
+    @Data
+    public static class Page {
+        private List<ReviewDto> reviews;
+        private Long nextCursor; // 次ページの取得に渡すID（最終ページの場合はnull）
+    }
 }
@@ -8,7 +8,11 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "activity_logs")
+@Table(name = "activity_logs", indexes = {
+        @Index(name = "idx_activity_logs_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_activity_logs_type", columnList = "activity_type, created_at"),
+        @Index(name = "idx_activity_logs_user", columnList = "user_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,52 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * チャンク単位バッチ処理の進捗チェックポイント
+ */
+@Entity
+@Table(name = "batch_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCheckpoint {
+
+    /** ジョブ名 */
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    /** 最後に処理したID（キーセットページングの再開位置） */
+    @Column(name = "last_processed_id", nullable = false)
+    private Long lastProcessedId = 0L;
+
+    /** 今回の実行で処理した件数 */
+    @Column(name = "processed_count", nullable = false)
+    private Long processedCount = 0L;
+
+    /** 実行状態 */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.COMPLETED;
+
+    /** 実行開始日時 */
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    /** 最終更新日時 */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Status {
+        /** 実行中（この状態で残っていれば中断されたので続きから再開） */
+        RUNNING,
+        /** 完了 */
+        COMPLETED
+    }
+}
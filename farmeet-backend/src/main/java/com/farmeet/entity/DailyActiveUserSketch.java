@@ -0,0 +1,40 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 日別のアクティブユーザーのHyperLogLogスケッチ（4096バイトのレジスタ）
+ * <p>
+ * 各ノードが自分の分をレジスタごとの最大値で取り込むため、同時更新は楽観ロック（version）で検出して再試行する。
+ */
+@Entity
+@Table(name = "daily_active_user_sketches", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_active_user_sketches_date", columnNames = "activity_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyActiveUserSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false, length = 4096)
+    private byte[] registers;
+
+    @Version
+    private Long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.farmeet.entity;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 日別・アクティビティ種別ごとの件数（activity_logs の集計）
+ */
+@Entity
+@Table(name = "daily_activity_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_activity_rollup", columnNames = { "activity_date", "activity_type" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyActivityRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "activity_count", nullable = false)
+    private long activityCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -54,6 +54,10 @@ public class ExperienceEvent {
 
     private boolean deleted = false;
 
+    // キャンセルされていない予約の件数（PopularityServiceがUPDATE文で直接増減するため、エンティティの保存では書き込まない）
+    @Column(name = "reservation_count", nullable = false, updatable = false)
+    private long reservationCount;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -65,6 +65,22 @@ public class Farm {
 
     private boolean deleted = false;
 
+    // 評価ごとのレビュー件数（ReviewServiceがUPDATE文で直接増減するため、エンティティの保存では書き込まない）
+    @Column(name = "rating_count_1", nullable = false, updatable = false)
+    private long ratingCount1;
+
+    @Column(name = "rating_count_2", nullable = false, updatable = false)
+    private long ratingCount2;
+
+    @Column(name = "rating_count_3", nullable = false, updatable = false)
+    private long ratingCount3;
+
+    @Column(name = "rating_count_4", nullable = false, updatable = false)
+    private long ratingCount4;
+
+    @Column(name = "rating_count_5", nullable = false, updatable = false)
+    private long ratingCount5;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -72,4 +88,23 @@ public class Farm {
             publicId = UUID.randomUUID();
         }
     }
+
+    /**
+     * レビュー件数
+     */
+    public long ratingCount() {
+        return ratingCount1 + ratingCount2 + ratingCount3 + ratingCount4 + ratingCount5;
+    }
+
+    /**
+     * 平均評価（レビューがない場合はnull）
+     */
+    public Double ratingAverage() {
+        long count = ratingCount();
+        if (count == 0) {
+            return null;
+        }
+        long sum = ratingCount1 + 2 * ratingCount2 + 3 * ratingCount3 + 4 * ratingCount4 + 5 * ratingCount5;
+        return (double) sum / count;
+    }
 }
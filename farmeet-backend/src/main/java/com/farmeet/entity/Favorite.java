@@ -10,6 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "favorites", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "user_id", "farm_id" })
+}, indexes = {
+        @Index(name = "idx_favorites_user", columnList = "user_id, id")
 })
 @Data
 @NoArgsConstructor
@@ -12,7 +12,13 @@ import java.time.LocalDateTime;
  * ギフト券エンティティ
  */
 @Entity
-@Table(name = "gift_vouchers")
+@Table(name = "gift_vouchers", indexes = {
+        @Index(name = "idx_gift_vouchers_campaign", columnList = "campaign_id, id"),
+        @Index(name = "idx_gift_vouchers_status", columnList = "status, id"),
+        @Index(name = "idx_gift_vouchers_purchaser", columnList = "purchaser_id, id"),
+        @Index(name = "idx_gift_vouchers_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_gift_vouchers_free_issue", columnList = "is_free_issue, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -74,6 +80,10 @@ public class GiftVoucher {
     @Column(name = "issue_reason")
     private String issueReason;
 
+    /** 一括発行キャンペーンID（キャンペーンで発行した場合） */
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
     /** 購入時の決済方法 */
     @Enumerated(EnumType.STRING)
     @Column(name = "payment_method")
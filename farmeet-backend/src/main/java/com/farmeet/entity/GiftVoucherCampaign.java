@@ -0,0 +1,90 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * ギフト券の一括発行キャンペーン
+ */
+@Entity
+@Table(name = "gift_voucher_campaigns")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GiftVoucherCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** キャンペーン名 */
+    @Column(nullable = false)
+    private String name;
+
+    /** 1枚あたりの額面金額 */
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    /** 発行枚数 */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /** 発行済み枚数（進捗） */
+    @Column(name = "issued_count", nullable = false)
+    private Integer issuedCount = 0;
+
+    /** 発行理由 */
+    @Column(name = "issue_reason")
+    private String issueReason;
+
+    /** ギフト券の有効期限 */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    /** 作成した管理者 */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by_id", nullable = false)
+    private User createdBy;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    /** 最終更新日時（処理中ノードの生存確認に使用） */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    public enum Status {
+        /** 発行待ち */
+        PENDING,
+        /** 発行中 */
+        RUNNING,
+        /** 発行完了 */
+        COMPLETED,
+        /** 発行失敗 */
+        FAILED
+    }
+}
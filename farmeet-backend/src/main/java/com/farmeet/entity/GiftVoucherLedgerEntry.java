@@ -0,0 +1,62 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * ギフト券残高の増減履歴（追記のみ）
+ * 同じ決済による同種の記帳は一意制約で1件に限る
+ */
+@Entity
+@Table(name = "gift_voucher_ledger", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_gift_voucher_ledger_payment", columnNames = { "voucher_id", "payment_id",
+                "entry_type" })
+}, indexes = {
+        @Index(name = "idx_gift_voucher_ledger_voucher", columnList = "voucher_id, entry_type")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GiftVoucherLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "voucher_id", nullable = false)
+    private Long voucherId;
+
+    /** 対象の決済ID（決済によらない増減の場合はnull） */
+    @Column(name = "payment_id")
+    private Long paymentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 16)
+    private EntryType entryType;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(length = 255)
+    private String note;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum EntryType {
+        /** 利用（残高の減少） */
+        DEBIT,
+        /** 返金などによる払い戻し（残高の増加） */
+        CREDIT
+    }
+}
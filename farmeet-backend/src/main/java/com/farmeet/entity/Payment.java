@@ -49,6 +49,22 @@ public class Payment {
     @Column(name = "stripe_checkout_session_id")
     private String stripeCheckoutSessionId;
 
+    /** Stripe Checkout SessionのURL（有効期限内は再利用する） */
+    @Column(name = "stripe_checkout_url", length = 1024)
+    private String stripeCheckoutUrl;
+
+    /** Stripe Checkout Sessionの有効期限 */
+    @Column(name = "stripe_checkout_expires_at")
+    private LocalDateTime stripeCheckoutExpiresAt;
+
+    /** Stripe Checkout Session作成時の決済額 */
+    @Column(name = "stripe_checkout_amount", precision = 10, scale = 2)
+    private BigDecimal stripeCheckoutAmount;
+
+    /** Stripe Checkout Session作成時に適用していたギフト券ID */
+    @Column(name = "stripe_checkout_voucher_id")
+    private Long stripeCheckoutVoucherId;
+
     /** PayPay Payment ID */
     @Column(name = "paypay_payment_id")
     private String paypayPaymentId;
@@ -74,6 +90,10 @@ public class Payment {
     @JoinColumn(name = "used_voucher_id")
     private GiftVoucher usedVoucher;
 
+    /** 決済完了時にギフト券の残高から引き落とせなかった額（要確認、問題がない場合はnull） */
+    @Column(name = "voucher_shortfall", precision = 10, scale = 2)
+    private BigDecimal voucherShortfall;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
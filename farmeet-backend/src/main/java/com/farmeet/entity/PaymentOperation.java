@@ -0,0 +1,90 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 外部決済サービスへの操作記録（返金・Checkout Session作成）
+ * <p>
+ * DBトランザクション内で記録してから、外部APIはトランザクション外で呼び出す。
+ * IDはStripeの冪等キーにも使用する。
+ */
+@Entity
+@Table(name = "payment_operations", indexes = {
+        @Index(name = "idx_payment_operations_status", columnList = "operation_type, status, updated_at"),
+        @Index(name = "idx_payment_operations_external_id", columnList = "external_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentOperation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id", nullable = false)
+    private Payment payment;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false)
+    private OperationType operationType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    /** 操作金額（返金額・決済額） */
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    /** 外部サービス側のID（Refund ID・Checkout Session ID） */
+    @Column(name = "external_id")
+    private String externalId;
+
+    /** 失敗回数 */
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum OperationType {
+        /** 返金 */
+        REFUND,
+        /** Checkout Session作成 */
+        CHECKOUT_SESSION
+    }
+
+    public enum Status {
+        /** 外部サービス呼び出し前・結果未反映 */
+        PENDING,
+        /** 完了 */
+        SUCCEEDED,
+        /** 失敗（返金はリトライ対象） */
+        FAILED
+    }
+}
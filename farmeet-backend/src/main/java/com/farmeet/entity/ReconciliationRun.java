@@ -0,0 +1,49 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 決済照合ジョブの実行結果（差分レポート）
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /** 照合した決済件数 */
+    @Column(name = "checked_count", nullable = false)
+    private Integer checkedCount = 0;
+
+    /** 差分があった件数 */
+    @Column(name = "diff_count", nullable = false)
+    private Integer diffCount = 0;
+
+    /** 自動修正した件数 */
+    @Column(name = "corrected_count", nullable = false)
+    private Integer correctedCount = 0;
+
+    /** Stripeから状態を取得できなかった件数 */
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount = 0;
+
+    /** 差分の明細（JSON） */
+    @Column(columnDefinition = "TEXT")
+    private String diffs;
+}
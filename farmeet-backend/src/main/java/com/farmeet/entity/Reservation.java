@@ -12,7 +12,9 @@ import java.time.LocalDateTime;
  * 予約を管理するエンティティ
  */
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_created_at", columnList = "created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -10,6 +10,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "reviews", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "user_id", "farm_id" })
+}, indexes = {
+        @Index(name = "idx_reviews_farm", columnList = "farm_id, id")
 })
 @Data
 @NoArgsConstructor
@@ -0,0 +1,56 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * スケジューラージョブのリース（クラスタ内で1ノードのみ実行するためのロック）と実行メトリクス
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerLease {
+
+    /** ジョブ名 */
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    /** リースを保持しているノード */
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    /** リースの有効期限（これを過ぎると他ノードが取得可能） */
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    /** 最終実行開始日時 */
+    @Column(name = "last_started_at")
+    private LocalDateTime lastStartedAt;
+
+    /** 最終実行終了日時 */
+    @Column(name = "last_finished_at")
+    private LocalDateTime lastFinishedAt;
+
+    /** 最終実行の所要時間（ミリ秒） */
+    @Column(name = "last_duration_ms")
+    private Long lastDurationMs;
+
+    /** 最終実行の処理件数 */
+    @Column(name = "last_processed_count")
+    private Integer lastProcessedCount;
+
+    /** 最終実行のエラー内容（成功時はnull） */
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    /** 累計実行回数 */
+    @Column(name = "run_count", nullable = false)
+    private Long runCount = 0L;
+}
@@ -0,0 +1,99 @@
+package com.farmeet.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stripe Webhookの受信箱（署名検証済みイベントを保存し、非同期で処理する）
+ */
+@Entity
+@Table(name = "stripe_webhook_events", indexes = {
+        @Index(name = "idx_stripe_webhook_events_status", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** StripeのイベントID（重複受信の排除に使用） */
+    @Column(name = "stripe_event_id", nullable = false, unique = true)
+    private String stripeEventId;
+
+    /** イベント種別（checkout.session.completed など） */
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    /** Checkout Session ID */
+    @Column(name = "session_id")
+    private String sessionId;
+
+    /** 処理先（予約決済 / ギフト券購入） */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Target target;
+
+    /** 受信したペイロード */
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.RECEIVED;
+
+    /** 処理試行回数 */
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    /** 次回処理可能日時（リトライ時のバックオフ） */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** 処理中ロックの期限（ワーカー停止時の回収用） */
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        receivedAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = receivedAt;
+        }
+    }
+
+    public enum Target {
+        /** 予約の決済 */
+        RESERVATION,
+        /** ギフト券の購入 */
+        GIFT_VOUCHER
+    }
+
+    public enum Status {
+        /** 受信済み（未処理） */
+        RECEIVED,
+        /** 処理中 */
+        PROCESSING,
+        /** 処理完了 */
+        PROCESSED,
+        /** 処理失敗（リトライ待ち） */
+        FAILED,
+        /** リトライ上限に達した */
+        DEAD
+    }
+}
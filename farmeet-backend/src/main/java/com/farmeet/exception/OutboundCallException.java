@@ -0,0 +1,18 @@
+package com.farmeet.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 外部サービス呼び出しのタイムアウト・同時実行数超過
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OutboundCallException extends RuntimeException {
+    public OutboundCallException(String message) {
+        super(message);
+    }
+
+    public OutboundCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.BatchCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BatchCheckpointRepository extends JpaRepository<BatchCheckpoint, String> {
+}
@@ -0,0 +1,17 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.DailyActiveUserSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyActiveUserSketchRepository extends JpaRepository<DailyActiveUserSketch, Long> {
+
+    Optional<DailyActiveUserSketch> findByActivityDate(LocalDate activityDate);
+
+    List<DailyActiveUserSketch> findByActivityDateBetween(LocalDate from, LocalDate to);
+}
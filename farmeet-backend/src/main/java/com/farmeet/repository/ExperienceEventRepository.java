@@ -3,6 +3,7 @@ package com.farmeet.repository;
 import com.farmeet.entity.ExperienceEvent;
 import com.farmeet.entity.Farm;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -58,4 +59,21 @@ public interface ExperienceEventRepository extends JpaRepository<ExperienceEvent
         @Query("SELECT e FROM ExperienceEvent e WHERE e.farm.id = :farmId AND e.eventDate > :now")
         List<ExperienceEvent> findByFarmIdAndEventDateAfter(@Param("farmId") Long farmId,
                         @Param("now") LocalDateTime now);
+
+        // 空き枠数を加算（キャンセル時のスロット返却用）
+        @Modifying
+        @Query("UPDATE ExperienceEvent e SET e.availableSlots = e.availableSlots + :count WHERE e.id = :eventId")
+        int incrementAvailableSlots(@Param("eventId") Long eventId, @Param("count") int count);
+
+        // 空き枠数が足りる場合のみ減算（予約作成時のスロット確保用、足りない場合は0件更新）
+        @Modifying
+        @Query("UPDATE ExperienceEvent e SET e.availableSlots = e.availableSlots - :count " +
+                        "WHERE e.id = :eventId AND e.availableSlots >= :count")
+        int decrementAvailableSlotsIfEnough(@Param("eventId") Long eventId, @Param("count") int count);
+
+        // 予約件数を増減（人気ランキング用のカウンター）
+        @Modifying
+        @Query(value = "UPDATE experience_events SET reservation_count = reservation_count + :delta WHERE id = :eventId",
+                        nativeQuery = true)
+        int adjustReservationCount(@Param("eventId") Long eventId, @Param("delta") int delta);
 }
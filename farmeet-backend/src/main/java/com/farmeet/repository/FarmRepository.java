@@ -3,6 +3,9 @@ package com.farmeet.repository;
 import com.farmeet.entity.Farm;
 import com.farmeet.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -28,4 +31,26 @@ public interface FarmRepository extends JpaRepository<Farm, Long> {
 
     // 表示順で並び替え（トップページ用）
     List<Farm> findAllByOrderByDisplayOrderAsc();
+
+    /**
+     * 評価ごとのレビュー件数を増減（追加・削除する評価がない場合は0を渡す）
+     */
+    @Modifying
+    @Query(value = "UPDATE farms SET " +
+            "rating_count_1 = rating_count_1 + CASE WHEN :added = 1 THEN 1 ELSE 0 END - CASE WHEN :removed = 1 THEN 1 ELSE 0 END, " +
+            "rating_count_2 = rating_count_2 + CASE WHEN :added = 2 THEN 1 ELSE 0 END - CASE WHEN :removed = 2 THEN 1 ELSE 0 END, " +
+            "rating_count_3 = rating_count_3 + CASE WHEN :added = 3 THEN 1 ELSE 0 END - CASE WHEN :removed = 3 THEN 1 ELSE 0 END, " +
+            "rating_count_4 = rating_count_4 + CASE WHEN :added = 4 THEN 1 ELSE 0 END - CASE WHEN :removed = 4 THEN 1 ELSE 0 END, " +
+            "rating_count_5 = rating_count_5 + CASE WHEN :added = 5 THEN 1 ELSE 0 END - CASE WHEN :removed = 5 THEN 1 ELSE 0 END " +
+            "WHERE id = :farmId", nativeQuery = true)
+    int applyRatingChange(@Param("farmId") Long farmId, @Param("added") int added, @Param("removed") int removed);
+
+    /**
+     * 複数農園の評価ごとのレビュー件数
+     *
+     * @return [farmId, count1, count2, count3, count4, count5]
+     */
+    @Query("SELECT f.id, f.ratingCount1, f.ratingCount2, f.ratingCount3, f.ratingCount4, f.ratingCount5 " +
+            "FROM Farm f WHERE f.id IN :farmIds")
+    List<Object[]> findRatingCounts(@Param("farmIds") List<Long> farmIds);
 }
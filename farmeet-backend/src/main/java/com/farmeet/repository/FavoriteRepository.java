@@ -1,8 +1,10 @@
 package com.farmeet.repository;
 
+import com.farmeet.dto.FavoriteFarmDto;
 import com.farmeet.entity.Farm;
 import com.farmeet.entity.Favorite;
 import com.farmeet.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,7 +16,15 @@ import java.util.Optional;
 @Repository
 public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
-    List<Favorite> findByUserOrderByCreatedAtDesc(User user);
+    /**
+     * お気に入り農園のカード表示項目を新しい順に取得（農園の画像・特徴・オーナーは読み込まない）
+     */
+    @Query("SELECT new com.farmeet.dto.FavoriteFarmDto(f.id, fm.id, fm.publicId, fm.name, fm.location, " +
+            "fm.imageUrl, f.createdAt, fm.ratingCount1, fm.ratingCount2, fm.ratingCount3, fm.ratingCount4, " +
+            "fm.ratingCount5) " +
+            "FROM Favorite f JOIN f.farm fm WHERE f.user.id = :userId AND f.id < :beforeId ORDER BY f.id DESC")
+    List<FavoriteFarmDto> findFarmCardsByUserId(@Param("userId") Long userId, @Param("beforeId") Long beforeId,
+            Pageable pageable);
 
     Optional<Favorite> findByUserAndFarm(User user, Farm farm);
 
@@ -22,6 +32,9 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
     void deleteByUserAndFarm(User user, Farm farm);
 
-    @Query("SELECT f.farm.id FROM Favorite f WHERE f.user = :user AND f.farm.id IN :farmIds")
-    List<Long> findFarmIdsByUserAndFarmIdIn(@Param("user") User user, @Param("farmIds") List<Long> farmIds);
+    /**
+     * ユーザーのお気に入り農園ID（キャッシュの読み込み用）
+     */
+    @Query("SELECT f.farm.id FROM Favorite f WHERE f.user.id = :userId")
+    List<Long> findFarmIdsByUserId(@Param("userId") Long userId);
 }
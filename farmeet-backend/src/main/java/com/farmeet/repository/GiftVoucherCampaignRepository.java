@@ -0,0 +1,43 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.GiftVoucherCampaign;
+import com.farmeet.entity.GiftVoucherCampaign.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface GiftVoucherCampaignRepository extends JpaRepository<GiftVoucherCampaign, Long> {
+
+    List<GiftVoucherCampaign> findTop50ByOrderByIdDesc();
+
+    /** 再開が必要なキャンペーンID（発行待ち、または処理中のまま更新が止まっているもの） */
+    @Query("SELECT c.id FROM GiftVoucherCampaign c WHERE c.status = :pending " +
+            "OR (c.status = :running AND c.updatedAt < :staleBefore) ORDER BY c.id")
+    List<Long> findResumableIds(
+            @Param("pending") Status pending,
+            @Param("running") Status running,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    /** キャンペーンを処理中としてロック（他ノードが処理中なら0件更新） */
+    @Modifying
+    @Query("UPDATE GiftVoucherCampaign c SET c.status = :running, c.updatedAt = :now, " +
+            "c.startedAt = COALESCE(c.startedAt, :now) " +
+            "WHERE c.id = :id AND (c.status = :pending OR (c.status = :running AND c.updatedAt < :staleBefore))")
+    int claim(@Param("id") Long id,
+            @Param("pending") Status pending,
+            @Param("running") Status running,
+            @Param("now") LocalDateTime now,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    /** 発行済み枚数を加算 */
+    @Modifying
+    @Query("UPDATE GiftVoucherCampaign c SET c.issuedCount = c.issuedCount + :count, c.updatedAt = :now " +
+            "WHERE c.id = :id")
+    int addIssued(@Param("id") Long id, @Param("count") int count, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,41 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.GiftVoucherLedgerEntry;
+import com.farmeet.entity.GiftVoucherLedgerEntry.EntryType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GiftVoucherLedgerRepository extends JpaRepository<GiftVoucherLedgerEntry, Long> {
+
+    boolean existsByVoucherIdAndPaymentIdAndEntryType(Long voucherId, Long paymentId, EntryType entryType);
+
+    List<GiftVoucherLedgerEntry> findByVoucherIdOrderByIdAsc(Long voucherId);
+
+    /**
+     * ギフト券ごとの利用額・払い戻し額の合計
+     *
+     * @return [voucherId, debitTotal, creditTotal]
+     */
+    @Query("SELECT e.voucherId, " +
+            "SUM(CASE WHEN e.entryType = :debit THEN e.amount ELSE 0 END), " +
+            "SUM(CASE WHEN e.entryType = :credit THEN e.amount ELSE 0 END) " +
+            "FROM GiftVoucherLedgerEntry e WHERE e.voucherId IN :voucherIds GROUP BY e.voucherId")
+    List<Object[]> sumByVoucherIds(
+            @Param("voucherIds") Collection<Long> voucherIds,
+            @Param("debit") EntryType debit,
+            @Param("credit") EntryType credit);
+
+    /**
+     * ギフト券の正味の利用額（利用 - 払い戻し）
+     */
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.entryType = :debit THEN e.amount ELSE -e.amount END), 0) " +
+            "FROM GiftVoucherLedgerEntry e WHERE e.voucherId = :voucherId")
+    BigDecimal netDebit(@Param("voucherId") Long voucherId, @Param("debit") EntryType debit);
+}
@@ -1,8 +1,10 @@
 package com.farmeet.repository;
 
 import com.farmeet.entity.GiftVoucher;
+import com.farmeet.entity.GiftVoucherStatus;
 import com.farmeet.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -48,9 +50,52 @@ public interface GiftVoucherRepository extends JpaRepository<GiftVoucher, Long>
         Optional<GiftVoucher> findByStripeCheckoutSessionId(String sessionId);
 
         /**
-         * 期限切れのギフト券を一括更新するためのクエリ用
+         * 期限切れのギフト券を一括でEXPIREDに更新
          */
-        @Query("SELECT g FROM GiftVoucher g WHERE g.status IN ('ACTIVE', 'REDEEMED') " +
+        @Modifying
+        @Query("UPDATE GiftVoucher g SET g.status = :expired WHERE g.status IN :statuses " +
                         "AND g.expiresAt IS NOT NULL AND g.expiresAt < :now")
-        List<GiftVoucher> findExpiredVouchers(@Param("now") LocalDateTime now);
+        int expireVouchers(
+                        @Param("statuses") List<GiftVoucherStatus> statuses,
+                        @Param("expired") GiftVoucherStatus expired,
+                        @Param("now") LocalDateTime now);
+
+        /**
+         * 残高が足りる場合のみ残高を減らす（足りない・使用不可の場合は0件更新）
+         * 残高が0になった場合は使用済みにする
+         */
+        @Modifying
+        @Query("UPDATE GiftVoucher g SET g.balance = g.balance - :amount, " +
+                        "g.status = CASE WHEN g.balance - :amount <= 0 THEN :used ELSE g.status END " +
+                        "WHERE g.id = :id AND g.balance >= :amount AND g.status IN :usable " +
+                        "AND (g.expiresAt IS NULL OR g.expiresAt > :now)")
+        int debitBalance(
+                        @Param("id") Long id,
+                        @Param("amount") BigDecimal amount,
+                        @Param("usable") List<GiftVoucherStatus> usable,
+                        @Param("used") GiftVoucherStatus used,
+                        @Param("now") LocalDateTime now);
+
+        /**
+         * 残高を払い戻す（額面を超える場合は0件更新）
+         * 使用済みになっていた場合は登録済みに戻す
+         */
+        @Modifying
+        @Query("UPDATE GiftVoucher g SET g.balance = g.balance + :amount, " +
+                        "g.status = CASE WHEN g.status = :used THEN :redeemed ELSE g.status END " +
+                        "WHERE g.id = :id AND g.balance + :amount <= g.amount")
+        int creditBalance(
+                        @Param("id") Long id,
+                        @Param("amount") BigDecimal amount,
+                        @Param("used") GiftVoucherStatus used,
+                        @Param("redeemed") GiftVoucherStatus redeemed);
+
+        /**
+         * ステータス・無料発行フラグごとの件数と額面・残高の合計
+         *
+         * @return [status, freeIssue, count, amountTotal, balanceTotal]
+         */
+        @Query("SELECT g.status, g.freeIssue, COUNT(g), COALESCE(SUM(g.amount), 0), COALESCE(SUM(g.balance), 0) " +
+                        "FROM GiftVoucher g GROUP BY g.status, g.freeIssue")
+        List<Object[]> summarizeByStatus();
 }
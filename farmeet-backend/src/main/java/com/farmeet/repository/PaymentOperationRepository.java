@@ -0,0 +1,62 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.PaymentOperation;
+import com.farmeet.entity.PaymentOperation.OperationType;
+import com.farmeet.entity.PaymentOperation.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentOperationRepository extends JpaRepository<PaymentOperation, Long> {
+
+    /** 決済情報と一緒に取得（トランザクション外で外部APIを呼び出すため） */
+    @Query("SELECT o FROM PaymentOperation o JOIN FETCH o.payment WHERE o.id = :id")
+    Optional<PaymentOperation> findWithPaymentById(@Param("id") Long id);
+
+    /** 決済に対する未完了の操作を取得（二重返金の防止） */
+    Optional<PaymentOperation> findFirstByPaymentIdAndOperationTypeAndStatusIn(
+            Long paymentId, OperationType operationType, List<Status> statuses);
+
+    /** 外部サービス側のIDから操作の決済IDを取得（置き換え済みのCheckout Sessionの完了通知用） */
+    @Query("SELECT o.payment.id FROM PaymentOperation o WHERE o.operationType = :type AND o.externalId = :externalId")
+    List<Long> findPaymentIdsByExternalId(
+            @Param("type") OperationType type,
+            @Param("externalId") String externalId);
+
+    /** 再実行対象の操作IDを取得（一定時間以上更新のない未完了・失敗の操作） */
+    @Query("SELECT o.id FROM PaymentOperation o WHERE o.operationType = :type AND o.status IN :statuses " +
+            "AND o.updatedAt < :before AND o.attempts < :maxAttempts ORDER BY o.id")
+    List<Long> findRetryableIds(
+            @Param("type") OperationType type,
+            @Param("statuses") List<Status> statuses,
+            @Param("before") LocalDateTime before,
+            @Param("maxAttempts") int maxAttempts,
+            Pageable pageable);
+
+    /** 操作を完了にする（完了済みなら0件更新） */
+    @Modifying
+    @Query("UPDATE PaymentOperation o SET o.status = :succeeded, o.externalId = :externalId, " +
+            "o.lastError = NULL, o.updatedAt = :now WHERE o.id = :id AND o.status <> :succeeded")
+    int markSucceeded(@Param("id") Long id,
+            @Param("succeeded") Status succeeded,
+            @Param("externalId") String externalId,
+            @Param("now") LocalDateTime now);
+
+    /** 操作の失敗を記録 */
+    @Modifying
+    @Query("UPDATE PaymentOperation o SET o.status = :failed, o.attempts = o.attempts + 1, " +
+            "o.lastError = :error, o.updatedAt = :now WHERE o.id = :id AND o.status <> :succeeded")
+    int markFailed(@Param("id") Long id,
+            @Param("failed") Status failed,
+            @Param("succeeded") Status succeeded,
+            @Param("error") String error,
+            @Param("now") LocalDateTime now);
+}
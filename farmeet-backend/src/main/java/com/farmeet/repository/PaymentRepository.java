@@ -1,11 +1,18 @@
 package com.farmeet.repository;
 
 import com.farmeet.entity.Payment;
+import com.farmeet.entity.PaymentMethod;
 import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,7 +29,60 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     List<Payment> findByPaymentStatus(PaymentStatus status);
 
-    /** 振込期限を過ぎた未決済の銀行振込を取得 */
-    List<Payment> findByPaymentStatusAndTransferDeadlineBefore(
-            PaymentStatus status, LocalDateTime deadline);
+    /**
+     * 予約の決済が確保しているギフト券（キャンセル・期限切れ時の払い戻し用）
+     *
+     * @return [paymentId, voucherId, voucherAmount]
+     */
+    @Query("SELECT p.id, p.usedVoucher.id, p.voucherAmount FROM Payment p WHERE p.reservation.id IN :reservationIds " +
+            "AND p.usedVoucher IS NOT NULL AND p.voucherAmount > 0 AND p.paymentStatus IN :statuses")
+    List<Object[]> findVoucherHolds(
+            @Param("reservationIds") Collection<Long> reservationIds,
+            @Param("statuses") List<PaymentStatus> statuses);
+
+    /**
+     * ギフト券の残高から引き落とせなかった決済（新しい順）
+     *
+     * @return [paymentId, reservationId, voucherId, voucherShortfall, paidAt]
+     */
+    @Query("SELECT p.id, p.reservation.id, p.usedVoucher.id, p.voucherShortfall, p.paidAt FROM Payment p " +
+            "WHERE p.voucherShortfall IS NOT NULL ORDER BY p.id DESC")
+    List<Object[]> findVoucherShortfalls(Pageable pageable);
+
+    /**
+     * 未決済の場合のみ決済を完了にする（条件付き更新で完了処理の重複を防止）
+     * 支払われたCheckout Sessionを記録する（置き換え前のセッションで支払われた場合もそのセッションにする）
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.paymentStatus = :newStatus, p.stripeCheckoutSessionId = :sessionId, " +
+            "p.stripePaymentIntentId = :paymentIntentId, p.paidAt = :now, p.updatedAt = :now " +
+            "WHERE p.id = :id AND p.paymentStatus = :status")
+    int completeIfPending(
+            @Param("id") Long id,
+            @Param("status") PaymentStatus status,
+            @Param("newStatus") PaymentStatus newStatus,
+            @Param("sessionId") String sessionId,
+            @Param("paymentIntentId") String paymentIntentId,
+            @Param("now") LocalDateTime now);
+
+    /** 振込期限を過ぎた未決済の銀行振込を一括で失効 */
+    @Modifying
+    @Query("UPDATE Payment p SET p.paymentStatus = :newStatus, p.updatedAt = :now " +
+            "WHERE p.paymentMethod = :method AND p.paymentStatus = :status AND p.transferDeadline < :now")
+    int lapseOverdueTransfers(
+            @Param("method") PaymentMethod method,
+            @Param("status") PaymentStatus status,
+            @Param("newStatus") PaymentStatus newStatus,
+            @Param("now") LocalDateTime now);
+
+    /** 照合対象の決済をID順に取得（キーセットページング） */
+    @Query("SELECT p.id, p.stripeCheckoutSessionId, p.paymentStatus, p.amount, p.refundedAmount, " +
+            "r.id, r.status, v.id FROM Payment p JOIN p.reservation r LEFT JOIN p.usedVoucher v " +
+            "WHERE p.paymentMethod = :method AND p.paymentStatus IN :statuses " +
+            "AND p.stripeCheckoutSessionId IS NOT NULL AND p.id > :afterId ORDER BY p.id")
+    List<Object[]> findReconciliationRows(
+            @Param("method") PaymentMethod method,
+            @Param("statuses") List<PaymentStatus> statuses,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
 }
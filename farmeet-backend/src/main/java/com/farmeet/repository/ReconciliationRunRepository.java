@@ -0,0 +1,13 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    List<ReconciliationRun> findTop20ByOrderByIdDesc();
+}
@@ -1,8 +1,14 @@
 package com.farmeet.repository;
 
+import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentStatus;
 import com.farmeet.entity.Reservation;
 import com.farmeet.entity.Reservation.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,18 +26,6 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
         @Query("SELECT r FROM Reservation r WHERE r.event.farm.owner.id = :ownerId ORDER BY r.createdAt DESC")
         List<Reservation> findByFarmOwnerId(@Param("ownerId") Long ownerId);
 
-        // イベント終了後のCONFIRMED予約を検索（スケジューラー用）
-        @Query("SELECT r FROM Reservation r WHERE r.status = :status AND r.event.eventDate < :now")
-        List<Reservation> findByStatusAndEventDateBefore(
-                        @Param("status") ReservationStatus status,
-                        @Param("now") LocalDateTime now);
-
-        // イベント開始が指定時刻より前の未決済予約を検索（自動キャンセル用）
-        @Query("SELECT r FROM Reservation r WHERE r.status IN :statuses AND r.event.eventDate < :deadline")
-        List<Reservation> findPendingByEventDateBefore(
-                        @Param("statuses") List<ReservationStatus> statuses,
-                        @Param("deadline") LocalDateTime deadline);
-
         // ユーザーが特定の農園で体験済みの予約があるかチェック
         @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.user.id = :userId AND r.event.farm.id = :farmId AND r.status = :status")
         boolean existsByUserIdAndFarmIdAndStatus(
@@ -39,12 +33,6 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
                         @Param("farmId") Long farmId,
                         @Param("status") ReservationStatus status);
 
-        // 支払い期限切れの予約を検索（自動キャンセル用）
-        @Query("SELECT r FROM Reservation r WHERE r.status IN :statuses AND r.createdAt < :deadline")
-        List<Reservation> findExpiredPendingPaymentReservations(
-                        @Param("statuses") List<ReservationStatus> statuses,
-                        @Param("deadline") LocalDateTime deadline);
-
         // アクティブな予約を取得（CONFIRMED, PENDING_PAYMENT, AWAITING_TRANSFER）
         @Query("SELECT r FROM Reservation r WHERE r.user.id = :userId AND r.status IN :statuses ORDER BY r.createdAt DESC")
         List<Reservation> findActiveByUserId(
@@ -58,4 +46,72 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
                         @Param("statuses") List<ReservationStatus> statuses);
 
         Optional<Reservation> findByInviteCode(String inviteCode);
+
+        // イベント終了後の予約IDをID順に取得（キーセットページング、スケジューラー用）
+        @Query("SELECT r.id FROM Reservation r WHERE r.status = :status AND r.id > :afterId " +
+                        "AND r.event.id IN (SELECT e.id FROM ExperienceEvent e WHERE e.eventDate < :now) " +
+                        "ORDER BY r.id")
+        List<Long> findIdsForPastEvents(
+                        @Param("status") ReservationStatus status,
+                        @Param("now") LocalDateTime now,
+                        @Param("afterId") Long afterId,
+                        Pageable pageable);
+
+        // 支払い期限切れの未決済予約IDをID順に取得（キーセットページング、自動キャンセル用）
+        @Query("SELECT r.id FROM Reservation r " +
+                        "WHERE r.status IN :statuses AND r.createdAt < :now AND r.id > :afterId " +
+                        "AND (r.createdAt < :createdDeadline " +
+                        "OR r.event.id IN (SELECT e.id FROM ExperienceEvent e WHERE e.eventDate < :eventDeadline)) " +
+                        "ORDER BY r.id")
+        List<Long> findExpiredPendingIds(
+                        @Param("statuses") List<ReservationStatus> statuses,
+                        @Param("now") LocalDateTime now,
+                        @Param("createdDeadline") LocalDateTime createdDeadline,
+                        @Param("eventDeadline") LocalDateTime eventDeadline,
+                        @Param("afterId") Long afterId,
+                        Pageable pageable);
+
+        // 指定予約のうち対象ステータスのものを行ロックして取得（ID・イベントID・人数、スロット返却用）
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT r.id, r.event.id, r.numberOfPeople FROM Reservation r " +
+                        "WHERE r.id IN :ids AND r.status IN :statuses ORDER BY r.id")
+        List<Object[]> lockByIdsAndStatusIn(
+                        @Param("ids") List<Long> ids,
+                        @Param("statuses") List<ReservationStatus> statuses);
+
+        // 指定予約のうち対象ステータスのものを一括更新
+        @Modifying
+        @Query("UPDATE Reservation r SET r.status = :newStatus WHERE r.id IN :ids AND r.status IN :statuses")
+        int bulkUpdateStatusByIds(
+                        @Param("ids") List<Long> ids,
+                        @Param("statuses") List<ReservationStatus> statuses,
+                        @Param("newStatus") ReservationStatus newStatus);
+
+        // 未決済予約の期限計算に必要な項目のみ取得（期限スケジューラーの起動時ロード用）
+        @Query("SELECT r.id, r.createdAt, r.event.eventDate FROM Reservation r WHERE r.status IN :statuses")
+        List<Object[]> findPaymentDeadlineRows(@Param("statuses") List<ReservationStatus> statuses);
+
+        // 予約のイベントIDと人数を取得（スロット返却用）
+        @Query("SELECT r.event.id, r.numberOfPeople FROM Reservation r WHERE r.id = :id")
+        List<Object[]> findEventIdAndPeopleById(@Param("id") Long id);
+
+        // 未決済のままの場合のみステータスを更新（条件付き更新で二重キャンセルを防止）
+        @Modifying
+        @Query("UPDATE Reservation r SET r.status = :newStatus WHERE r.id = :id AND r.status IN :statuses")
+        int updateStatusIfIn(
+                        @Param("id") Long id,
+                        @Param("statuses") List<ReservationStatus> statuses,
+                        @Param("newStatus") ReservationStatus newStatus);
+
+        // 振込期限を過ぎた銀行振込の振込待ち予約を行ロックしてID順に取得（ID・イベントID・人数、スロット返却用）
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT r.id, r.event.id, r.numberOfPeople FROM Reservation r WHERE r.status = :status " +
+                        "AND r.id IN (SELECT p.reservation.id FROM Payment p WHERE p.paymentMethod = :method " +
+                        "AND p.paymentStatus = :paymentStatus AND p.transferDeadline < :now) ORDER BY r.id")
+        List<Object[]> lockOverdueTransfers(
+                        @Param("status") ReservationStatus status,
+                        @Param("method") PaymentMethod method,
+                        @Param("paymentStatus") PaymentStatus paymentStatus,
+                        @Param("now") LocalDateTime now,
+                        Pageable pageable);
 }
@@ -3,7 +3,10 @@ package com.farmeet.repository;
 import com.farmeet.entity.Farm;
 import com.farmeet.entity.Review;
 import com.farmeet.entity.User;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,18 +17,29 @@ import java.util.Optional;
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
 
-    List<Review> findByFarmOrderByCreatedAtDesc(Farm farm);
+    /**
+     * 農園のレビューを新しい順にキーセットページング（投稿者も同時に取得）
+     */
+    @Query("SELECT r FROM Review r JOIN FETCH r.user WHERE r.farm.id = :farmId AND r.id < :beforeId " +
+            "ORDER BY r.id DESC")
+    List<Review> findPageByFarmId(@Param("farmId") Long farmId, @Param("beforeId") Long beforeId,
+            Pageable pageable);
 
     Optional<Review> findByUserAndFarm(User user, Farm farm);
 
-    boolean existsByUserAndFarm(User user, Farm farm);
-
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.farm = :farm")
-    Double getAverageRatingByFarm(@Param("farm") Farm farm);
+    /**
+     * ユーザーの農園へのレビューを行ロックして取得（同じレビューの更新・削除による評価件数の増減を直列にする）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.user = :user AND r.farm = :farm")
+    Optional<Review> lockByUserAndFarm(@Param("user") User user, @Param("farm") Farm farm);
 
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.farm = :farm")
-    Long getReviewCountByFarm(@Param("farm") Farm farm);
+    /**
+     * レビューを行ロックして取得
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> lockById(@Param("id") Long id);
 
-    @Query("SELECT r.farm.id, AVG(r.rating), COUNT(r) FROM Review r WHERE r.farm.id IN :farmIds GROUP BY r.farm.id")
-    List<Object[]> getAverageRatingsForFarms(@Param("farmIds") List<Long> farmIds);
+    boolean existsByUserAndFarm(User user, Farm farm);
 }
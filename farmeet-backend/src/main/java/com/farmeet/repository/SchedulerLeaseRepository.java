@@ -0,0 +1,52 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    List<SchedulerLease> findAllByOrderByJobNameAsc();
+
+    /**
+     * リース行を作成（既に存在する場合は一意制約違反）
+     */
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_leases (job_name, locked_until, run_count) VALUES (:jobName, :until, 0)",
+            nativeQuery = true)
+    int insertLease(@Param("jobName") String jobName, @Param("until") LocalDateTime until);
+
+    /**
+     * 期限切れのリースを取得（他ノードが保持中なら0件更新）
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.lockedBy = :owner, l.lockedUntil = :until, l.lastStartedAt = :now " +
+            "WHERE l.jobName = :jobName AND l.lockedUntil <= :now")
+    int tryAcquire(@Param("jobName") String jobName,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until);
+
+    /**
+     * リースを解放し、実行結果を記録
+     */
+    @Modifying
+    @Query("UPDATE SchedulerLease l SET l.lockedUntil = :until, l.lastFinishedAt = :now, " +
+            "l.lastDurationMs = :durationMs, l.lastProcessedCount = :processedCount, l.lastError = :error, " +
+            "l.runCount = l.runCount + 1 " +
+            "WHERE l.jobName = :jobName AND l.lockedBy = :owner")
+    int release(@Param("jobName") String jobName,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until,
+            @Param("durationMs") Long durationMs,
+            @Param("processedCount") Integer processedCount,
+            @Param("error") String error);
+}
@@ -0,0 +1,62 @@
+package com.farmeet.repository;
+
+import com.farmeet.entity.StripeWebhookEvent;
+import com.farmeet.entity.StripeWebhookEvent.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+
+    boolean existsByStripeEventId(String stripeEventId);
+
+    long countByStatus(Status status);
+
+    /**
+     * 処理可能なイベントIDを取得（未処理・リトライ待ち・ロック期限切れ）
+     */
+    @Query("SELECT e.id FROM StripeWebhookEvent e " +
+            "WHERE (e.status IN :readyStatuses AND e.nextAttemptAt <= :now) " +
+            "OR (e.status = :processing AND e.lockedUntil < :now) ORDER BY e.id")
+    List<Long> findReadyIds(
+            @Param("readyStatuses") List<Status> readyStatuses,
+            @Param("processing") Status processing,
+            @Param("now") LocalDateTime now,
+            Pageable pageable);
+
+    /**
+     * イベントを処理中としてロック（他ワーカー・他ノードが取得済みなら0件更新）
+     */
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.status = :processing, e.lockedUntil = :lockedUntil, " +
+            "e.attempts = e.attempts + 1 " +
+            "WHERE e.id = :id AND ((e.status IN :readyStatuses AND e.nextAttemptAt <= :now) " +
+            "OR (e.status = :processing AND e.lockedUntil < :now))")
+    int claim(@Param("id") Long id,
+            @Param("readyStatuses") List<Status> readyStatuses,
+            @Param("processing") Status processing,
+            @Param("now") LocalDateTime now,
+            @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    /**
+     * 処理結果を書き込む（取得時のロック期限が変わっていない場合のみ。期限切れ後に他ワーカーが再取得していれば0件更新）
+     */
+    @Modifying
+    @Query("UPDATE StripeWebhookEvent e SET e.status = :status, e.lockedUntil = NULL, " +
+            "e.processedAt = :processedAt, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError " +
+            "WHERE e.id = :id AND e.status = :processing AND e.lockedUntil = :claimedUntil")
+    int recordResult(@Param("id") Long id,
+            @Param("processing") Status processing,
+            @Param("claimedUntil") LocalDateTime claimedUntil,
+            @Param("status") Status status,
+            @Param("processedAt") LocalDateTime processedAt,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError);
+}
@@ -0,0 +1,38 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.service.ActiveUserService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * アクティブユーザーのスケッチの取り込み
+ *
+ * 起動時にスケッチが空ならリースを取得した1ノードだけがアクティビティログから作り、
+ * 各ノードは自分の追加分を定期的に保存済みスケッチへ取り込む。
+ */
+@Component
+public class ActiveUserScheduler {
+
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final ActiveUserService activeUserService;
+
+    public ActiveUserScheduler(ActiveUserService activeUserService) {
+        this.activeUserService = activeUserService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        activeUserService.backfillExclusively(LOCK_AT_LEAST_FOR);
+    }
+
+    @Scheduled(fixedDelayString = "${active-users.flush-interval-ms:60000}",
+            initialDelayString = "${active-users.flush-interval-ms:60000}")
+    public void flushSketches() {
+        activeUserService.flush();
+    }
+}
@@ -0,0 +1,32 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.service.ActivityLogArchiveService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 保存期間を過ぎたアクティビティログの定期アーカイブ
+ *
+ * リースを取得した1ノードだけが実行する。
+ */
+@Component
+public class ActivityLogArchiveScheduler {
+
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final ActivityLogArchiveService activityLogArchiveService;
+
+    public ActivityLogArchiveScheduler(ActivityLogArchiveService activityLogArchiveService) {
+        this.activityLogArchiveService = activityLogArchiveService;
+    }
+
+    /**
+     * 毎日4時に実行
+     */
+    @Scheduled(cron = "0 0 4 * * *")
+    public void archiveExpiredLogs() {
+        activityLogArchiveService.archiveExclusively(LOCK_AT_LEAST_FOR);
+    }
+}
@@ -0,0 +1,42 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.service.ActivityRollupService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * 日別アクティビティ集計の取り込みと修復
+ *
+ * 起動時に集計が空なら全期間を取り込み、毎晩前日以降を作り直す。リースを取得した1ノードだけが実行する。
+ */
+@Component
+public class ActivityRollupScheduler {
+
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final ActivityRollupService activityRollupService;
+
+    public ActivityRollupScheduler(ActivityRollupService activityRollupService) {
+        this.activityRollupService = activityRollupService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (activityRollupService.isEmpty()) {
+            activityRollupService.rebuildExclusively(null, LOCK_AT_LEAST_FOR);
+        }
+    }
+
+    /**
+     * 毎日2時15分に実行
+     */
+    @Scheduled(cron = "0 15 2 * * *")
+    public void repairRecentDays() {
+        activityRollupService.rebuildExclusively(LocalDate.now().minusDays(1), LOCK_AT_LEAST_FOR);
+    }
+}
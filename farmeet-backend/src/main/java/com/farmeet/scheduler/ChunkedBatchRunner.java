@@ -0,0 +1,126 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.entity.BatchCheckpoint;
+import com.farmeet.repository.BatchCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * キーセットページングによるチャンク単位のバッチ実行
+ *
+ * IDの昇順にチャンクサイズ分ずつ読み込み、チャンクごとに1トランザクションで処理する。
+ * 処理結果とチェックポイント（最後に処理したID）は同じトランザクションでコミットされるため、
+ * 途中でクラッシュしても次回はチェックポイントの続きから再開する。
+ * 同一ジョブの同時実行は {@link SchedulerLockService} で防ぐ前提。
+ */
+@Component
+public class ChunkedBatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedBatchRunner.class);
+
+    private final BatchCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${scheduler.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public ChunkedBatchRunner(BatchCheckpointRepository checkpointRepository,
+            TransactionTemplate transactionTemplate) {
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 処理対象IDの読み込み（afterIdより大きいIDを昇順にlimit件）
+     */
+    @FunctionalInterface
+    public interface KeysetReader {
+        List<Long> nextIds(long afterId, int limit);
+    }
+
+    /**
+     * 1チャンク分の処理（処理件数を返す）。呼び出し元のトランザクション内で実行される
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor {
+        int process(List<Long> ids);
+    }
+
+    /**
+     * バッチを実行し、処理件数の合計を返す
+     */
+    public int run(String jobName, KeysetReader reader, ChunkProcessor processor) {
+        BatchCheckpoint checkpoint = transactionTemplate.execute(status -> begin(jobName));
+        long afterId = checkpoint.getLastProcessedId();
+        long processed = checkpoint.getProcessedCount();
+        if (afterId > 0) {
+            logger.info("Resuming batch {} after id {} ({} already processed)", jobName, afterId, processed);
+        }
+
+        int processedThisRun = 0;
+        while (true) {
+            List<Long> ids = reader.nextIds(afterId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long lastId = ids.get(ids.size() - 1);
+            long processedBefore = processed;
+            Integer count = transactionTemplate.execute(status -> {
+                int n = processor.process(ids);
+                saveProgress(jobName, lastId, processedBefore + n, BatchCheckpoint.Status.RUNNING);
+                return n;
+            });
+
+            int n = count != null ? count : 0;
+            processed += n;
+            processedThisRun += n;
+            afterId = lastId;
+
+            if (ids.size() < chunkSize) {
+                break;
+            }
+        }
+
+        long total = processed;
+        transactionTemplate.executeWithoutResult(
+                status -> saveProgress(jobName, 0L, total, BatchCheckpoint.Status.COMPLETED));
+        return processedThisRun;
+    }
+
+    private BatchCheckpoint begin(String jobName) {
+        BatchCheckpoint checkpoint = checkpointRepository.findById(jobName).orElse(null);
+        if (checkpoint != null && checkpoint.getStatus() == BatchCheckpoint.Status.RUNNING) {
+            // 前回の実行が中断されている
+            return checkpoint;
+        }
+
+        if (checkpoint == null) {
+            checkpoint = new BatchCheckpoint();
+            checkpoint.setJobName(jobName);
+        }
+        checkpoint.setLastProcessedId(0L);
+        checkpoint.setProcessedCount(0L);
+        checkpoint.setStatus(BatchCheckpoint.Status.RUNNING);
+        checkpoint.setStartedAt(LocalDateTime.now());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private void saveProgress(String jobName, long lastProcessedId, long processedCount,
+            BatchCheckpoint.Status status) {
+        BatchCheckpoint checkpoint = checkpointRepository.findById(jobName)
+                .orElseThrow(() -> new IllegalStateException("Checkpoint not found: " + jobName));
+        checkpoint.setLastProcessedId(lastProcessedId);
+        checkpoint.setProcessedCount(processedCount);
+        checkpoint.setStatus(status);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+}
@@ -0,0 +1,41 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.service.FarmRatingAggregateService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 農園の評価件数の定期再集計
+ *
+ * 起動時（件数が未集計の場合のみ、既存レビューの取り込み）と毎晩、リースを取得した1ノードだけが実行する。
+ */
+@Component
+public class FarmRatingScheduler {
+
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final FarmRatingAggregateService farmRatingAggregateService;
+
+    public FarmRatingScheduler(FarmRatingAggregateService farmRatingAggregateService) {
+        this.farmRatingAggregateService = farmRatingAggregateService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (farmRatingAggregateService.needsBackfill()) {
+            farmRatingAggregateService.rebuildExclusively(LOCK_AT_LEAST_FOR);
+        }
+    }
+
+    /**
+     * 毎日3時30分に実行
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void rebuildNightly() {
+        farmRatingAggregateService.rebuildExclusively(LOCK_AT_LEAST_FOR);
+    }
+}
@@ -0,0 +1,174 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.entity.Reservation;
+import com.farmeet.repository.ReservationRepository;
+import com.farmeet.service.ReservationExpiryService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未決済予約の支払い期限スケジューラー
+ *
+ * 予約ごとの期限（作成から48時間 / イベント開始3時間前の早い方）をDelayQueueで保持し、
+ * 期限ちょうどに1件ずつキャンセルする。起動時にDBから未決済予約を読み込み、
+ * 以降は予約作成・銀行振込開始時に登録される。
+ * 取りこぼしは {@link ReservationScheduler#cancelExpiredPendingPayments()} の定期スイープで回収する。
+ */
+@Component
+public class PaymentDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentDeadlineScheduler.class);
+
+    private final ReservationRepository reservationRepository;
+    private final ReservationExpiryService reservationExpiryService;
+
+    private final DelayQueue<Deadline> queue = new DelayQueue<>();
+    private final Map<Long, Deadline> scheduled = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    public PaymentDeadlineScheduler(ReservationRepository reservationRepository,
+            ReservationExpiryService reservationExpiryService) {
+        this.reservationRepository = reservationRepository;
+        this.reservationExpiryService = reservationExpiryService;
+    }
+
+    /**
+     * 支払い期限を計算（作成から48時間後とイベント開始3時間前の早い方）
+     */
+    public static LocalDateTime deadlineOf(LocalDateTime createdAt, LocalDateTime eventDate) {
+        LocalDateTime byCreation = createdAt.plusHours(48);
+        LocalDateTime byEvent = eventDate.minusHours(3);
+        return byCreation.isBefore(byEvent) ? byCreation : byEvent;
+    }
+
+    /**
+     * 起動時に未決済予約を読み込み、ワーカースレッドを開始
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        List<Object[]> rows = reservationRepository
+                .findPaymentDeadlineRows(ReservationExpiryService.PENDING_STATUSES);
+        for (Object[] row : rows) {
+            enqueue((Long) row[0], deadlineOf((LocalDateTime) row[1], (LocalDateTime) row[2]));
+        }
+
+        Thread thread = new Thread(this::runLoop, "payment-deadline-scheduler");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+
+        logger.info("Payment deadline scheduler started with {} pending reservations", rows.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 未決済予約の期限を登録（トランザクション中の場合はコミット後に登録）
+     */
+    public void schedule(Reservation reservation) {
+        Long reservationId = reservation.getId();
+        LocalDateTime createdAt = reservation.getCreatedAt() != null
+                ? reservation.getCreatedAt()
+                : LocalDateTime.now();
+        LocalDateTime deadline = deadlineOf(createdAt, reservation.getEvent().getEventDate());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(reservationId, deadline);
+                }
+            });
+        } else {
+            enqueue(reservationId, deadline);
+        }
+    }
+
+    /**
+     * 登録済みの期限数（監視用）
+     */
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    private void enqueue(Long reservationId, LocalDateTime deadline) {
+        Deadline next = new Deadline(reservationId, deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        Deadline previous = scheduled.putIfAbsent(reservationId, next);
+        if (previous == null) {
+            queue.add(next);
+        } else if (next.dueAtMillis < previous.dueAtMillis && scheduled.replace(reservationId, previous, next)) {
+            // より早い期限で再登録された場合は置き換える
+            queue.remove(previous);
+            queue.add(next);
+        }
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Deadline due;
+            try {
+                due = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (!scheduled.remove(due.reservationId, due)) {
+                continue;
+            }
+
+            try {
+                if (reservationExpiryService.expireIfPending(due.reservationId)) {
+                    logger.info("Auto-cancelled reservation {} at its payment deadline", due.reservationId);
+                }
+            } catch (Exception e) {
+                // 失敗した予約は定期スイープで回収される
+                logger.warn("Failed to expire reservation {}: {}", due.reservationId, e.getMessage());
+            }
+        }
+    }
+
+    private static final class Deadline implements Delayed {
+        private final Long reservationId;
+        private final long dueAtMillis;
+
+        private Deadline(Long reservationId, long dueAtMillis) {
+            this.reservationId = reservationId;
+            this.dueAtMillis = dueAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Deadline deadline) {
+                return Long.compare(dueAtMillis, deadline.dueAtMillis);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
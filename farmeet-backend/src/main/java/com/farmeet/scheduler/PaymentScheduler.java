@@ -0,0 +1,171 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.entity.GiftVoucherStatus;
+import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentOperation;
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.repository.GiftVoucherRepository;
+import com.farmeet.repository.PaymentOperationRepository;
+import com.farmeet.repository.PaymentRepository;
+import com.farmeet.repository.ReservationRepository;
+import com.farmeet.service.PaymentReconciliationService;
+import com.farmeet.service.PaymentService;
+import com.farmeet.service.ReservationExpiryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * ギフト券の有効期限切れ・銀行振込の期限切れの一括処理、失敗した返金の再実行、Stripeとの決済照合を行うスケジューラー
+ *
+ * 件数と所要時間は {@link SchedulerLockService} がジョブごとに記録する。
+ */
+@Component
+public class PaymentScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentScheduler.class);
+
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    /** 返金操作がこの時間以上更新されていなければ再実行する（実行中の操作と重ならないように） */
+    private static final Duration REFUND_RETRY_AFTER = Duration.ofMinutes(5);
+    private static final int REFUND_MAX_ATTEMPTS = 10;
+    private static final int REFUND_RETRY_BATCH = 100;
+    /** 期限切れの振込待ち予約を一度にロックする件数（IN句のパラメータ数を抑える） */
+    private static final int LAPSE_CHUNK_SIZE = 500;
+
+    private final GiftVoucherRepository giftVoucherRepository;
+    private final PaymentRepository paymentRepository;
+    private final ReservationRepository reservationRepository;
+    private final PaymentOperationRepository paymentOperationRepository;
+    private final PaymentService paymentService;
+    private final PaymentReconciliationService reconciliationService;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationExpiryService reservationExpiryService;
+
+    public PaymentScheduler(GiftVoucherRepository giftVoucherRepository,
+            PaymentRepository paymentRepository,
+            ReservationRepository reservationRepository,
+            PaymentOperationRepository paymentOperationRepository,
+            PaymentService paymentService,
+            PaymentReconciliationService reconciliationService,
+            SchedulerLockService schedulerLockService,
+            TransactionTemplate transactionTemplate,
+            ReservationExpiryService reservationExpiryService) {
+        this.giftVoucherRepository = giftVoucherRepository;
+        this.paymentRepository = paymentRepository;
+        this.reservationRepository = reservationRepository;
+        this.paymentOperationRepository = paymentOperationRepository;
+        this.paymentService = paymentService;
+        this.reconciliationService = reconciliationService;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = transactionTemplate;
+        this.reservationExpiryService = reservationExpiryService;
+    }
+
+    /**
+     * 毎時10分に実行
+     * 有効期限を過ぎたACTIVE/REDEEMEDのギフト券をEXPIREDに一括更新
+     */
+    @Scheduled(cron = "0 10 * * * *")
+    public void expireGiftVouchers() {
+        schedulerLockService.runExclusively("gift-voucher.expire", LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, () -> {
+            Integer count = transactionTemplate.execute(status -> giftVoucherRepository.expireVouchers(
+                    List.of(GiftVoucherStatus.ACTIVE, GiftVoucherStatus.REDEEMED),
+                    GiftVoucherStatus.EXPIRED,
+                    LocalDateTime.now()));
+
+            int expired = count != null ? count : 0;
+            if (expired > 0) {
+                logger.info("Expired {} gift vouchers", expired);
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * 毎時20分に実行
+     * 振込期限を過ぎた銀行振込を失効させ、振込待ちの予約をキャンセルしてスロットを戻す
+     */
+    @Scheduled(cron = "0 20 * * * *")
+    public void lapseOverdueBankTransfers() {
+        schedulerLockService.runExclusively("payment.lapse-overdue-transfers", LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR,
+                () -> {
+                    Integer count = transactionTemplate.execute(status -> lapseOverdueBankTransfersInTx());
+                    return count != null ? count : 0;
+                });
+    }
+
+    /**
+     * 毎時40分に実行
+     * 外部サービス呼び出しに失敗した、または結果を反映できなかった返金操作を再実行する
+     */
+    @Scheduled(cron = "0 40 * * * *")
+    public void retryPendingRefunds() {
+        schedulerLockService.runExclusively("payment.retry-refunds", LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, () -> {
+            List<Long> operationIds = paymentOperationRepository.findRetryableIds(
+                    PaymentOperation.OperationType.REFUND,
+                    List.of(PaymentOperation.Status.PENDING, PaymentOperation.Status.FAILED),
+                    LocalDateTime.now().minus(REFUND_RETRY_AFTER),
+                    REFUND_MAX_ATTEMPTS,
+                    PageRequest.of(0, REFUND_RETRY_BATCH));
+
+            int succeeded = 0;
+            for (Long operationId : operationIds) {
+                try {
+                    paymentService.executeRefund(operationId);
+                    succeeded++;
+                } catch (Exception e) {
+                    logger.warn("Refund operation {} failed again: {}", operationId, e.getMessage());
+                }
+            }
+            if (!operationIds.isEmpty()) {
+                logger.info("Retried {} refund operations ({} succeeded)", operationIds.size(), succeeded);
+            }
+            return succeeded;
+        });
+    }
+
+    /**
+     * 毎日3時に実行
+     * Stripeとローカルの決済状態を照合し、差分を修正・記録する
+     */
+    @Scheduled(cron = "0 0 3 * * *")
+    public void reconcileStripePayments() {
+        reconciliationService.runExclusively(LOCK_AT_LEAST_FOR);
+    }
+
+    private int lapseOverdueBankTransfersInTx() {
+        LocalDateTime now = LocalDateTime.now();
+
+        // 期限切れの振込待ち予約をロックしてから、ロックした予約だけをキャンセルしてスロットと予約件数を戻す
+        // （決済の失効より先に行う。ロック対象のサブクエリが未失効の決済を参照するため）
+        List<ReservationStatus> awaiting = List.of(ReservationStatus.AWAITING_TRANSFER);
+        int cancelledReservations = 0;
+        List<Object[]> locked;
+        do {
+            locked = reservationRepository.lockOverdueTransfers(ReservationStatus.AWAITING_TRANSFER,
+                    PaymentMethod.BANK_TRANSFER, PaymentStatus.PENDING, now, PageRequest.of(0, LAPSE_CHUNK_SIZE));
+            cancelledReservations += reservationExpiryService.cancelLocked(locked, awaiting);
+        } while (locked.size() == LAPSE_CHUNK_SIZE);
+
+        int lapsedPayments = paymentRepository.lapseOverdueTransfers(
+                PaymentMethod.BANK_TRANSFER, PaymentStatus.PENDING, PaymentStatus.CANCELLED, now);
+
+        if (lapsedPayments > 0) {
+            logger.info("Lapsed {} overdue bank transfers and cancelled {} reservations",
+                    lapsedPayments, cancelledReservations);
+        }
+        return lapsedPayments;
+    }
+}
@@ -0,0 +1,45 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.service.PopularityService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 人気ランキングの更新
+ *
+ * 予約件数のカウンターの修復は起動時と毎晩リースを取得した1ノードだけが行い、メモリ上のランキングは全ノードが定期的に作り直す。
+ */
+@Component
+public class PopularityScheduler {
+
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
+    private final PopularityService popularityService;
+
+    public PopularityScheduler(PopularityService popularityService) {
+        this.popularityService = popularityService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        popularityService.rebuildExclusively(LOCK_AT_LEAST_FOR);
+    }
+
+    /**
+     * 毎日3時45分に実行
+     */
+    @Scheduled(cron = "0 45 3 * * *")
+    public void rebuildNightly() {
+        popularityService.rebuildExclusively(LOCK_AT_LEAST_FOR);
+    }
+
+    @Scheduled(fixedDelayString = "${popularity.refresh-interval-ms:300000}",
+            initialDelayString = "${popularity.refresh-interval-ms:300000}")
+    public void refreshRankings() {
+        popularityService.refresh();
+    }
+}
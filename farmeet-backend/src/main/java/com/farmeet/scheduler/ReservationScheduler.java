@@ -1,101 +1,105 @@
 package com.farmeet.scheduler;
 
-import com.farmeet.entity.ExperienceEvent;
-import com.farmeet.entity.Reservation;
 import com.farmeet.entity.Reservation.ReservationStatus;
-import com.farmeet.repository.ExperienceEventRepository;
 import com.farmeet.repository.ReservationRepository;
+import com.farmeet.service.ReservationExpiryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * 予約ステータスの定期更新
+ *
+ * 全ノードで同じ時刻に起動し、{@link SchedulerLockService} のリースを取得した1ノードだけが実行する。
+ */
 @Component
 public class ReservationScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(ReservationScheduler.class);
 
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+    private static final Duration LOCK_AT_LEAST_FOR = Duration.ofMinutes(5);
+
     private final ReservationRepository reservationRepository;
-    private final ExperienceEventRepository eventRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final ChunkedBatchRunner chunkedBatchRunner;
+    private final ReservationExpiryService reservationExpiryService;
 
     public ReservationScheduler(ReservationRepository reservationRepository,
-            ExperienceEventRepository eventRepository) {
+            SchedulerLockService schedulerLockService,
+            ChunkedBatchRunner chunkedBatchRunner,
+            ReservationExpiryService reservationExpiryService) {
         this.reservationRepository = reservationRepository;
-        this.eventRepository = eventRepository;
+        this.schedulerLockService = schedulerLockService;
+        this.chunkedBatchRunner = chunkedBatchRunner;
+        this.reservationExpiryService = reservationExpiryService;
     }
 
     /**
-     * 1時間ごとに実行
-     * イベント終了後のCONFIRMED予約をCOMPLETEDに変更
+     * 毎時0分に実行
+     * イベント終了後のCONFIRMED予約をCOMPLETEDに変更（チャンクごとにUPDATE文1回で一括更新）
      */
-    @Scheduled(fixedRate = 3600000) // 1時間ごと
-    @Transactional
+    @Scheduled(cron = "0 0 * * * *")
     public void updateCompletedReservations() {
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Reservation> confirmedReservations = reservationRepository
-                .findByStatusAndEventDateBefore(ReservationStatus.CONFIRMED, now);
-
-        int count = 0;
-        for (Reservation reservation : confirmedReservations) {
-            reservation.setStatus(ReservationStatus.COMPLETED);
-            reservationRepository.save(reservation);
-            count++;
-        }
-
-        if (count > 0) {
-            logger.info("Updated {} reservations to COMPLETED status", count);
-        }
+        String jobName = "reservation.complete-past-events";
+        schedulerLockService.runExclusively(jobName, LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, () -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<ReservationStatus> confirmed = List.of(ReservationStatus.CONFIRMED);
+
+            int count = chunkedBatchRunner.run(jobName,
+                    (afterId, limit) -> reservationRepository.findIdsForPastEvents(
+                            ReservationStatus.CONFIRMED, now, afterId, PageRequest.of(0, limit)),
+                    ids -> reservationRepository.bulkUpdateStatusByIds(
+                            ids, confirmed, ReservationStatus.COMPLETED));
+
+            if (count > 0) {
+                logger.info("Updated {} reservations to COMPLETED status", count);
+            }
+            return count;
+        });
     }
 
     /**
-     * 1時間ごとに実行
+     * 毎時30分に実行（安全網としてのスイープ）
+     * 通常は {@link PaymentDeadlineScheduler} が期限ちょうどにキャンセルするため、
+     * ここでは再起動やエラーで取りこぼした予約のみが対象になる。
      * 以下の条件で未決済予約を自動キャンセル:
      * 1. 予約作成から48時間経過
      * 2. イベント開始3時間前を過ぎている（どちらか早い方）
+     *
+     * チャンクごとに対象行をロックしてからイベント単位で人数を集計し、イベント1件につきUPDATE1回でスロットを返却する。
      */
-    @Scheduled(fixedRate = 3600000) // 1時間ごと
-    @Transactional
+    @Scheduled(cron = "0 30 * * * *")
     public void cancelExpiredPendingPayments() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime createdDeadline = now.minusHours(48);
-        LocalDateTime eventDeadline = now.plusHours(3); // イベント開始3時間前
-
-        List<ReservationStatus> pendingStatuses = List.of(
-                ReservationStatus.PENDING_PAYMENT,
-                ReservationStatus.AWAITING_TRANSFER);
-
-        // 48時間経過した予約
-        List<Reservation> expiredByTime = reservationRepository
-                .findExpiredPendingPaymentReservations(pendingStatuses, createdDeadline);
-
-        // イベント開始3時間前を過ぎた予約
-        List<Reservation> expiredByEvent = reservationRepository
-                .findPendingByEventDateBefore(pendingStatuses, eventDeadline);
-
-        // 重複を排除してマージ
-        java.util.Set<Reservation> allExpired = new java.util.HashSet<>(expiredByTime);
-        allExpired.addAll(expiredByEvent);
-
-        int count = 0;
-        for (Reservation reservation : allExpired) {
-            // スロットを戻す
-            ExperienceEvent event = reservation.getEvent();
-            event.setAvailableSlots(event.getAvailableSlots() + reservation.getNumberOfPeople());
-            eventRepository.save(event);
-
-            // ステータスをキャンセルに変更
-            reservation.setStatus(ReservationStatus.CANCELLED);
-            reservationRepository.save(reservation);
-            count++;
-        }
+        String jobName = "reservation.cancel-expired-pending";
+        schedulerLockService.runExclusively(jobName, LOCK_AT_MOST_FOR, LOCK_AT_LEAST_FOR, () -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime createdDeadline = now.minusHours(48);
+            LocalDateTime eventDeadline = now.plusHours(3); // イベント開始3時間前
+            List<ReservationStatus> pendingStatuses = ReservationExpiryService.PENDING_STATUSES;
+
+            int count = chunkedBatchRunner.run(jobName,
+                    (afterId, limit) -> reservationRepository.findExpiredPendingIds(
+                            pendingStatuses, now, createdDeadline, eventDeadline, afterId,
+                            PageRequest.of(0, limit)),
+                    ids -> cancelChunk(ids, pendingStatuses));
+
+            if (count > 0) {
+                logger.info("Auto-cancelled {} expired pending payment reservations", count);
+            }
+            return count;
+        });
+    }
 
-        if (count > 0) {
-            logger.info("Auto-cancelled {} expired pending payment reservations", count);
-        }
+    private int cancelChunk(List<Long> ids, List<ReservationStatus> pendingStatuses) {
+        // 未決済のままの行をロックし、確定・キャンセル・期限切れ処理と同時に更新されないようにする
+        List<Object[]> locked = reservationRepository.lockByIdsAndStatusIn(ids, pendingStatuses);
+        return reservationExpiryService.cancelLocked(locked, pendingStatuses);
     }
 }
@@ -0,0 +1,122 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.entity.SchedulerLease;
+import com.farmeet.repository.SchedulerLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * DBのリーステーブルを使ったスケジューラージョブの排他制御
+ *
+ * 複数インスタンスで同じ@Scheduledジョブが起動しても、リースを取得できた1ノードだけが実行する。
+ * ノードがクラッシュした場合は lockAtMostFor 経過後に他ノードがリースを取得できる。
+ */
+@Component
+public class SchedulerLockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerLockService.class);
+
+    private final SchedulerLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+
+    public SchedulerLockService(SchedulerLeaseRepository leaseRepository, TransactionTemplate transactionTemplate) {
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = resolveHostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * リースを取得できた場合のみタスクを実行
+     *
+     * @param jobName        ジョブ名
+     * @param lockAtMostFor  クラッシュ時にリースが自動で切れるまでの時間
+     * @param lockAtLeastFor 実行後もリースを保持する最短時間（同じ周期で他ノードが再実行しないため）
+     * @param task           ジョブ本体（処理件数を返す）。トランザクションはタスク側で管理する
+     * @return 実行した場合true
+     */
+    public boolean runExclusively(String jobName, Duration lockAtMostFor, Duration lockAtLeastFor,
+            IntSupplier task) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (!tryAcquire(jobName, startedAt, startedAt.plus(lockAtMostFor))) {
+            logger.debug("Skipping job {}: lease is held by another node", jobName);
+            return false;
+        }
+
+        long startNanos = System.nanoTime();
+        Integer processedCount = null;
+        String error = null;
+        try {
+            processedCount = task.getAsInt();
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            throw e;
+        } finally {
+            long durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+            LocalDateTime finishedAt = LocalDateTime.now();
+            LocalDateTime minUntil = startedAt.plus(lockAtLeastFor);
+            LocalDateTime until = finishedAt.isAfter(minUntil) ? finishedAt : minUntil;
+            release(jobName, finishedAt, until, durationMs, processedCount, error);
+        }
+        return true;
+    }
+
+    /**
+     * 全ジョブのリース状態と実行メトリクスを取得
+     */
+    public List<SchedulerLease> getJobStatuses() {
+        return leaseRepository.findAllByOrderByJobNameAsc();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean tryAcquire(String jobName, LocalDateTime now, LocalDateTime until) {
+        ensureLeaseRow(jobName);
+        Integer updated = transactionTemplate.execute(
+                status -> leaseRepository.tryAcquire(jobName, nodeId, now, until));
+        return updated != null && updated > 0;
+    }
+
+    private void release(String jobName, LocalDateTime now, LocalDateTime until, long durationMs,
+            Integer processedCount, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.release(
+                    jobName, nodeId, now, until, durationMs, processedCount, error));
+        } catch (RuntimeException e) {
+            // 解放に失敗してもリースは lockAtMostFor で自然に切れる
+            logger.warn("Failed to release lease for job {}: {}", jobName, e.getMessage());
+        }
+    }
+
+    private void ensureLeaseRow(String jobName) {
+        if (leaseRepository.existsById(jobName)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> leaseRepository.insertLease(jobName, LocalDateTime.of(1970, 1, 1, 0, 0)));
+        } catch (DataIntegrityViolationException e) {
+            // 他ノードが同時に作成した場合は無視
+        }
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown-host";
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.farmeet.scheduler;
+
+import com.farmeet.entity.StripeWebhookEvent;
+import com.farmeet.entity.StripeWebhookEvent.Status;
+import com.farmeet.repository.StripeWebhookEventRepository;
+import com.farmeet.service.GiftVoucherService;
+import com.farmeet.service.PaymentService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stripe Webhook受信箱のイベントを固定サイズのワーカーで処理する
+ * <p>
+ * イベントは条件付きUPDATEで取得するため、複数ノード・複数ワーカーで同じイベントを二重に処理しない。
+ * 処理結果も取得時のロック期限を条件に書き込むため、期限切れ後に再取得したワーカーの結果を上書きしない。
+ * 失敗したイベントは指数バックオフで再試行し、上限に達したらDEADにする。
+ */
+@Component
+public class StripeWebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookProcessor.class);
+
+    private static final List<Status> READY_STATUSES = List.of(Status.RECEIVED, Status.FAILED);
+    /** 処理中ロックの期限（ワーカーが停止した場合はこの後に再取得される） */
+    private static final Duration PROCESSING_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final PaymentService paymentService;
+    private final GiftVoucherService giftVoucherService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final ThreadPoolExecutor executor;
+
+    public StripeWebhookProcessor(StripeWebhookEventRepository webhookEventRepository,
+            PaymentService paymentService,
+            GiftVoucherService giftVoucherService,
+            TransactionTemplate transactionTemplate,
+            @Value("${stripe.webhook.workers:4}") int workers,
+            @Value("${stripe.webhook.queue-capacity:100}") int queueCapacity,
+            @Value("${stripe.webhook.max-attempts:8}") int maxAttempts) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentService = paymentService;
+        this.giftVoucherService = giftVoucherService;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "stripe-webhook-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 受信直後のイベントを処理キューに投入（キューが満杯の場合はポーリングに任せる）
+     */
+    public void submit(Long eventId) {
+        try {
+            executor.execute(() -> claimAndProcess(eventId));
+        } catch (RejectedExecutionException e) {
+            log.debug("Stripe webhook queue is full, event {} will be picked up by polling", eventId);
+        }
+    }
+
+    /**
+     * 未処理・リトライ待ちのイベントを定期的に拾う
+     */
+    @Scheduled(fixedDelayString = "${stripe.webhook.poll-interval-ms:5000}")
+    public void poll() {
+        int capacity = executor.getQueue().remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        List<Long> ids = webhookEventRepository.findReadyIds(
+                READY_STATUSES, Status.PROCESSING, LocalDateTime.now(), PageRequest.of(0, capacity));
+        for (Long id : ids) {
+            submit(id);
+        }
+    }
+
+    /**
+     * 状態別のイベント件数（監視用）
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "received", webhookEventRepository.countByStatus(Status.RECEIVED),
+                "processing", webhookEventRepository.countByStatus(Status.PROCESSING),
+                "failed", webhookEventRepository.countByStatus(Status.FAILED),
+                "dead", webhookEventRepository.countByStatus(Status.DEAD),
+                "activeWorkers", executor.getActiveCount(),
+                "queued", executor.getQueue().size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void claimAndProcess(Long eventId) {
+        LocalDateTime now = LocalDateTime.now();
+        // 結果の書き込み時に同じ値で照合するため、DBの精度に丸めておく
+        LocalDateTime claimedUntil = now.plus(PROCESSING_TIMEOUT).truncatedTo(ChronoUnit.MILLIS);
+        Integer claimed = transactionTemplate.execute(status -> webhookEventRepository.claim(
+                eventId, READY_STATUSES, Status.PROCESSING, now, claimedUntil));
+        if (claimed == null || claimed == 0) {
+            // 他のワーカーが処理中、または処理済み
+            return;
+        }
+
+        StripeWebhookEvent event = webhookEventRepository.findById(eventId).orElse(null);
+        if (event == null) {
+            return;
+        }
+
+        try {
+            dispatch(event);
+            event.setStatus(Status.PROCESSED);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setLastError(null);
+        } catch (Exception e) {
+            markFailed(event, e);
+        }
+        Integer recorded = transactionTemplate.execute(status -> webhookEventRepository.recordResult(
+                eventId, Status.PROCESSING, claimedUntil, event.getStatus(), event.getProcessedAt(),
+                event.getNextAttemptAt(), event.getLastError()));
+        if (recorded == null || recorded == 0) {
+            log.warn("Stripe webhook event {} was reclaimed after its lock expired; result {} discarded",
+                    event.getStripeEventId(), event.getStatus());
+        }
+    }
+
+    private void dispatch(StripeWebhookEvent event) throws Exception {
+        switch (event.getTarget()) {
+            case GIFT_VOUCHER -> giftVoucherService.handleStripeCheckoutComplete(event.getSessionId());
+            case RESERVATION -> paymentService.handleStripeCheckoutComplete(event.getSessionId());
+        }
+    }
+
+    private void markFailed(StripeWebhookEvent event, Exception e) {
+        event.setLastError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(Status.DEAD);
+            log.error("Stripe webhook event {} gave up after {} attempts", event.getStripeEventId(),
+                    event.getAttempts(), e);
+            return;
+        }
+        event.setStatus(Status.FAILED);
+        event.setNextAttemptAt(LocalDateTime.now().plus(backoff(event.getAttempts())));
+        log.warn("Stripe webhook event {} failed (attempt {}): {}", event.getStripeEventId(),
+                event.getAttempts(), e.getMessage());
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = BASE_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 16));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+}
@@ -0,0 +1,286 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.farmeet.entity.DailyActiveUserSketch;
+import com.farmeet.repository.DailyActiveUserSketchRepository;
+import com.farmeet.scheduler.SchedulerLockService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * HyperLogLogスケッチによるアクティブユーザー数（DAU / WAU / MAU）
+ * <p>
+ * ログイン・登録・予約のアクティビティが記録されるたびに、このノードの日別スケッチにユーザーIDを追加する。
+ * 追加分は定期的に日別の保存済みスケッチ（daily_active_user_sketches）へレジスタごとの最大値で取り込む。
+ * 取り込みは何度繰り返しても結果が変わらないため、失敗しても次回そのまま再試行できる。
+ * 期間のユーザー数は日別スケッチの和集合から求めるため、activity_logs を COUNT(DISTINCT) で走査しない。
+ * 確定した過去の日のスケッチはメモリに保持し、当日と前日だけを取り込み間隔ごとに読み直す。
+ */
+@Service
+public class ActiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUserService.class);
+
+    public static final String BACKFILL_JOB_NAME = "analytics.backfill-active-users";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+
+    /** アクティブとみなすアクティビティ */
+    static final Set<ActivityType> ACTIVE_TYPES = EnumSet.of(
+            ActivityType.USER_SIGNUP,
+            ActivityType.USER_LOGIN,
+            ActivityType.RESERVATION_CREATED,
+            ActivityType.RESERVATION_CANCELLED);
+
+    /** MAUの期間（日） */
+    private static final int MAU_DAYS = 30;
+    /** 楽観ロックの競合時の再試行回数 */
+    private static final int MAX_ATTEMPTS = 3;
+    /** メモリに保持する保存済みスケッチの日数 */
+    private static final int CACHE_DAYS = 90;
+
+    private record CachedSketch(HyperLogLog sketch, long loadedAt) {
+    }
+
+    private final DailyActiveUserSketchRepository sketchRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+
+    @Value("${active-users.flush-interval-ms:60000}")
+    private long flushIntervalMillis;
+
+    /** このノードで追加し、まだ保存していない分 */
+    private final ConcurrentHashMap<LocalDate, HyperLogLog> pending = new ConcurrentHashMap<>();
+    /** 保存済みスケッチの読み込み結果 */
+    private final ConcurrentHashMap<LocalDate, CachedSketch> persisted = new ConcurrentHashMap<>();
+
+    public ActiveUserService(DailyActiveUserSketchRepository sketchRepository, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, SchedulerLockService schedulerLockService) {
+        this.sketchRepository = sketchRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLockService = schedulerLockService;
+    }
+
+    @EventListener
+    public void onActivityLogged(ActivityLoggedEvent event) {
+        ActivityLogWriter.Entry entry = event.entry();
+        if (entry.userId() != null && ACTIVE_TYPES.contains(entry.activityType())) {
+            record(entry.createdAt().toLocalDate(), entry.userId());
+        }
+    }
+
+    private void record(LocalDate date, long userId) {
+        // compute はキーごとに排他されるため、取り込み中（remove 済み）のスケッチに追加されることはない
+        pending.compute(date, (d, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.add(userId);
+            return target;
+        });
+    }
+
+    /**
+     * このノードの追加分を保存済みスケッチに取り込む
+     *
+     * @return 取り込んだ日数
+     */
+    public int flush() {
+        int flushed = 0;
+        for (LocalDate date : new ArrayList<>(pending.keySet())) {
+            HyperLogLog delta = pending.remove(date);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                mergeIntoStored(date, delta);
+                flushed++;
+            } catch (RuntimeException e) {
+                // 戻して次回に再試行する（取り込みは冪等）
+                pending.merge(date, delta, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+                logger.warn("Failed to save active user sketch for {}: {}", date, e.getMessage());
+            }
+        }
+        evictOldCache();
+        return flushed;
+    }
+
+    private void mergeIntoStored(LocalDate date, HyperLogLog delta) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                HyperLogLog merged = transactionTemplate.execute(status -> {
+                    DailyActiveUserSketch row = sketchRepository.findByActivityDate(date).orElse(null);
+                    if (row == null) {
+                        row = new DailyActiveUserSketch();
+                        row.setActivityDate(date);
+                        row.setRegisters(delta.toBytes());
+                        row.setUpdatedAt(LocalDateTime.now());
+                        sketchRepository.save(row);
+                        return delta;
+                    }
+                    HyperLogLog stored = HyperLogLog.fromBytes(row.getRegisters());
+                    if (stored.merge(delta)) {
+                        row.setRegisters(stored.toBytes());
+                        row.setUpdatedAt(LocalDateTime.now());
+                        sketchRepository.save(row);
+                    }
+                    return stored;
+                });
+                persisted.put(date, new CachedSketch(merged, System.currentTimeMillis()));
+                return;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // 他ノードが同じ日を同時に更新・作成した。読み直して取り込み直す
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 停止時に未保存分を取り込む
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void evictOldCache() {
+        LocalDate oldest = LocalDate.now().minusDays(CACHE_DAYS);
+        persisted.keySet().removeIf(date -> date.isBefore(oldest));
+    }
+
+    /**
+     * 指定日を最終日とするDAU / WAU / MAU
+     */
+    public Map<String, Object> getActiveUsers(LocalDate date) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("date", date.toString());
+        result.put("dau", union(date, date).estimate());
+        result.put("wau", union(date.minusDays(6), date).estimate());
+        result.put("mau", union(date.minusDays(MAU_DAYS - 1), date).estimate());
+        return result;
+    }
+
+    /**
+     * 直近N日のDAU（日付の昇順）
+     */
+    public List<Map<String, Object>> getDailyActiveUsers(int days) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(days - 1L);
+        loadStale(from, today);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("date", date.toString());
+            day.put("dau", union(date, date).estimate());
+            result.add(day);
+        }
+        return result;
+    }
+
+    /**
+     * 期間内の日別スケッチ（保存済み＋このノードの未保存分）の和集合
+     */
+    private HyperLogLog union(LocalDate from, LocalDate to) {
+        loadStale(from, to);
+        HyperLogLog union = new HyperLogLog();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            CachedSketch cached = persisted.get(date);
+            if (cached != null) {
+                union.merge(cached.sketch());
+            }
+            pending.computeIfPresent(date, (d, sketch) -> {
+                union.merge(sketch);
+                return sketch;
+            });
+        }
+        return union;
+    }
+
+    /**
+     * 未読み込み・読み直しが必要な日があれば、期間の保存済みスケッチをまとめて読み込む
+     */
+    private void loadStale(LocalDate from, LocalDate to) {
+        long now = System.currentTimeMillis();
+        LocalDate settled = LocalDate.now().minusDays(1);
+        boolean stale = false;
+        for (LocalDate date = from; !date.isAfter(to) && !stale; date = date.plusDays(1)) {
+            CachedSketch cached = persisted.get(date);
+            // 前日以前は他ノードの取り込みが終われば変わらないため、読み直すのは当日と前日だけ
+            stale = cached == null || (!date.isBefore(settled) && now - cached.loadedAt() >= flushIntervalMillis);
+        }
+        if (!stale) {
+            return;
+        }
+        Map<LocalDate, HyperLogLog> loaded = new LinkedHashMap<>();
+        for (DailyActiveUserSketch row : sketchRepository.findByActivityDateBetween(from, to)) {
+            loaded.put(row.getActivityDate(), HyperLogLog.fromBytes(row.getRegisters()));
+        }
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            persisted.put(date, new CachedSketch(loaded.getOrDefault(date, new HyperLogLog()), now));
+        }
+    }
+
+    /**
+     * スケッチが1件もない場合のみ、保持しているアクティビティログから作る（リースを取得できた場合のみ）
+     *
+     * @return 作成した日数。他ノードが実行中の場合は空
+     */
+    public Optional<Integer> backfillExclusively(Duration lockAtLeastFor) {
+        AtomicReference<Integer> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(BACKFILL_JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            if (sketchRepository.count() > 0) {
+                result.set(0);
+                return 0;
+            }
+            int days = backfill(LocalDate.now().minusDays(MAU_DAYS - 1));
+            result.set(days);
+            return days;
+        });
+        return Optional.ofNullable(result.get());
+    }
+
+    private int backfill(LocalDate from) {
+        long start = System.currentTimeMillis();
+        String types = String.join(", ", ACTIVE_TYPES.stream().map(type -> "'" + type.name() + "'").toList());
+        // 期間の行を1件ずつ読み、日別スケッチに追加する（重複はスケッチ側で吸収される）
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT CAST(created_at AS DATE), user_id FROM activity_logs "
+                    + "WHERE created_at >= ? AND user_id IS NOT NULL AND activity_type IN (" + types + ")");
+            ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            ps.setFetchSize(1000);
+            return ps;
+        }, (RowCallbackHandler) rs -> record(rs.getDate(1).toLocalDate(), rs.getLong(2))));
+        int days = flush();
+        logger.info("Backfilled active user sketches for {} days from {} in {} ms",
+                days, from, System.currentTimeMillis() - start);
+        return days;
+    }
+}
@@ -0,0 +1,252 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog;
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.farmeet.scheduler.SchedulerLockService;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 保存期間を過ぎたアクティビティログのアーカイブ
+ * <p>
+ * 作成日時の古い順にチャンク単位で読み込み、月ごとのgzip圧縮NDJSONファイル（activity-logs-YYYY-MM.ndjson.gz）に
+ * 追記してディスクへ同期してから、そのチャンクの行を削除する。チャンクごとに独立したgzipメンバーを追記するため、
+ * 同じ月のファイルに何度追記しても gzip / GZIPInputStream でそのまま1つのファイルとして読める。
+ * 追記後・削除前に停止した場合は次回同じ行を再度追記するため、アーカイブには同じidの行が重複しうる。
+ * 重複は取り除かないので、アーカイブを読む側でidにより取り除くこと。
+ * 日別集計（daily_activity_rollup）は削除の対象外なので、ダッシュボードの集計は保存期間に関係なく残る。
+ * <p>
+ * コンテナの一時的なファイルシステムに書き込んで行を削除するとデータが失われるため、保存期間（既定は0で無効）に加えて
+ * 永続ボリューム上の絶対パスを activity-log.archive-dir に指定した場合のみ有効になる。
+ * 実行するノードはリースを取得できたノードで毎回変わりうるため、activity-log.archive-dir は全ノードで共有する
+ * ボリューム（オブジェクトストレージのマウントなど）にするか、1ノードだけに指定して実行をそのノードに固定すること。
+ * 指定していないノードはリースを取りに行かない。
+ */
+@Service
+public class ActivityLogArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogArchiveService.class);
+
+    public static final String JOB_NAME = "activity-log.archive";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofHours(2);
+
+    private static final String SELECT_COLUMNS = "SELECT id, activity_type, user_id, target_id, target_type, "
+            + "description, created_at FROM activity_logs ";
+
+    private static final RowMapper<ActivityLog> ROW_MAPPER = (rs, rowNum) -> new ActivityLog(
+            rs.getLong(1),
+            ActivityType.valueOf(rs.getString(2)),
+            rs.getObject(3, Long.class),
+            rs.getObject(4, Long.class),
+            rs.getString(5),
+            rs.getString(6),
+            rs.getTimestamp(7).toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${activity-log.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${activity-log.archive-dir:}")
+    private String archiveDir;
+
+    @Value("${activity-log.archive-chunk-size:1000}")
+    private int chunkSize;
+
+    public ActivityLogArchiveService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            SchedulerLockService schedulerLockService, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLockService = schedulerLockService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void checkArchiveDir() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        if (!isArchiveDirConfigured()) {
+            logger.warn("Activity log archiving is disabled: activity-log.archive-dir must be an absolute path "
+                    + "on persistent storage (got '{}'); no rows will be deleted", archiveDir);
+        } else {
+            logger.warn("Activity log archiving to {} on this node: the directory must be a volume shared by every "
+                    + "node that sets activity-log.archive-dir (or set it on only one node), otherwise the archive "
+                    + "is split across nodes", archiveDir);
+        }
+    }
+
+    /**
+     * ログを保持する最初の日（保存期間が0以下、またはアーカイブ先が未設定の場合はアーカイブしないため空）
+     */
+    public Optional<LocalDate> retainedSince() {
+        return retentionDays > 0 && isArchiveDirConfigured()
+                ? Optional.of(LocalDate.now().minusDays(retentionDays))
+                : Optional.empty();
+    }
+
+    /**
+     * アーカイブ先が明示的に設定されているか（相対パスは作業ディレクトリ＝コンテナ内の一時領域になるため不可）
+     */
+    private boolean isArchiveDirConfigured() {
+        return archiveDir != null && !archiveDir.isBlank() && Paths.get(archiveDir).isAbsolute();
+    }
+
+    /**
+     * リースを取得できた場合のみ保存期間を過ぎたログをアーカイブ
+     *
+     * @return アーカイブした件数。他ノードが実行中の場合は空
+     */
+    public Optional<Integer> archiveExclusively(Duration lockAtLeastFor) {
+        Optional<LocalDate> cutoff = retainedSince();
+        if (cutoff.isEmpty()) {
+            return Optional.of(0);
+        }
+        AtomicReference<Integer> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            int archived = archiveBefore(cutoff.get().atStartOfDay());
+            result.set(archived);
+            return archived;
+        });
+        return Optional.ofNullable(result.get());
+    }
+
+    private int archiveBefore(LocalDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        Path dir = Paths.get(archiveDir);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create archive directory " + dir, e);
+        }
+        if (!Files.isWritable(dir)) {
+            // 書き込めない場合は削除に進まない
+            throw new RuntimeException("Archive directory is not writable: " + dir);
+        }
+
+        int archived = 0;
+        LocalDateTime lastCreatedAt = null;
+        long lastId = 0;
+        while (true) {
+            List<ActivityLog> chunk = lastCreatedAt == null
+                    ? jdbcTemplate.query(SELECT_COLUMNS + "WHERE created_at < ? ORDER BY created_at, id LIMIT ?",
+                            ROW_MAPPER, Timestamp.valueOf(cutoff), chunkSize)
+                    : jdbcTemplate.query(SELECT_COLUMNS + "WHERE created_at < ? "
+                            + "AND (created_at > ? OR (created_at = ? AND id > ?)) ORDER BY created_at, id LIMIT ?",
+                            ROW_MAPPER, Timestamp.valueOf(cutoff), Timestamp.valueOf(lastCreatedAt),
+                            Timestamp.valueOf(lastCreatedAt), lastId, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            Map<YearMonth, List<ActivityLog>> byMonth = new LinkedHashMap<>();
+            for (ActivityLog log : chunk) {
+                byMonth.computeIfAbsent(YearMonth.from(log.getCreatedAt()), m -> new ArrayList<>()).add(log);
+            }
+            // ファイルへの書き込みが確定してから削除する
+            byMonth.forEach((month, logs) -> append(dir.resolve("activity-logs-" + month + ".ndjson.gz"), logs));
+            delete(chunk);
+
+            archived += chunk.size();
+            ActivityLog last = chunk.get(chunk.size() - 1);
+            lastCreatedAt = last.getCreatedAt();
+            lastId = last.getId();
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} activity logs created before {} to {} in {} ms",
+                    archived, cutoff, dir, System.currentTimeMillis() - start);
+        }
+        return archived;
+    }
+
+    private void append(Path file, List<ActivityLog> logs) {
+        try (FileOutputStream out = new FileOutputStream(file.toFile(), true)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            GZIPOutputStream gzip = new GZIPOutputStream(buffered);
+            JsonGenerator generator = ndjsonGenerator(objectMapper, gzip);
+            for (ActivityLog log : logs) {
+                writeNdjson(generator, log);
+            }
+            generator.flush();
+            gzip.finish();
+            buffered.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append activity logs to " + file, e);
+        }
+    }
+
+    /**
+     * NDJSON出力用のジェネレーター（行の区切りは {@link #writeNdjson} が書くため、ルート値の区切り文字は出力しない）
+     */
+    static JsonGenerator ndjsonGenerator(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    /**
+     * ログ1件をNDJSONの1行として書き込む
+     */
+    static void writeNdjson(JsonGenerator generator, ActivityLog log) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", log.getId());
+        generator.writeStringField("activityType", log.getActivityType().name());
+        writeNullableNumber(generator, "userId", log.getUserId());
+        writeNullableNumber(generator, "targetId", log.getTargetId());
+        generator.writeStringField("targetType", log.getTargetType());
+        generator.writeStringField("description", log.getDescription());
+        generator.writeStringField("createdAt", log.getCreatedAt().toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeNullableNumber(JsonGenerator generator, String field, Long value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(field, value);
+        } else {
+            generator.writeNullField(field);
+        }
+    }
+
+    private void delete(List<ActivityLog> chunk) {
+        String placeholders = String.join(", ", chunk.stream().map(log -> "?").toList());
+        Object[] ids = chunk.stream().map(ActivityLog::getId).toArray();
+        transactionTemplate.executeWithoutResult(
+                status -> jdbcTemplate.update("DELETE FROM activity_logs WHERE id IN (" + placeholders + ")", ids));
+    }
+}
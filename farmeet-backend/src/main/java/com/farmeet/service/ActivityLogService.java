@@ -3,33 +3,54 @@ package com.farmeet.service;
 import com.farmeet.entity.ActivityLog;
 import com.farmeet.entity.ActivityLog.ActivityType;
 import com.farmeet.repository.ActivityLogRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
-@Transactional
 public class ActivityLogService {
 
     private final ActivityLogRepository activityLogRepository;
+    private final ActivityLogWriter activityLogWriter;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ActivityLogService(ActivityLogRepository activityLogRepository) {
+    public ActivityLogService(ActivityLogRepository activityLogRepository, ActivityLogWriter activityLogWriter,
+            ApplicationEventPublisher eventPublisher) {
         this.activityLogRepository = activityLogRepository;
+        this.activityLogWriter = activityLogWriter;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Log an activity
+     * Queued to the background writer and announced as an {@link ActivityLoggedEvent};
+     * inside a transaction both happen only after commit
      */
     public void log(ActivityType activityType, Long userId, Long targetId, String targetType, String description) {
-        ActivityLog log = new ActivityLog();
-        log.setActivityType(activityType);
-        log.setUserId(userId);
-        log.setTargetId(targetId);
-        log.setTargetType(targetType);
-        log.setDescription(description);
-        activityLogRepository.save(log);
+        ActivityLogWriter.Entry entry = new ActivityLogWriter.Entry(activityType, userId, targetId, targetType,
+                description, LocalDateTime.now());
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(entry);
+                }
+            });
+        } else {
+            dispatch(entry);
+        }
+    }
+
+    private void dispatch(ActivityLogWriter.Entry entry) {
+        activityLogWriter.publish(entry);
+        eventPublisher.publishEvent(new ActivityLoggedEvent(entry));
     }
 
     /**
@@ -128,6 +149,7 @@ public class ActivityLogService {
     /**
      * Get recent activities
      */
+    @Transactional(readOnly = true)
     public List<ActivityLog> getRecentActivities(int limit) {
         return activityLogRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(0, limit));
     }
@@ -135,6 +157,7 @@ public class ActivityLogService {
     /**
      * Get activities by type
      */
+    @Transactional(readOnly = true)
     public List<ActivityLog> getActivitiesByType(ActivityType type, int limit) {
         return activityLogRepository.findByActivityTypeOrderByCreatedAtDesc(type, PageRequest.of(0, limit));
     }
@@ -142,6 +165,7 @@ public class ActivityLogService {
     /**
      * Get activities by user
      */
+    @Transactional(readOnly = true)
     public List<ActivityLog> getActivitiesByUser(Long userId, int limit) {
         return activityLogRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, limit));
     }
@@ -0,0 +1,230 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * アクティビティログの非同期書き込み
+ * <p>
+ * リクエスト処理スレッドは固定長のリングバッファに追加するだけで、INSERTは専用スレッドが
+ * 件数または時間の区切りでJDBCバッチにまとめて行い、同じトランザクションで日別集計も加算する。
+ * バッファが満杯の場合は待たずに破棄し、破棄件数を記録する（ログのためにリクエストを遅らせない）。
+ * 停止時はバッファに残ったログを書き込んでから終了する。
+ */
+@Component
+public class ActivityLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO activity_logs "
+            + "(activity_type, user_id, target_id, target_type, description, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /** バッファに積むログ1件 */
+    public record Entry(ActivityType activityType, Long userId, Long targetId, String targetType,
+            String description, LocalDateTime createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ActivityRollupService activityRollupService;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    // 複数の書き込みスレッド・単一の読み出しスレッドのリングバッファ
+    // 各スロットのシーケンス番号で、書き込み済み（読み出し可能）か空きかを判定する
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /** 読み出し位置（書き込みスレッドのみが更新） */
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    private volatile boolean running = true;
+    private Thread writerThread;
+
+    public ActivityLogWriter(JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ActivityRollupService activityRollupService,
+            @Value("${activity-log.buffer-capacity:8192}") int bufferCapacity,
+            @Value("${activity-log.batch-size:200}") int batchSize,
+            @Value("${activity-log.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.activityRollupService = activityRollupService;
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread = new Thread(this::runLoop, "activity-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * ログをバッファに追加（ロックなし、待たない）
+     *
+     * @return 追加できた場合true。バッファが満杯で破棄した場合false
+     */
+    public boolean publish(Entry entry) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, entry);
+                    sequences.set(index, position + 1);
+                    published.incrementAndGet();
+                    if (position + 1 - head.get() >= batchSize) {
+                        LockSupport.unpark(writerThread);
+                    }
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 書き込みが追いついていない（満杯）
+                dropped.incrementAndGet();
+                return false;
+            }
+            // 他スレッドが同じ位置を確保した。次の位置で再試行
+        }
+    }
+
+    private Entry poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        Entry entry = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, position + capacity);
+        head.set(position + 1);
+        return entry;
+    }
+
+    private void runLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = System.nanoTime();
+        while (running) {
+            Entry entry = poll();
+            if (entry != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+                continue;
+            }
+            if (!batch.isEmpty() && System.nanoTime() - batchStartedAt >= flushIntervalNanos) {
+                flush(batch);
+                continue;
+            }
+            LockSupport.parkNanos(Math.min(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(50)));
+        }
+
+        // 停止時はバッファに残ったログを書き込む
+        Entry entry;
+        while ((entry = poll()) != null) {
+            batch.add(entry);
+            if (batch.size() >= batchSize) {
+                flush(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Entry> batch) {
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Entry e : batch) {
+            args.add(new Object[] { e.activityType().name(), e.userId(), e.targetId(), e.targetType(),
+                    e.description(), Timestamp.valueOf(e.createdAt()) });
+        }
+        try {
+            activityRollupService.ensureRows(batch);
+            // ログと日別集計は同じトランザクションで書き込む
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, args);
+                activityRollupService.increment(batch);
+            });
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+            lastFlushMillis = System.currentTimeMillis();
+        } catch (RuntimeException ex) {
+            failed.addAndGet(batch.size());
+            logger.error("Failed to write {} activity logs", batch.size(), ex);
+        }
+        batch.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            logger.warn("Activity log writer did not drain within 10 seconds; {} logs may be lost", pending());
+        }
+    }
+
+    private long pending() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("pending", pending());
+        stats.put("published", published.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("lastFlushAt", lastFlushMillis > 0 ? Instant.ofEpochMilli(lastFlushMillis).toString() : null);
+        return stats;
+    }
+}
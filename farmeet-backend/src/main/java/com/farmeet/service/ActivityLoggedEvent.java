@@ -0,0 +1,10 @@
+package com.farmeet.service;
+
+/**
+ * アクティビティが記録されたことを同じプロセス内に通知するイベント
+ * <p>
+ * {@link ActivityLogService} がログを書き込みバッファへ渡すのと同時に（トランザクション内ではコミット後に）発行する。
+ * リスナーは発行元のスレッドで同期的に呼ばれるため、重い処理をしてはならない。
+ */
+public record ActivityLoggedEvent(ActivityLogWriter.Entry entry) {
+}
@@ -0,0 +1,180 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.farmeet.scheduler.SchedulerLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 日別アクティビティ集計（daily_activity_rollup）の更新
+ * <p>
+ * {@link ActivityLogWriter} がログをINSERTするトランザクション内で、同じバッチの件数を日付・種別ごとに加算する。
+ * 導入前のログの取り込みと修復のため、activity_logs から指定日以降を作り直すこともできる。
+ */
+@Service
+public class ActivityRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityRollupService.class);
+
+    public static final String JOB_NAME = "analytics.rebuild-rollups";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+
+    private static final String UPDATE_SQL = "UPDATE daily_activity_rollup SET activity_count = activity_count + ?, "
+            + "updated_at = ? WHERE activity_date = ? AND activity_type = ?";
+    private static final String INSERT_IF_ABSENT_SQL = "INSERT INTO daily_activity_rollup "
+            + "(activity_date, activity_type, activity_count, updated_at) SELECT ?, ?, 0, ? WHERE NOT EXISTS "
+            + "(SELECT 1 FROM daily_activity_rollup WHERE activity_date = ? AND activity_type = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final ActivityLogArchiveService activityLogArchiveService;
+
+    public ActivityRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            SchedulerLockService schedulerLockService, ActivityLogArchiveService activityLogArchiveService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLockService = schedulerLockService;
+        this.activityLogArchiveService = activityLogArchiveService;
+    }
+
+    private record Key(LocalDate date, ActivityType type) {
+    }
+
+    /** 作成済みとわかっている集計行（毎回の存在確認を省く） */
+    private final Set<Key> knownKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * バッチに含まれる日付・種別の集計行を作成しておく（トランザクション外で実行）
+     * 他ノードと同時に作成して一意制約違反になっても、トランザクションを巻き込まないようにするため
+     */
+    public void ensureRows(List<ActivityLogWriter.Entry> entries) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Key key : countByKey(entries).keySet()) {
+            if (knownKeys.contains(key)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(INSERT_IF_ABSENT_SQL, Date.valueOf(key.date()), key.type().name(), now,
+                        Date.valueOf(key.date()), key.type().name());
+            } catch (DuplicateKeyException e) {
+                // 他ノードが先に作成した
+            }
+            knownKeys.add(key);
+        }
+    }
+
+    /**
+     * バッチの件数を加算（ログのINSERTと同じトランザクション内で実行）
+     */
+    public void increment(List<ActivityLogWriter.Entry> entries) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>();
+        countByKey(entries).forEach((key, count) -> args.add(
+                new Object[] { count, now, Date.valueOf(key.date()), key.type().name() }));
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+        for (int count : updated) {
+            if (count == 0) {
+                // 再集計で行が作り直された直後など。次回の再集計で修復される
+                logger.warn("Daily activity rollup row was missing; counts will be fixed by the next rebuild");
+                knownKeys.clear();
+                break;
+            }
+        }
+    }
+
+    private static Map<Key, Long> countByKey(List<ActivityLogWriter.Entry> entries) {
+        Map<Key, Long> counts = new LinkedHashMap<>();
+        for (ActivityLogWriter.Entry entry : entries) {
+            counts.merge(new Key(entry.createdAt().toLocalDate(), entry.activityType()), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    public boolean isEmpty() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_activity_rollup", Integer.class);
+        return count == null || count == 0;
+    }
+
+    /**
+     * 指定日から前日までの集計を activity_logs から作り直す（リースを取得できた場合のみ）
+     * 当日分は書き込み中の加算と競合して件数を失うため作り直さない。
+     * 保存期間を過ぎてログをアーカイブした日は作り直さないよう、対象はログを保持している日付に限る
+     *
+     * @param from 作り直す最初の日（nullの場合はログを保持している全期間）
+     * @return 作成した集計行数。他ノードが実行中の場合は空
+     */
+    public Optional<Integer> rebuildExclusively(LocalDate from, Duration lockAtLeastFor) {
+        AtomicReference<Integer> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            Integer rows = transactionTemplate.execute(status -> rebuild(from));
+            result.set(rows);
+            return rows != null ? rows : 0;
+        });
+        return Optional.ofNullable(result.get());
+    }
+
+    private int rebuild(LocalDate from) {
+        knownKeys.clear();
+        LocalDate start = from != null ? from : LocalDate.of(1970, 1, 1);
+        LocalDate retainedSince = activityLogArchiveService.retainedSince().orElse(null);
+        if (retainedSince != null && start.isBefore(retainedSince)) {
+            start = retainedSince;
+        }
+        // 確定した日（前日まで）のみ対象にする
+        LocalDate end = LocalDate.now();
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("DELETE FROM daily_activity_rollup WHERE activity_date >= ? AND activity_date < ?",
+                Date.valueOf(start), Date.valueOf(end));
+        int rows = jdbcTemplate.update(
+                "INSERT INTO daily_activity_rollup (activity_date, activity_type, activity_count, updated_at) "
+                        + "SELECT CAST(created_at AS DATE), activity_type, COUNT(*), ? FROM activity_logs "
+                        + "WHERE created_at >= ? AND created_at < ? GROUP BY CAST(created_at AS DATE), activity_type",
+                now, Timestamp.valueOf(start.atStartOfDay()), Timestamp.valueOf(end.atStartOfDay()));
+        logger.info("Rebuilt {} daily activity rollup rows from {} to {}", rows, start, end.minusDays(1));
+        return rows;
+    }
+
+    /**
+     * 指定した種別の日別件数
+     *
+     * @return 日付ごとの [種別 -> 件数]（日付の昇順）
+     */
+    public Map<LocalDate, Map<ActivityType, Long>> getDailyCounts(List<ActivityType> types, LocalDate from) {
+        Map<LocalDate, Map<ActivityType, Long>> daily = new LinkedHashMap<>();
+        String placeholders = String.join(", ", types.stream().map(t -> "?").toList());
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(from));
+        types.forEach(t -> params.add(t.name()));
+
+        jdbcTemplate.query("SELECT activity_date, activity_type, activity_count FROM daily_activity_rollup "
+                + "WHERE activity_date >= ? AND activity_type IN (" + placeholders + ") ORDER BY activity_date",
+                rs -> {
+                    daily.computeIfAbsent(rs.getDate(1).toLocalDate(), d -> new LinkedHashMap<>())
+                            .put(ActivityType.valueOf(rs.getString(2)), rs.getLong(3));
+                },
+                params.toArray());
+        return daily;
+    }
+}
@@ -0,0 +1,329 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 管理画面ダッシュボードへのServer-Sent Events配信
+ * <p>
+ * 接続直後とスナップショット間隔ごとに、集計（stats / daily / popular / 最近のアクティビティ）を1回だけ計算して
+ * 全接続に同じJSONを送る（snapshot イベント）。その間は {@link ActivityLoggedEvent} を種別ごとの件数と
+ * 最新のアクティビティにまとめ、ティックごとに差分として送る（delta イベント）。
+ * 管理画面のタブがいくつ開いていても集計の計算はノードあたりスナップショット1回分で済む。
+ * 差分はこのノードで記録されたアクティビティのみのため、他ノードの分は次のスナップショットで反映される。
+ * <p>
+ * ティックは接続ごとの上限付きキューに積むだけで、送信は送信用スレッドプールが接続ごとに順に行う。
+ * キューが溢れた（送信が追いつかない）接続は切断するため、遅いクライアントがティックや他の接続への送信を止めない。
+ * 送信中に止まったクライアントは、サーブレットコンテナの書き込みタイムアウトまで送信用スレッドを1つ占有する。
+ */
+@Component
+public class AdminDashboardBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminDashboardBroadcaster.class);
+
+    private static final int RECENT_ACTIVITY_LIMIT = 20;
+    private static final int DAILY_DAYS = 30;
+    private static final int POPULAR_LIMIT = 5;
+    private static final long KEEPALIVE_MILLIS = 15_000;
+
+    private final AnalyticsService analyticsService;
+    private final ActivityLogService activityLogService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${admin-dashboard.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${admin-dashboard.snapshot-interval-ms:60000}")
+    private long snapshotIntervalMillis;
+
+    @Value("${admin-dashboard.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    @Value("${admin-dashboard.max-subscribers:100}")
+    private int maxSubscribers;
+
+    @Value("${admin-dashboard.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${admin-dashboard.send-queue-size:16}")
+    private int sendQueueSize;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+
+    // 購読数の上限（確認と確保を1回の操作で行い、購読の解除時に戻す）
+    private Semaphore slots;
+
+    // 次の差分にまとめるアクティビティ（lockで保護）
+    private final Object lock = new Object();
+    private final Map<ActivityType, Long> pendingCounts = new EnumMap<>(ActivityType.class);
+    private final Deque<ActivityLogWriter.Entry> pendingActivities = new ArrayDeque<>();
+
+    private volatile String snapshotJson;
+    private volatile long snapshotAt;
+    private volatile long lastSentAt;
+
+    private ScheduledExecutorService ticker;
+    private ExecutorService sender;
+
+    public AdminDashboardBroadcaster(AnalyticsService analyticsService, ActivityLogService activityLogService,
+            ObjectMapper objectMapper) {
+        this.analyticsService = analyticsService;
+        this.activityLogService = activityLogService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        slots = new Semaphore(maxSubscribers);
+        sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "admin-dashboard-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "admin-dashboard-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+    }
+
+    /**
+     * ダッシュボードの購読を開始し、最新のスナップショットを送る
+     *
+     * @return 購読数が上限に達している場合は空
+     */
+    public Optional<SseEmitter> subscribe() {
+        if (!slots.tryAcquire()) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(sendQueueSize),
+                new AtomicBoolean(), new AtomicBoolean());
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        enqueue(subscriber, SseEmitter.event().name("snapshot").data(currentSnapshot(), MediaType.APPLICATION_JSON));
+        return Optional.of(emitter);
+    }
+
+    @EventListener
+    public void onActivityLogged(ActivityLoggedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        ActivityLogWriter.Entry entry = event.entry();
+        synchronized (lock) {
+            pendingCounts.merge(entry.activityType(), 1L, Long::sum);
+            pendingActivities.addFirst(entry);
+            if (pendingActivities.size() > RECENT_ACTIVITY_LIMIT) {
+                pendingActivities.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 接続数、送信が追いつかず切断した接続数と直近のスナップショット時刻
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("droppedSubscribers", droppedSubscribers.get());
+        stats.put("snapshotAt", snapshotAt);
+        return stats;
+    }
+
+    private void tick() {
+        try {
+            if (subscribers.isEmpty()) {
+                drain();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now - snapshotAt >= snapshotIntervalMillis) {
+                // スナップショットにはそれまでの差分が含まれるため、二重に数えないよう捨てる
+                drain();
+                broadcast("snapshot", refreshSnapshot(now));
+                return;
+            }
+            Map<String, Object> delta = drain();
+            if (delta != null) {
+                broadcast("delta", objectMapper.writeValueAsString(delta));
+            } else if (now - lastSentAt >= KEEPALIVE_MILLIS) {
+                broadcastKeepalive();
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Admin dashboard tick failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, Object> drain() {
+        synchronized (lock) {
+            if (pendingCounts.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> delta = new LinkedHashMap<>();
+            delta.put("counts", new EnumMap<>(pendingCounts));
+            delta.put("activities", new ArrayList<>(pendingActivities));
+            pendingCounts.clear();
+            pendingActivities.clear();
+            return delta;
+        }
+    }
+
+    private String currentSnapshot() {
+        long now = System.currentTimeMillis();
+        String json = snapshotJson;
+        if (json != null && now - snapshotAt < snapshotIntervalMillis) {
+            return json;
+        }
+        return refreshSnapshot(now);
+    }
+
+    /**
+     * 集計を計算してスナップショットを作り直す
+     * 同時に呼ばれた場合は、待っている間に作り直されたスナップショットをそのまま使う（計算は1回）
+     */
+    private synchronized String refreshSnapshot(long requestedAt) {
+        if (snapshotJson != null && snapshotAt >= requestedAt) {
+            return snapshotJson;
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("stats", analyticsService.getOverviewStats());
+        snapshot.put("daily", analyticsService.getDailyStats(DAILY_DAYS));
+        snapshot.put("popularFarms", analyticsService.getPopularFarms(PopularityService.Window.ALL, POPULAR_LIMIT));
+        snapshot.put("popularEvents", analyticsService.getPopularEvents(PopularityService.Window.ALL, POPULAR_LIMIT));
+        snapshot.put("activities", activityLogService.getRecentActivities(RECENT_ACTIVITY_LIMIT));
+        try {
+            snapshotJson = objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize dashboard snapshot", e);
+        }
+        snapshotAt = System.currentTimeMillis();
+        return snapshotJson;
+    }
+
+    private void broadcast(String name, String json) {
+        // イベントのビルダーは送信時に内容が書き換わるため、接続ごとに作る
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON));
+        }
+        lastSentAt = System.currentTimeMillis();
+    }
+
+    private void broadcastKeepalive() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("keepalive"));
+        }
+        lastSentAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 接続のキューにイベントを積み、送信中でなければ送信を始める
+     * キューが溢れた接続は購読を解除し、処理中の送信用スレッドが今の送信を終えてから切断する
+     * （送信中の接続の complete() は送信が終わるまで待たされるため、ティックのスレッドでは呼ばない）
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.queue().offer(event)) {
+            if (subscriber.dropped().compareAndSet(false, true)) {
+                droppedSubscribers.incrementAndGet();
+                unsubscribe(subscriber);
+                logger.debug("Dropped an admin dashboard subscriber that fell behind");
+            }
+            return;
+        }
+        scheduleSend(subscriber);
+    }
+
+    private void scheduleSend(Subscriber subscriber) {
+        if (subscriber.sending().compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> sendQueued(subscriber));
+            } catch (RejectedExecutionException e) {
+                // 停止中
+                subscriber.sending().set(false);
+            }
+        }
+    }
+
+    private void sendQueued(Subscriber subscriber) {
+        SseEmitter.SseEventBuilder event;
+        while (!subscriber.dropped().get() && (event = subscriber.queue().poll()) != null) {
+            try {
+                subscriber.emitter().send(event);
+            } catch (IOException | IllegalStateException e) {
+                // 切断済みのクライアント
+                subscriber.dropped().set(true);
+                unsubscribe(subscriber);
+            }
+        }
+        if (subscriber.dropped().get()) {
+            subscriber.queue().clear();
+            subscriber.emitter().complete();
+            return;
+        }
+        subscriber.sending().set(false);
+        // フラグを戻す直前に積まれたイベントを取りこぼさない
+        if (!subscriber.queue().isEmpty()) {
+            scheduleSend(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            slots.release();
+        }
+    }
+
+    /**
+     * 購読中の接続
+     *
+     * @param sending 送信用スレッドがこの接続のキューを処理中か
+     * @param dropped 購読を解除済みで、キューの残りを送らずに切断するか
+     */
+    private record Subscriber(SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> queue,
+            AtomicBoolean sending, AtomicBoolean dropped) {
+    }
+}
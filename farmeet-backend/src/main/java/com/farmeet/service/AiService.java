@@ -5,7 +5,6 @@ import com.farmeet.dto.ChatRequest;
 import com.farmeet.dto.ChatResponse;
 import com.farmeet.entity.Farm;
 import com.farmeet.repository.FarmRepository;
-import com.farmeet.repository.ReviewRepository;
 import com.google.genai.Client;
 import com.google.genai.types.GenerateContentResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +12,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -24,7 +22,7 @@ public class AiService {
     private final Client geminiClient;
     private final GeminiConfig geminiConfig;
     private final FarmRepository farmRepository;
-    private final ReviewRepository reviewRepository;
+    private final OutboundGateway outboundGateway;
 
     private static final String SYSTEM_PROMPT = """
             あなたは「FarMeet」の親切なAIアシスタントです。
@@ -78,11 +76,11 @@ public class AiService {
 
     @Autowired
     public AiService(Client geminiClient, GeminiConfig geminiConfig, FarmRepository farmRepository,
-            ReviewRepository reviewRepository) {
+            OutboundGateway outboundGateway) {
         this.geminiClient = geminiClient;
         this.geminiConfig = geminiConfig;
         this.farmRepository = farmRepository;
-        this.reviewRepository = reviewRepository;
+        this.outboundGateway = outboundGateway;
     }
 
     public ChatResponse chat(ChatRequest request) {
@@ -114,11 +112,12 @@ public class AiService {
             promptBuilder.append("【ユーザーの質問】\n").append(request.getMessage());
 
             // Call Gemini API with simple string content
-            GenerateContentResponse response = geminiClient.models.generateContent(
-                    geminiConfig.getModel(),
-                    promptBuilder.toString(),
-                    null // config
-            );
+            GenerateContentResponse response = outboundGateway.call(OutboundGateway.GEMINI,
+                    () -> geminiClient.models.generateContent(
+                            geminiConfig.getModel(),
+                            promptBuilder.toString(),
+                            null // config
+                    ));
 
             String aiResponse = response.text();
 
@@ -195,30 +194,21 @@ public class AiService {
         // Filter farms based on criteria
         List<Farm> matchingFarms = filterFarms(allFarms, criteria, userMessage);
 
-        // Get ratings for matching farms
-        List<Long> farmIds = matchingFarms.stream().map(Farm::getId).collect(Collectors.toList());
-        Map<Long, double[]> ratingsMap = getRatingsMap(farmIds);
-
-        // Sort by rating and limit to 3
-        matchingFarms.sort((a, b) -> {
-            double ratingA = ratingsMap.getOrDefault(a.getId(), new double[] { 0, 0 })[0];
-            double ratingB = ratingsMap.getOrDefault(b.getId(), new double[] { 0, 0 })[0];
-            return Double.compare(ratingB, ratingA);
-        });
+        // Sort by rating (kept on each farm) and limit to 3
+        matchingFarms.sort((a, b) -> Double.compare(averageOrZero(b), averageOrZero(a)));
 
         // Build suggestions with reasons
         return matchingFarms.stream()
                 .limit(3)
                 .map(farm -> {
-                    double[] ratingInfo = ratingsMap.getOrDefault(farm.getId(), new double[] { 0, 0 });
                     String reason = generateRecommendationReason(farm, userMessage);
                     return new ChatResponse.FarmSuggestion(
                             farm.getId(),
                             farm.getName(),
                             farm.getLocation(),
                             farm.getImageUrl(),
-                            ratingInfo[0] > 0 ? ratingInfo[0] : null,
-                            ratingInfo[1] > 0 ? (int) ratingInfo[1] : null,
+                            farm.ratingAverage(),
+                            farm.ratingCount() > 0 ? (int) farm.ratingCount() : null,
                             reason);
                 })
                 .collect(Collectors.toList());
@@ -250,8 +240,8 @@ public class AiService {
         try {
             if (geminiClient != null) {
                 String prompt = String.format(CRITERIA_EXTRACTION_PROMPT, userMessage);
-                GenerateContentResponse response = geminiClient.models.generateContent(
-                        geminiConfig.getModel(), prompt, null);
+                GenerateContentResponse response = outboundGateway.call(OutboundGateway.GEMINI,
+                        () -> geminiClient.models.generateContent(geminiConfig.getModel(), prompt, null));
                 String jsonResponse = response.text();
 
                 // Parse JSON response (simple parsing)
@@ -355,15 +345,9 @@ public class AiService {
                 .collect(Collectors.toList());
     }
 
-    private Map<Long, double[]> getRatingsMap(List<Long> farmIds) {
-        if (farmIds.isEmpty()) {
-            return Map.of();
-        }
-        List<Object[]> results = reviewRepository.getAverageRatingsForFarms(farmIds);
-        return results.stream()
-                .collect(Collectors.toMap(
-                        r -> (Long) r[0],
-                        r -> new double[] { (Double) r[1], ((Long) r[2]).doubleValue() }));
+    private double averageOrZero(Farm farm) {
+        Double average = farm.ratingAverage();
+        return average != null ? average : 0;
     }
 
     private String generateRecommendationReason(Farm farm, String userMessage) {
@@ -375,8 +359,8 @@ public class AiService {
                                 ? farm.getDescription().substring(0, Math.min(200, farm.getDescription().length()))
                                 : "",
                         userMessage);
-                GenerateContentResponse response = geminiClient.models.generateContent(
-                        geminiConfig.getModel(), prompt, null);
+                GenerateContentResponse response = outboundGateway.call(OutboundGateway.GEMINI,
+                        () -> geminiClient.models.generateContent(geminiConfig.getModel(), prompt, null));
                 String reason = response.text();
                 // Trim and clean up
                 return reason.trim().replaceAll("\\n+", " ");
@@ -0,0 +1,273 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ActivityLog.ActivityType;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * アクティビティログ・予約のストリーミングエクスポート
+ * <p>
+ * 読み取り専用トランザクション内の前方専用カーソルで1行ずつ読み、NDJSONはJacksonのストリーミングAPI、CSVはWriterで
+ * そのままレスポンスに書き出す。件数に関係なくメモリ使用量は一定で、最初の行はクエリの実行直後にクライアントへ届く。
+ */
+@Service
+public class DataExportService {
+
+    private static final int FETCH_SIZE = 1000;
+
+    /**
+     * 出力形式
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * リクエストパラメータ（ndjson / csv）から変換
+         */
+        public static Format fromParam(String value) {
+            return switch (value) {
+                case "ndjson" -> NDJSON;
+                case "csv" -> CSV;
+                default -> throw new RuntimeException("Unknown export format: " + value);
+            };
+        }
+    }
+
+    private static final String[] ACTIVITY_FIELDS = {
+            "id", "activityType", "userId", "targetId", "targetType", "description", "createdAt" };
+
+    private static final String[] RESERVATION_FIELDS = {
+            "id", "eventId", "eventTitle", "farmId", "userId", "status", "numberOfPeople", "numberOfAdults",
+            "numberOfChildren", "numberOfInfants", "totalPrice", "createdAt" };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public DataExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * アクティビティログを書き出す（作成日時の昇順）
+     *
+     * @param from 作成日の下限（含む、nullの場合は指定なし）
+     * @param to   作成日の上限（含む、nullの場合は指定なし）
+     */
+    public void exportActivities(Format format, LocalDate from, LocalDate to, ActivityType type, OutputStream out) {
+        StringBuilder sql = new StringBuilder("SELECT id, activity_type, user_id, target_id, target_type, "
+                + "description, created_at FROM activity_logs WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendDateRange(sql, params, "created_at", from, to);
+        if (type != null) {
+            sql.append(" AND activity_type = ?");
+            params.add(type.name());
+        }
+        sql.append(" ORDER BY created_at, id");
+        export(format, sql.toString(), params, ACTIVITY_FIELDS, out);
+    }
+
+    /**
+     * 予約を書き出す（作成日時の昇順）
+     *
+     * @param from 作成日の下限（含む、nullの場合は指定なし）
+     * @param to   作成日の上限（含む、nullの場合は指定なし）
+     */
+    public void exportReservations(Format format, LocalDate from, LocalDate to, ReservationStatus status,
+            OutputStream out) {
+        StringBuilder sql = new StringBuilder("SELECT r.id, r.event_id, e.title, e.farm_id, r.user_id, r.status, "
+                + "r.number_of_people, r.number_of_adults, r.number_of_children, r.number_of_infants, "
+                + "r.total_price, r.created_at FROM reservations r JOIN experience_events e ON e.id = r.event_id "
+                + "WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendDateRange(sql, params, "r.created_at", from, to);
+        if (status != null) {
+            sql.append(" AND r.status = ?");
+            params.add(status.name());
+        }
+        sql.append(" ORDER BY r.created_at, r.id");
+        export(format, sql.toString(), params, RESERVATION_FIELDS, out);
+    }
+
+    private static void appendDateRange(StringBuilder sql, List<Object> params, String column,
+            LocalDate from, LocalDate to) {
+        if (from != null) {
+            sql.append(" AND ").append(column).append(" >= ?");
+            params.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND ").append(column).append(" < ?");
+            params.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+    }
+
+    private void export(Format format, String sql, List<Object> params, String[] fields, OutputStream out) {
+        try {
+            RowSink sink = format == Format.NDJSON ? new NdjsonSink(out, fields) : new CsvSink(out, fields);
+            // PostgreSQLはトランザクション内でないとfetchSizeによるカーソル読み込みにならない
+            readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, new RowCallbackHandler() {
+                private long rows;
+
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    try {
+                        sink.write(rs);
+                        // 途中経過を少しずつクライアントへ送る
+                        if (++rows % FETCH_SIZE == 0) {
+                            sink.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }));
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface RowSink {
+        void write(ResultSet rs) throws IOException, SQLException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonSink implements RowSink {
+        private final JsonGenerator generator;
+        private final String[] fields;
+
+        NdjsonSink(OutputStream out, String[] fields) throws IOException {
+            this.generator = ActivityLogArchiveService.ndjsonGenerator(objectMapper, out);
+            this.fields = fields;
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < fields.length; i++) {
+                Object value = rs.getObject(i + 1);
+                generator.writeFieldName(fields[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else if (value instanceof Timestamp timestamp) {
+                    generator.writeString(timestamp.toLocalDateTime().toString());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvSink implements RowSink {
+        private final Writer writer;
+        private final int columns;
+
+        CsvSink(OutputStream out, String[] fields) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.columns = fields.length;
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                // ヘッダーは既存のCSV（ギフト券コード）に合わせてスネークケース
+                writer.write(fields[i].replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase());
+            }
+            writer.write('\n');
+            writer.flush();
+        }
+
+        @Override
+        public void write(ResultSet rs) throws IOException, SQLException {
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i + 1);
+                if (value instanceof BigDecimal decimal) {
+                    writer.write(decimal.toPlainString());
+                } else if (value instanceof Timestamp timestamp) {
+                    writer.write(timestamp.toLocalDateTime().toString());
+                } else if (value != null) {
+                    writer.write(escape(value.toString()));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
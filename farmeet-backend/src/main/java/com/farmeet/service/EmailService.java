@@ -1,5 +1,7 @@
 package com.farmeet.service;
 
+import com.farmeet.exception.OutboundCallException;
+import com.sendgrid.Client;
 import com.sendgrid.Method;
 import com.sendgrid.Request;
 import com.sendgrid.Response;
@@ -7,6 +9,7 @@ import com.sendgrid.SendGrid;
 import com.sendgrid.helpers.mail.Mail;
 import com.sendgrid.helpers.mail.objects.Content;
 import com.sendgrid.helpers.mail.objects.Email;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -21,6 +24,23 @@ public class EmailService {
     @Value("${mail.from-address:noreply@farmeet.com}")
     private String fromAddress;
 
+    private final OutboundGateway outboundGateway;
+
+    /** メールごとに生成せず、接続プール付きのクライアントを使い回す */
+    private SendGrid sendGrid;
+
+    public EmailService(OutboundGateway outboundGateway) {
+        this.outboundGateway = outboundGateway;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (sendGridApiKey != null && !sendGridApiKey.isEmpty()) {
+            sendGrid = new SendGrid(sendGridApiKey,
+                    new Client(outboundGateway.apacheHttpClient(OutboundGateway.SENDGRID)));
+        }
+    }
+
     public void sendOtp(String email, String otp) {
         // Log to console for debugging/fallback
         System.out.println("==================================================");
@@ -28,7 +48,7 @@ public class EmailService {
         System.out.println("OTP Code: " + otp);
         System.out.println("==================================================");
 
-        if (sendGridApiKey == null || sendGridApiKey.isEmpty()) {
+        if (sendGrid == null) {
             System.out.println("SendGrid API Key is missing. Email will not be sent (Console Log Only).");
             return;
         }
@@ -39,18 +59,17 @@ public class EmailService {
         Content content = new Content("text/plain", "あなたの認証コードは: " + otp + " です。\n10分間有効です。");
         Mail mail = new Mail(from, subject, to, content);
 
-        SendGrid sg = new SendGrid(sendGridApiKey);
         Request request = new Request();
         try {
             request.setMethod(Method.POST);
             request.setEndpoint("mail/send");
             request.setBody(mail.build());
-            Response response = sg.api(request);
+            Response response = outboundGateway.call(OutboundGateway.SENDGRID, () -> sendGrid.api(request));
             System.out.println("SendGrid Status Code: " + response.getStatusCode());
             if (response.getStatusCode() >= 400) {
                 System.err.println("SendGrid Error Body: " + response.getBody());
             }
-        } catch (IOException ex) {
+        } catch (IOException | OutboundCallException ex) {
             System.err.println("メール送信に失敗しました (SendGrid): " + ex.getMessage());
         }
     }
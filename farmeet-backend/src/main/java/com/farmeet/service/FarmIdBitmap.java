@@ -0,0 +1,181 @@
+package com.farmeet.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 農園IDの圧縮ビットマップ（Roaring Bitmap方式、不変）
+ * <p>
+ * IDを上位ビットごとのコンテナに分け、件数が少ないコンテナは下位16ビットのソート済み配列、
+ * 多いコンテナは65536ビットのビットマップで持つ。お気に入りのように疎な集合は配列で数百バイトに収まる。
+ * 更新はコピーを返すため、読み取り側はロックなしで参照できる。
+ */
+public final class FarmIdBitmap {
+
+    /** 配列コンテナの上限件数（これを超えるとビットマップコンテナに切り替える） */
+    private static final int ARRAY_MAX = 4096;
+
+    public static final FarmIdBitmap EMPTY = new FarmIdBitmap(new long[0], new Object[0], 0);
+
+    /** コンテナのキー（IDの上位ビット、昇順） */
+    private final long[] keys;
+    /** char[]（ソート済みの下位16ビット）または long[1024]（ビットマップ） */
+    private final Object[] containers;
+    private final int cardinality;
+
+    private FarmIdBitmap(long[] keys, Object[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    public static FarmIdBitmap of(Collection<Long> ids) {
+        FarmIdBitmap bitmap = EMPTY;
+        long[] sorted = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        for (long id : sorted) {
+            bitmap = bitmap.with(id);
+        }
+        return bitmap;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof char[] array) {
+            return Arrays.binarySearch(array, low) >= 0;
+        }
+        long[] bits = (long[]) container;
+        return (bits[low >>> 6] & (1L << low)) != 0;
+    }
+
+    /**
+     * IDを追加したビットマップを返す
+     */
+    public FarmIdBitmap with(long id) {
+        if (contains(id)) {
+            return this;
+        }
+        long key = id >>> 16;
+        char low = (char) id;
+        int index = Arrays.binarySearch(keys, key);
+
+        if (index < 0) {
+            int insertAt = -index - 1;
+            long[] newKeys = new long[keys.length + 1];
+            Object[] newContainers = new Object[containers.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(containers, 0, newContainers, 0, insertAt);
+            newKeys[insertAt] = key;
+            newContainers[insertAt] = new char[] { low };
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(containers, insertAt, newContainers, insertAt + 1, containers.length - insertAt);
+            return new FarmIdBitmap(newKeys, newContainers, cardinality + 1);
+        }
+
+        Object[] newContainers = containers.clone();
+        Object container = containers[index];
+        if (container instanceof char[] array) {
+            if (array.length < ARRAY_MAX) {
+                int insertAt = -Arrays.binarySearch(array, low) - 1;
+                char[] newArray = new char[array.length + 1];
+                System.arraycopy(array, 0, newArray, 0, insertAt);
+                newArray[insertAt] = low;
+                System.arraycopy(array, insertAt, newArray, insertAt + 1, array.length - insertAt);
+                newContainers[index] = newArray;
+            } else {
+                long[] bits = new long[1024];
+                for (char value : array) {
+                    bits[value >>> 6] |= 1L << value;
+                }
+                bits[low >>> 6] |= 1L << low;
+                newContainers[index] = bits;
+            }
+        } else {
+            long[] bits = ((long[]) container).clone();
+            bits[low >>> 6] |= 1L << low;
+            newContainers[index] = bits;
+        }
+        return new FarmIdBitmap(keys, newContainers, cardinality + 1);
+    }
+
+    /**
+     * IDを除いたビットマップを返す
+     */
+    public FarmIdBitmap without(long id) {
+        if (!contains(id)) {
+            return this;
+        }
+        int index = Arrays.binarySearch(keys, id >>> 16);
+        char low = (char) id;
+        Object container = containers[index];
+
+        Object newContainer;
+        if (container instanceof char[] array) {
+            if (array.length == 1) {
+                return removeContainer(index);
+            }
+            int removeAt = Arrays.binarySearch(array, low);
+            char[] newArray = new char[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, removeAt);
+            System.arraycopy(array, removeAt + 1, newArray, removeAt, array.length - removeAt - 1);
+            newContainer = newArray;
+        } else {
+            long[] bits = ((long[]) container).clone();
+            bits[low >>> 6] &= ~(1L << low);
+            newContainer = toArrayIfSmall(bits);
+        }
+        Object[] newContainers = containers.clone();
+        newContainers[index] = newContainer;
+        return new FarmIdBitmap(keys, newContainers, cardinality - 1);
+    }
+
+    private FarmIdBitmap removeContainer(int index) {
+        long[] newKeys = new long[keys.length - 1];
+        Object[] newContainers = new Object[containers.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(containers, 0, newContainers, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(containers, index + 1, newContainers, index, containers.length - index - 1);
+        return new FarmIdBitmap(newKeys, newContainers, cardinality - 1);
+    }
+
+    /** 件数が配列コンテナの上限以下に減ったビットマップは配列に戻す */
+    private static Object toArrayIfSmall(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        if (count > ARRAY_MAX) {
+            return bits;
+        }
+        char[] array = new char[count];
+        int i = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                array[i++] = (char) (word * 64 + Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return array;
+    }
+
+    /**
+     * 推定使用メモリ（バイト）
+     */
+    public long estimatedBytes() {
+        long bytes = 16L + keys.length * 8L + containers.length * 8L;
+        for (Object container : containers) {
+            bytes += container instanceof char[] array ? 16L + array.length * 2L : 16L + 1024 * 8L;
+        }
+        return bytes;
+    }
+}
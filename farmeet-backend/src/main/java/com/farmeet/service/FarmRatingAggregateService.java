@@ -0,0 +1,93 @@
+package com.farmeet.service;
+
+import com.farmeet.scheduler.SchedulerLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 農園ごとの評価件数（farms.rating_count_1〜5）の再集計
+ * <p>
+ * 件数はレビューの投稿・更新・削除時に {@link ReviewService} が増減する。
+ * 導入前のレビューの取り込みと、万一ずれた場合の修復のために reviews テーブルから作り直す。
+ * 作り直しは農園ごとに農園の行ロックを取ってから数え直すため、同時に投稿・更新されたレビューの増減と重ならない。
+ */
+@Service
+public class FarmRatingAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FarmRatingAggregateService.class);
+
+    public static final String JOB_NAME = "farm.rebuild-rating-counts";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+
+    private static final String REBUILD_SQL = "UPDATE farms SET "
+            + "rating_count_1 = (SELECT COUNT(*) FROM reviews r WHERE r.farm_id = farms.id AND r.rating = 1), "
+            + "rating_count_2 = (SELECT COUNT(*) FROM reviews r WHERE r.farm_id = farms.id AND r.rating = 2), "
+            + "rating_count_3 = (SELECT COUNT(*) FROM reviews r WHERE r.farm_id = farms.id AND r.rating = 3), "
+            + "rating_count_4 = (SELECT COUNT(*) FROM reviews r WHERE r.farm_id = farms.id AND r.rating = 4), "
+            + "rating_count_5 = (SELECT COUNT(*) FROM reviews r WHERE r.farm_id = farms.id AND r.rating = 5) "
+            + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    public FarmRatingAggregateService(JdbcTemplate jdbcTemplate, SchedulerLockService schedulerLockService,
+            TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 評価件数の合計がレビュー件数と一致しない場合true（導入直後で未集計の場合など）
+     */
+    public boolean needsBackfill() {
+        Long counted = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(rating_count_1 + rating_count_2 "
+                + "+ rating_count_3 + rating_count_4 + rating_count_5), 0) FROM farms", Long.class);
+        Long reviews = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reviews", Long.class);
+        return counted == null || !counted.equals(reviews);
+    }
+
+    /**
+     * リースを取得できた場合のみ再集計
+     *
+     * @return 再集計した農園数。他ノードが実行中の場合は空
+     */
+    public Optional<Integer> rebuildExclusively(Duration lockAtLeastFor) {
+        AtomicReference<Integer> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            long start = System.currentTimeMillis();
+            int count = 0;
+            for (Long farmId : jdbcTemplate.queryForList("SELECT id FROM farms ORDER BY id", Long.class)) {
+                count += rebuildFarm(farmId);
+            }
+            logger.info("Rebuilt rating counts for {} farms in {} ms", count, System.currentTimeMillis() - start);
+            result.set(count);
+            return count;
+        });
+        return Optional.ofNullable(result.get());
+    }
+
+    /**
+     * 1農園の評価件数を、農園の行ロックを取ってから数え直す
+     * ロック取得後の文で数えるため、ロックを待つ間に確定したレビューの増減も含まれる
+     *
+     * @return 作り直した農園数（削除済みの場合は0）
+     */
+    private int rebuildFarm(Long farmId) {
+        Integer updated = transactionTemplate.execute(status -> {
+            List<Long> locked = jdbcTemplate.queryForList("SELECT id FROM farms WHERE id = ? FOR UPDATE",
+                    Long.class, farmId);
+            return locked.isEmpty() ? 0 : jdbcTemplate.update(REBUILD_SQL, farmId);
+        });
+        return updated != null ? updated : 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.farmeet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ユーザーごとのお気に入り農園IDのキャッシュ
+ * <p>
+ * {@link FarmIdBitmap} で保持し、件数の上限を超えると最も長く参照されていないユーザーから破棄する（LRU）。
+ * このノードでの追加・削除はコミット後に書き込み、他ノードでの変更はTTLの経過後に反映される。
+ */
+@Component
+public class FavoriteCache {
+
+    private final int maxUsers;
+    private final long ttlNanos;
+
+    /** アクセス順のLinkedHashMap（すべての操作はthisで同期） */
+    private final LinkedHashMap<Long, Entry> entries;
+    /** 読み込み中の更新を検出するための書き込み回数 */
+    private long writeCount;
+    private long hits;
+    private long misses;
+
+    private record Entry(FarmIdBitmap bitmap, long expiresAtNanos) {
+    }
+
+    public FavoriteCache(@Value("${favorites.cache.max-users:10000}") int maxUsers,
+            @Value("${favorites.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxUsers = maxUsers;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > FavoriteCache.this.maxUsers;
+            }
+        };
+    }
+
+    /**
+     * ユーザーのお気に入りを取得（キャッシュにない・期限切れの場合はloaderで読み込む）
+     */
+    public FarmIdBitmap get(Long userId, Supplier<List<Long>> loader) {
+        long writesBeforeLoad;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0) {
+                hits++;
+                return entry.bitmap();
+            }
+            misses++;
+            writesBeforeLoad = writeCount;
+        }
+
+        // DBの読み込みはロックの外で行う
+        FarmIdBitmap bitmap = FarmIdBitmap.of(loader.get());
+
+        synchronized (this) {
+            // 読み込み中に書き込みがあった場合、読み込んだ内容が古い可能性があるためキャッシュしない
+            if (writeCount == writesBeforeLoad) {
+                entries.put(userId, new Entry(bitmap, System.nanoTime() + ttlNanos));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * お気に入りの追加・削除を反映（コミット後に呼び出す）
+     * キャッシュにないユーザーは次回の読み込みで反映されるため何もしない
+     */
+    public synchronized void apply(Long userId, Long farmId, boolean favorite) {
+        writeCount++;
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            FarmIdBitmap updated = favorite ? entry.bitmap().with(farmId) : entry.bitmap().without(farmId);
+            entries.put(userId, new Entry(updated, entry.expiresAtNanos()));
+        }
+    }
+
+    public synchronized void evict(Long userId) {
+        writeCount++;
+        entries.remove(userId);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.bitmap().estimatedBytes();
+        }
+        return Map.of(
+                "users", entries.size(),
+                "maxUsers", maxUsers,
+                "estimatedBytes", bytes,
+                "hits", hits,
+                "misses", misses);
+    }
+}
@@ -1,25 +1,38 @@
 package com.farmeet.service;
 
+import com.farmeet.dto.FavoriteFarmDto;
 import com.farmeet.entity.Farm;
 import com.farmeet.entity.Favorite;
 import com.farmeet.entity.User;
 import com.farmeet.repository.FarmRepository;
 import com.farmeet.repository.FavoriteRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class FavoriteService {
 
+    /** ページングなしの一覧で返す最大件数 */
+    private static final int MAX_FAVORITES = 500;
+    /** 1ページの最大件数 */
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final FavoriteRepository favoriteRepository;
     private final FarmRepository farmRepository;
+    private final FavoriteCache favoriteCache;
 
-    public FavoriteService(FavoriteRepository favoriteRepository, FarmRepository farmRepository) {
+    public FavoriteService(FavoriteRepository favoriteRepository, FarmRepository farmRepository,
+            FavoriteCache favoriteCache) {
         this.favoriteRepository = favoriteRepository;
         this.farmRepository = farmRepository;
+        this.favoriteCache = favoriteCache;
     }
 
     /**
@@ -37,7 +50,9 @@ public class FavoriteService {
         Favorite favorite = new Favorite();
         favorite.setUser(user);
         favorite.setFarm(farm);
-        return favoriteRepository.save(favorite);
+        Favorite saved = favoriteRepository.save(favorite);
+        applyToCacheAfterCommit(user.getId(), farmId, true);
+        return saved;
     }
 
     /**
@@ -48,14 +63,37 @@ public class FavoriteService {
                 .orElseThrow(() -> new RuntimeException("Farm not found"));
 
         favoriteRepository.deleteByUserAndFarm(user, farm);
+        applyToCacheAfterCommit(user.getId(), farmId, false);
+    }
+
+    /**
+     * お気に入り一覧取得（カード表示項目のみを1回のクエリで取得）
+     */
+    @Transactional(readOnly = true)
+    public List<FavoriteFarmDto> getFavorites(User user) {
+        return favoriteRepository.findFarmCardsByUserId(user.getId(), Long.MAX_VALUE,
+                PageRequest.of(0, MAX_FAVORITES));
     }
 
     /**
-     * お気に入り一覧取得
+     * お気に入り一覧を新しい順に1ページ分取得
+     *
+     * @param cursor 前ページの nextCursor（最初のページはnull）
      */
     @Transactional(readOnly = true)
-    public List<Favorite> getFavorites(User user) {
-        return favoriteRepository.findByUserOrderByCreatedAtDesc(user);
+    public FavoriteFarmDto.Page getFavoritePage(User user, Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // 1件多く取得して次ページの有無を判定
+        List<FavoriteFarmDto> rows = favoriteRepository.findFarmCardsByUserId(user.getId(),
+                cursor != null ? cursor : Long.MAX_VALUE, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<FavoriteFarmDto> items = hasMore ? rows.subList(0, pageSize) : rows;
+
+        FavoriteFarmDto.Page page = new FavoriteFarmDto.Page();
+        page.setItems(items);
+        page.setNextCursor(hasMore ? items.get(items.size() - 1).getFavoriteId() : null);
+        return page;
     }
 
     /**
@@ -63,18 +101,38 @@ public class FavoriteService {
      */
     @Transactional(readOnly = true)
     public boolean isFavorite(User user, Long farmId) {
-        Farm farm = farmRepository.findById(farmId).orElse(null);
-        if (farm == null) {
-            return false;
-        }
-        return favoriteRepository.existsByUserAndFarm(user, farm);
+        return loadFavorites(user).contains(farmId);
     }
 
     /**
-     * 複数の農園のお気に入り状態を一括チェック
+     * 複数の農園のお気に入り状態を一括チェック（キャッシュ済みならDBにアクセスしない）
      */
     @Transactional(readOnly = true)
     public List<Long> getFavoriteFarmIds(User user, List<Long> farmIds) {
-        return favoriteRepository.findFarmIdsByUserAndFarmIdIn(user, farmIds);
+        FarmIdBitmap favorites = loadFavorites(user);
+        return farmIds.stream()
+                .filter(favorites::contains)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private FarmIdBitmap loadFavorites(User user) {
+        return favoriteCache.get(user.getId(), () -> favoriteRepository.findFarmIdsByUserId(user.getId()));
+    }
+
+    /**
+     * コミット後にキャッシュへ反映（ロールバックされた変更をキャッシュに残さない）
+     */
+    private void applyToCacheAfterCommit(Long userId, Long farmId, boolean favorite) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            favoriteCache.apply(userId, farmId, favorite);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                favoriteCache.apply(userId, farmId, favorite);
+            }
+        });
     }
 }
@@ -0,0 +1,274 @@
+package com.farmeet.service;
+
+import com.farmeet.dto.GiftVoucherDto;
+import com.farmeet.entity.GiftVoucherCampaign;
+import com.farmeet.entity.GiftVoucherCampaign.Status;
+import com.farmeet.entity.User;
+import com.farmeet.exception.ResourceNotFoundException;
+import com.farmeet.repository.GiftVoucherCampaignRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ギフト券の一括発行キャンペーン
+ * <p>
+ * 発行は非同期で行い、チャンクごとに1トランザクションでJDBCバッチINSERTと進捗の更新を行う。
+ * 進捗は発行済み枚数として保存するため、ノードが停止しても続きから再開できる。
+ * コードの一意制約違反が起きた場合はチャンクをロールバックし、新しいコードで再試行する。
+ */
+@Service
+public class GiftVoucherCampaignService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GiftVoucherCampaignService.class);
+
+    public static final int MAX_QUANTITY = 100_000;
+    /** 更新がこの時間止まっている処理中キャンペーンは、停止したノードのものとみなして再開する */
+    private static final Duration STALE_AFTER = Duration.ofMinutes(10);
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+
+    private static final String INSERT_SQL = "INSERT INTO gift_vouchers "
+            + "(code, amount, balance, status, issued_by_id, is_free_issue, issue_reason, expires_at, "
+            + "created_at, activated_at, campaign_id) VALUES (?, ?, ?, 'ACTIVE', ?, true, ?, ?, ?, ?, ?)";
+
+    private final GiftVoucherCampaignRepository campaignRepository;
+    private final GiftVoucherCodeAllocator codeAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gift-voucher-campaign");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${gift-voucher.campaign.chunk-size:1000}")
+    private int chunkSize;
+
+    public GiftVoucherCampaignService(GiftVoucherCampaignRepository campaignRepository,
+            GiftVoucherCodeAllocator codeAllocator,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate) {
+        this.campaignRepository = campaignRepository;
+        this.codeAllocator = codeAllocator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * キャンペーンを作成し、非同期で発行を開始
+     */
+    public GiftVoucherDto.CampaignResponse createCampaign(GiftVoucherDto.CampaignRequest request, User admin) {
+        if (admin.getRole() != User.Role.ADMIN) {
+            throw new RuntimeException("管理者権限が必要です");
+        }
+        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("額面金額を指定してください");
+        }
+        if (request.getQuantity() == null || request.getQuantity() < 1 || request.getQuantity() > MAX_QUANTITY) {
+            throw new RuntimeException("発行枚数は1〜" + MAX_QUANTITY + "枚で指定してください");
+        }
+
+        int expiryMonths = request.getExpiryMonths() != null ? request.getExpiryMonths() : 12;
+
+        GiftVoucherCampaign campaign = new GiftVoucherCampaign();
+        campaign.setName(request.getName() != null ? request.getName() : "キャンペーン");
+        campaign.setAmount(request.getAmount());
+        campaign.setQuantity(request.getQuantity());
+        campaign.setIssueReason(request.getIssueReason());
+        campaign.setExpiresAt(LocalDateTime.now().plusMonths(expiryMonths));
+        campaign.setCreatedBy(admin);
+        campaign.setStatus(Status.PENDING);
+        GiftVoucherCampaign saved = campaignRepository.save(campaign);
+
+        submitAfterCommit(saved.getId());
+        return toResponse(saved);
+    }
+
+    public GiftVoucherDto.CampaignResponse getCampaign(Long id) {
+        return toResponse(findCampaign(id));
+    }
+
+    public List<GiftVoucherDto.CampaignResponse> getCampaigns() {
+        return campaignRepository.findTop50ByOrderByIdDesc().stream().map(this::toResponse).toList();
+    }
+
+    /**
+     * 発行済みコードをCSVで書き出す（DBカーソルで1行ずつ読み、全件をメモリに載せない）
+     */
+    public void exportCodes(Long campaignId, OutputStream out) {
+        GiftVoucherCampaign campaign = findCampaign(campaignId);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            writer.write("code,amount,expires_at\n");
+            // PostgreSQLはトランザクション内でないとfetchSizeによるカーソル読み込みにならない
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT code, amount, expires_at FROM gift_vouchers WHERE campaign_id = ? ORDER BY id");
+                ps.setLong(1, campaign.getId());
+                ps.setFetchSize(1000);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    writer.write(rs.getString(1));
+                    writer.write(',');
+                    writer.write(rs.getBigDecimal(2).toPlainString());
+                    writer.write(',');
+                    writer.write(rs.getTimestamp(3).toLocalDateTime().toString());
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 起動時に未完了のキャンペーンを再開
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        List<Long> ids = campaignRepository.findResumableIds(Status.PENDING, Status.RUNNING,
+                LocalDateTime.now().minus(STALE_AFTER));
+        ids.forEach(this::submit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submitAfterCommit(Long campaignId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(campaignId);
+                }
+            });
+        } else {
+            submit(campaignId);
+        }
+    }
+
+    private void submit(Long campaignId) {
+        executor.execute(() -> run(campaignId));
+    }
+
+    private void run(Long campaignId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> campaignRepository.claim(
+                campaignId, Status.PENDING, Status.RUNNING, now, now.minus(STALE_AFTER)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        GiftVoucherCampaign campaign = findCampaign(campaignId);
+        Long adminId = campaign.getCreatedBy().getId();
+        long start = System.currentTimeMillis();
+        try {
+            int issued = campaign.getIssuedCount();
+            while (issued < campaign.getQuantity()) {
+                int size = Math.min(chunkSize, campaign.getQuantity() - issued);
+                issueChunk(campaign, adminId, size);
+                issued += size;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                GiftVoucherCampaign current = findCampaign(campaignId);
+                current.setStatus(Status.COMPLETED);
+                current.setCompletedAt(LocalDateTime.now());
+                current.setUpdatedAt(LocalDateTime.now());
+                campaignRepository.save(current);
+            });
+            logger.info("Issued {} gift vouchers for campaign {} in {} ms",
+                    campaign.getQuantity(), campaignId, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.error("Gift voucher campaign {} failed", campaignId, e);
+            transactionTemplate.executeWithoutResult(status -> {
+                GiftVoucherCampaign current = findCampaign(campaignId);
+                current.setStatus(Status.FAILED);
+                current.setLastError(e.getClass().getSimpleName() + ": " + e.getMessage());
+                current.setUpdatedAt(LocalDateTime.now());
+                campaignRepository.save(current);
+            });
+        }
+    }
+
+    /**
+     * 1チャンク分のギフト券をバッチINSERTし、進捗を同じトランザクションで更新
+     */
+    private void issueChunk(GiftVoucherCampaign campaign, Long adminId, int size) {
+        for (int attempt = 1;; attempt++) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            Timestamp expiresAt = Timestamp.valueOf(campaign.getExpiresAt());
+            List<Object[]> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rows.add(new Object[] { codeAllocator.nextCode(), campaign.getAmount(), campaign.getAmount(),
+                        adminId, campaign.getIssueReason(), expiresAt, now, now, campaign.getId() });
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                    campaignRepository.addIssued(campaign.getId(), size, LocalDateTime.now());
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // 他ノードが同じコードを発行していた場合（実質的に起きない）は新しいコードで再試行
+                if (attempt >= MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Duplicate gift voucher code in campaign {} chunk, retrying", campaign.getId());
+            }
+        }
+    }
+
+    private GiftVoucherCampaign findCampaign(Long id) {
+        return campaignRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("キャンペーンが見つかりません"));
+    }
+
+    private GiftVoucherDto.CampaignResponse toResponse(GiftVoucherCampaign campaign) {
+        return GiftVoucherDto.CampaignResponse.builder()
+                .id(campaign.getId())
+                .name(campaign.getName())
+                .amount(campaign.getAmount())
+                .quantity(campaign.getQuantity())
+                .issuedCount(campaign.getIssuedCount())
+                .progressPercent((int) (100L * campaign.getIssuedCount() / campaign.getQuantity()))
+                .status(campaign.getStatus().name())
+                .expiresAt(campaign.getExpiresAt())
+                .createdAt(campaign.getCreatedAt())
+                .startedAt(campaign.getStartedAt())
+                .completedAt(campaign.getCompletedAt())
+                .lastError(campaign.getLastError())
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.farmeet.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ギフト券コードの払い出し
+ * <p>
+ * 発行済みコードをメモリ上のBloomフィルタで保持し、払い出し時にDBへの存在確認を行わない。
+ * フィルタに含まれる可能性があるコードは生成し直す（誤検出は再生成が1回増えるだけ）。
+ * 他ノードが同時に発行したコードとの重複は gift_vouchers.code の一意制約で検出する
+ * （32文字×16桁の空間では実質的に発生しない）。
+ */
+@Component
+public class GiftVoucherCodeAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(GiftVoucherCodeAllocator.class);
+
+    private static final String CODE_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final int CODE_LENGTH = 16;
+    private static final SecureRandom random = new SecureRandom();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int bitCount;
+    private final int hashCount;
+    private final AtomicLongArray bits;
+    private final AtomicLong regenerated = new AtomicLong();
+    private volatile boolean loaded = false;
+
+    public GiftVoucherCodeAllocator(JdbcTemplate jdbcTemplate,
+            @Value("${gift-voucher.code-filter.expected-codes:1000000}") int expectedCodes,
+            @Value("${gift-voucher.code-filter.false-positive-rate:0.0001}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        // m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long m = (long) Math.ceil(-expectedCodes * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedCodes * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    /**
+     * 起動時に発行済みコードをフィルタへ読み込む
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT code FROM gift_vouchers WHERE code IS NOT NULL");
+            ps.setFetchSize(1000);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            add(rs.getString(1));
+            count.incrementAndGet();
+        });
+        loaded = true;
+        logger.info("Loaded {} gift voucher codes into allocator filter ({} bits, {} hashes) in {} ms",
+                count.get(), bitCount, hashCount, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 未発行のコードを払い出す（DB問い合わせなし）
+     */
+    public String nextCode() {
+        while (true) {
+            String code = generateCode();
+            if (!mightContain(code)) {
+                add(code);
+                return code;
+            }
+            regenerated.incrementAndGet();
+        }
+    }
+
+    /**
+     * フィルタの状態と再生成回数（このノード）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("bits", bitCount);
+        stats.put("hashes", hashCount);
+        stats.put("regenerated", regenerated.get());
+        return stats;
+    }
+
+    private String generateCode() {
+        StringBuilder code = new StringBuilder(CODE_LENGTH);
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code.append(CODE_CHARS.charAt(random.nextInt(CODE_CHARS.length())));
+        }
+        return code.toString();
+    }
+
+    private boolean mightContain(String code) {
+        long h1 = hash(code);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String code) {
+        long h1 = hash(code);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /** FNV-1a（64bit）にmurmur3の最終ミックスをかけたハッシュ */
+    private static long hash(String code) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < code.length(); i++) {
+            h ^= code.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87ebL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
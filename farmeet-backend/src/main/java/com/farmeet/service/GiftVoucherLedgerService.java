@@ -0,0 +1,209 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.GiftVoucherLedgerEntry;
+import com.farmeet.entity.GiftVoucherLedgerEntry.EntryType;
+import com.farmeet.entity.GiftVoucherStatus;
+import com.farmeet.repository.GiftVoucherLedgerRepository;
+import com.farmeet.repository.GiftVoucherRepository;
+import com.farmeet.scheduler.SchedulerLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ギフト券残高の増減
+ * <p>
+ * 先に台帳へ記帳し、記帳できた場合のみ残高が足りる場合に成功する条件付きUPDATEで残高を増減する。
+ * 決済ごとの記帳は一意制約で1回に限られ、同じ決済の記帳が同時に重なっても後の記帳は何もせずに終わるため、
+ * 二重に増減しない（ギフト券の行ロックは取らない）。
+ */
+@Service
+public class GiftVoucherLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GiftVoucherLedgerService.class);
+
+    private static final List<GiftVoucherStatus> USABLE_STATUSES = List.of(GiftVoucherStatus.ACTIVE,
+            GiftVoucherStatus.REDEEMED);
+
+    /** 残高の集計クエリ1回あたりのギフト券数 */
+    private static final int BALANCE_QUERY_CHUNK_SIZE = 1000;
+
+    private final GiftVoucherRepository giftVoucherRepository;
+    private final GiftVoucherLedgerRepository ledgerRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public GiftVoucherLedgerService(GiftVoucherRepository giftVoucherRepository,
+            GiftVoucherLedgerRepository ledgerRepository,
+            SchedulerLockService schedulerLockService,
+            JdbcTemplate jdbcTemplate) {
+        this.giftVoucherRepository = giftVoucherRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.schedulerLockService = schedulerLockService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 残高を引き落として記帳（呼び出し元のトランザクション内で実行）
+     *
+     * @param paymentId 決済ID（決済によらない利用の場合はnull）
+     * @return 引き落とした場合、または同じ決済で引き落とし済みの場合true。残高不足・使用不可の場合false
+     */
+    @Transactional
+    public boolean debit(Long voucherId, Long paymentId, BigDecimal amount, String note) {
+        Long entryId = insertIfAbsent(voucherId, paymentId, EntryType.DEBIT, amount, note);
+        if (entryId == null) {
+            return true;
+        }
+        int updated = giftVoucherRepository.debitBalance(voucherId, amount, USABLE_STATUSES,
+                GiftVoucherStatus.USED, LocalDateTime.now());
+        if (updated == 0) {
+            discard(entryId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 決済で引き落とした残高を払い戻して記帳（呼び出し元のトランザクション内で実行）
+     * その決済の引き落とし記帳がない場合は払い戻さない
+     *
+     * @return 払い戻した場合、または払い戻し済みの場合true
+     */
+    @Transactional
+    public boolean credit(Long voucherId, Long paymentId, BigDecimal amount, String note) {
+        if (!ledgerRepository.existsByVoucherIdAndPaymentIdAndEntryType(voucherId, paymentId, EntryType.DEBIT)) {
+            return false;
+        }
+        Long entryId = insertIfAbsent(voucherId, paymentId, EntryType.CREDIT, amount, note);
+        if (entryId == null) {
+            return true;
+        }
+        int updated = giftVoucherRepository.creditBalance(voucherId, amount, GiftVoucherStatus.USED,
+                GiftVoucherStatus.REDEEMED);
+        if (updated == 0) {
+            logger.warn("Credit of {} to gift voucher {} would exceed its face value; skipped", amount, voucherId);
+            discard(entryId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 決済の記帳があるか
+     */
+    public boolean hasEntry(Long voucherId, Long paymentId, EntryType type) {
+        return ledgerRepository.existsByVoucherIdAndPaymentIdAndEntryType(voucherId, paymentId, type);
+    }
+
+    /**
+     * 台帳から計算した残高（額面 - 利用 + 払い戻し）をまとめて取得
+     * IN句のバインド変数の上限を超えないよう、一定件数ごとに集計クエリを分ける
+     *
+     * @param faceValues ギフト券IDと額面金額
+     */
+    public Map<Long, BigDecimal> getLedgerBalances(Map<Long, BigDecimal> faceValues) {
+        Map<Long, BigDecimal> balances = new HashMap<>(faceValues);
+        List<Long> voucherIds = new ArrayList<>(faceValues.keySet());
+        for (int from = 0; from < voucherIds.size(); from += BALANCE_QUERY_CHUNK_SIZE) {
+            List<Long> chunk = voucherIds.subList(from, Math.min(from + BALANCE_QUERY_CHUNK_SIZE, voucherIds.size()));
+            for (Object[] row : ledgerRepository.sumByVoucherIds(chunk, EntryType.DEBIT, EntryType.CREDIT)) {
+                Long voucherId = (Long) row[0];
+                BigDecimal debits = (BigDecimal) row[1];
+                BigDecimal credits = (BigDecimal) row[2];
+                balances.computeIfPresent(voucherId, (id, face) -> face.subtract(debits).add(credits));
+            }
+        }
+        return balances;
+    }
+
+    public List<GiftVoucherLedgerEntry> getEntries(Long voucherId) {
+        return ledgerRepository.findByVoucherIdOrderByIdAsc(voucherId);
+    }
+
+    /**
+     * 台帳導入前に利用されたギフト券に、利用済み額の開始残高を記帳
+     * 台帳が1件もないギフト券のみが対象のため、再起動しても重複しない
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOpeningEntries() {
+        schedulerLockService.runExclusively("gift-voucher.ledger-backfill", Duration.ofMinutes(10),
+                Duration.ofMinutes(1), () -> {
+                    int count = jdbcTemplate.update(
+                            "INSERT INTO gift_voucher_ledger (voucher_id, payment_id, entry_type, amount, note, created_at) "
+                                    + "SELECT g.id, NULL, 'DEBIT', g.amount - g.balance, 'opening balance', ? "
+                                    + "FROM gift_vouchers g WHERE g.balance < g.amount "
+                                    + "AND NOT EXISTS (SELECT 1 FROM gift_voucher_ledger l WHERE l.voucher_id = g.id)",
+                            Timestamp.valueOf(LocalDateTime.now()));
+                    if (count > 0) {
+                        logger.info("Recorded opening ledger entries for {} gift vouchers", count);
+                    }
+                    return count;
+                });
+    }
+
+    /**
+     * 台帳に記帳（同じ決済・種別の記帳が既にある場合は何もしない）
+     * 同時に記帳された場合、PostgreSQLでは先の記帳の確定を待ってから一意制約違反になる。
+     * 違反はセーブポイントまで戻して呼び出し元のトランザクションを継続する
+     *
+     * @return 記帳したエントリのID（記帳済みの場合はnull）
+     */
+    private Long insertIfAbsent(Long voucherId, Long paymentId, EntryType type, BigDecimal amount, String note) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "INSERT INTO gift_voucher_ledger (voucher_id, payment_id, entry_type, amount, note, created_at) "
+                                    + "VALUES (?, ?, ?, ?, ?, ?)",
+                            new String[] { "id" });
+                    ps.setLong(1, voucherId);
+                    if (paymentId != null) {
+                        ps.setLong(2, paymentId);
+                    } else {
+                        ps.setNull(2, Types.BIGINT);
+                    }
+                    ps.setString(3, type.name());
+                    ps.setBigDecimal(4, amount);
+                    ps.setString(5, note);
+                    ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+                    return ps;
+                }, keyHolder);
+                connection.releaseSavepoint(savepoint);
+                return keyHolder.getKey().longValue();
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 残高を増減できなかった記帳を取り消す（同じトランザクション内で記帳したもののため、外部からは見えない）
+     */
+    private void discard(Long entryId) {
+        jdbcTemplate.update("DELETE FROM gift_voucher_ledger WHERE id = ?", entryId);
+    }
+}
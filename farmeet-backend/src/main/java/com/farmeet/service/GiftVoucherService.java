@@ -6,21 +6,48 @@ import com.farmeet.repository.GiftVoucherRepository;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.security.SecureRandom;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class GiftVoucherService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GiftVoucherService.class);
+
+    /** 管理者用一覧の1ページの最大件数 */
+    public static final int MAX_ADMIN_PAGE_SIZE = 200;
+    /** コードの一意制約違反時に新しいコードで再試行する回数 */
+    private static final int MAX_CODE_ATTEMPTS = 3;
+
     private final GiftVoucherRepository giftVoucherRepository;
+    private final OutboundGateway outboundGateway;
+    private final GiftVoucherCodeAllocator codeAllocator;
+    private final GiftVoucherLedgerService ledgerService;
+    private final StripeService stripeService;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Value("${app.frontend-url:http://localhost:3000}")
     private String frontendUrl;
@@ -28,23 +55,15 @@ public class GiftVoucherService {
     @Value("${stripe.secret-key:}")
     private String stripeSecretKey;
 
-    private static final String CODE_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
-    private static final int CODE_LENGTH = 16;
-    private static final SecureRandom random = new SecureRandom();
-
-    public GiftVoucherService(GiftVoucherRepository giftVoucherRepository) {
+    public GiftVoucherService(GiftVoucherRepository giftVoucherRepository, OutboundGateway outboundGateway,
+            GiftVoucherCodeAllocator codeAllocator, GiftVoucherLedgerService ledgerService,
+            StripeService stripeService, TransactionTemplate transactionTemplate) {
         this.giftVoucherRepository = giftVoucherRepository;
-    }
-
-    /**
-     * ギフト券コードを生成
-     */
-    private String generateCode() {
-        StringBuilder code = new StringBuilder(CODE_LENGTH);
-        for (int i = 0; i < CODE_LENGTH; i++) {
-            code.append(CODE_CHARS.charAt(random.nextInt(CODE_CHARS.length())));
-        }
-        return code.toString();
+        this.outboundGateway = outboundGateway;
+        this.codeAllocator = codeAllocator;
+        this.ledgerService = ledgerService;
+        this.stripeService = stripeService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     /**
@@ -94,7 +113,6 @@ public class GiftVoucherService {
     /**
      * 管理者による無料ギフト券発行
      */
-    @Transactional
     public GiftVoucherDto.AdminIssueResponse issueGiftVoucherByAdmin(
             GiftVoucherDto.AdminIssueRequest request,
             User admin) {
@@ -104,31 +122,26 @@ public class GiftVoucherService {
             throw new RuntimeException("管理者権限が必要です");
         }
 
-        // コードを生成
-        String code;
-        do {
-            code = generateCode();
-        } while (giftVoucherRepository.findByCode(code).isPresent());
-
         // 有効期限を設定（デフォルト12ヶ月）
         int expiryMonths = request.getExpiryMonths() != null ? request.getExpiryMonths() : 12;
 
         // ギフト券を作成（即座にACTIVE状態）
-        GiftVoucher voucher = new GiftVoucher();
-        voucher.setCode(code);
-        voucher.setAmount(request.getAmount());
-        voucher.setBalance(request.getAmount());
-        voucher.setStatus(GiftVoucherStatus.ACTIVE);
-        voucher.setIssuedBy(admin);
-        voucher.setFreeIssue(true);
-        voucher.setIssueReason(request.getIssueReason());
-        voucher.setRecipientName(request.getRecipientName());
-        voucher.setRecipientEmail(request.getRecipientEmail());
-        voucher.setMessage(request.getMessage());
-        voucher.setExpiresAt(LocalDateTime.now().plusMonths(expiryMonths));
-        voucher.setActivatedAt(LocalDateTime.now());
-
-        voucher = giftVoucherRepository.save(voucher);
+        GiftVoucher voucher = saveWithNewCode(code -> {
+            GiftVoucher created = new GiftVoucher();
+            created.setCode(code);
+            created.setAmount(request.getAmount());
+            created.setBalance(request.getAmount());
+            created.setStatus(GiftVoucherStatus.ACTIVE);
+            created.setIssuedBy(admin);
+            created.setFreeIssue(true);
+            created.setIssueReason(request.getIssueReason());
+            created.setRecipientName(request.getRecipientName());
+            created.setRecipientEmail(request.getRecipientEmail());
+            created.setMessage(request.getMessage());
+            created.setExpiresAt(LocalDateTime.now().plusMonths(expiryMonths));
+            created.setActivatedAt(LocalDateTime.now());
+            return giftVoucherRepository.saveAndFlush(created);
+        });
 
         return GiftVoucherDto.AdminIssueResponse.builder()
                 .success(true)
@@ -171,7 +184,7 @@ public class GiftVoucherService {
                 .setLocale(SessionCreateParams.Locale.JA)
                 .build();
 
-        Session session = Session.create(params);
+        Session session = outboundGateway.call(OutboundGateway.STRIPE, () -> Session.create(params));
 
         voucher.setStripeCheckoutSessionId(session.getId());
         giftVoucherRepository.save(voucher);
@@ -194,53 +207,35 @@ public class GiftVoucherService {
     /**
      * PayPay決済完了を処理
      */
-    @Transactional
     public GiftVoucher handlePayPayPaymentComplete(Long voucherId) {
-        GiftVoucher voucher = giftVoucherRepository.findById(voucherId)
-                .orElseThrow(() -> new RuntimeException("ギフト券が見つかりません"));
+        return saveWithNewCode(code -> {
+            GiftVoucher voucher = giftVoucherRepository.findById(voucherId)
+                    .orElseThrow(() -> new RuntimeException("ギフト券が見つかりません"));
 
-        if (voucher.getStatus() != GiftVoucherStatus.PENDING) {
-            throw new RuntimeException("このギフト券は既に処理されています");
-        }
-
-        String code;
-        do {
-            code = generateCode();
-        } while (giftVoucherRepository.findByCode(code).isPresent());
-
-        voucher.setCode(code);
-        voucher.setStatus(GiftVoucherStatus.ACTIVE);
-        voucher.setActivatedAt(LocalDateTime.now());
-        giftVoucherRepository.save(voucher);
-
-        return voucher;
+            if (voucher.getStatus() != GiftVoucherStatus.PENDING) {
+                throw new RuntimeException("このギフト券は既に処理されています");
+            }
+            return activate(voucher, code);
+        });
     }
 
     /**
      * ギフト券を有効化（決済完了後）
      */
-    @Transactional
     public GiftVoucherDto.ActivateResponse activateGiftVoucher(Long voucherId) {
-        GiftVoucher voucher = giftVoucherRepository.findById(voucherId)
-                .orElseThrow(() -> new RuntimeException("ギフト券が見つかりません"));
+        GiftVoucher voucher = saveWithNewCode(code -> {
+            GiftVoucher pending = giftVoucherRepository.findById(voucherId)
+                    .orElseThrow(() -> new RuntimeException("ギフト券が見つかりません"));
 
-        if (voucher.getStatus() != GiftVoucherStatus.PENDING) {
-            throw new RuntimeException("このギフト券は既に有効化されています");
-        }
-
-        String code;
-        do {
-            code = generateCode();
-        } while (giftVoucherRepository.findByCode(code).isPresent());
-
-        voucher.setCode(code);
-        voucher.setStatus(GiftVoucherStatus.ACTIVE);
-        voucher.setActivatedAt(LocalDateTime.now());
-        giftVoucherRepository.save(voucher);
+            if (pending.getStatus() != GiftVoucherStatus.PENDING) {
+                throw new RuntimeException("このギフト券は既に有効化されています");
+            }
+            return activate(pending, code);
+        });
 
         return GiftVoucherDto.ActivateResponse.builder()
                 .success(true)
-                .code(code)
+                .code(voucher.getCode())
                 .amount(voucher.getAmount())
                 .expiresAt(voucher.getExpiresAt())
                 .build();
@@ -249,28 +244,56 @@ public class GiftVoucherService {
     /**
      * Stripe Checkout完了を処理
      */
-    @Transactional
     public GiftVoucher handleStripeCheckoutComplete(String sessionId) throws StripeException {
-        Session session = Session.retrieve(sessionId);
-
         GiftVoucher voucher = giftVoucherRepository.findByStripeCheckoutSessionId(sessionId)
                 .orElseThrow(() -> new RuntimeException("ギフト券が見つかりません: " + sessionId));
 
-        if ("complete".equals(session.getStatus()) && "paid".equals(session.getPaymentStatus())) {
-            voucher.setStripePaymentIntentId(session.getPaymentIntent());
-
-            String code;
-            do {
-                code = generateCode();
-            } while (giftVoucherRepository.findByCode(code).isPresent());
+        // 処理済みの通知が重複して届いた場合は何もしない
+        if (voucher.getStatus() != GiftVoucherStatus.PENDING) {
+            return voucher;
+        }
 
-            voucher.setCode(code);
-            voucher.setStatus(GiftVoucherStatus.ACTIVE);
-            voucher.setActivatedAt(LocalDateTime.now());
-            giftVoucherRepository.save(voucher);
+        StripeGateway.CheckoutState state = stripeService.fetchCheckoutState(sessionId);
+        if (!state.isPaid()) {
+            return voucher;
         }
 
-        return voucher;
+        return saveWithNewCode(code -> {
+            GiftVoucher pending = giftVoucherRepository.findById(voucher.getId()).orElseThrow();
+            if (pending.getStatus() != GiftVoucherStatus.PENDING) {
+                return pending;
+            }
+            pending.setStripePaymentIntentId(state.paymentIntentId());
+            return activate(pending, code);
+        });
+    }
+
+    /**
+     * コードを割り当ててACTIVEにする（一意制約違反をトランザクション内で検出するため即座にフラッシュする）
+     */
+    private GiftVoucher activate(GiftVoucher voucher, String code) {
+        voucher.setCode(code);
+        voucher.setStatus(GiftVoucherStatus.ACTIVE);
+        voucher.setActivatedAt(LocalDateTime.now());
+        return giftVoucherRepository.saveAndFlush(voucher);
+    }
+
+    /**
+     * 新しいコードを払い出して1トランザクションで保存する
+     * 他ノードが同じコードを発行していた場合（実質的に起きない）はトランザクションごとやり直し、新しいコードで再試行する
+     */
+    private GiftVoucher saveWithNewCode(Function<String, GiftVoucher> save) {
+        for (int attempt = 1;; attempt++) {
+            String code = codeAllocator.nextCode();
+            try {
+                return transactionTemplate.execute(status -> save.apply(code));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_CODE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Duplicate gift voucher code, retrying with a new code (attempt {})", attempt);
+            }
+        }
     }
 
     /**
@@ -350,9 +373,145 @@ public class GiftVoucherService {
      * 管理者用: 全ギフト券一覧を取得
      */
     public List<GiftVoucherDto> getAllVouchers() {
-        return giftVoucherRepository.findAll()
-                .stream()
-                .map(this::toDto)
+        List<GiftVoucher> vouchers = giftVoucherRepository.findAll();
+        // 台帳の残高は1回の集計クエリでまとめて計算
+        Map<Long, BigDecimal> ledgerBalances = ledgerService.getLedgerBalances(vouchers.stream()
+                .collect(Collectors.toMap(GiftVoucher::getId, GiftVoucher::getAmount)));
+        return vouchers.stream()
+                .map(v -> {
+                    GiftVoucherDto dto = toDto(v);
+                    dto.setLedgerBalance(ledgerBalances.get(v.getId()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 管理者用: 条件に合うギフト券をID降順でキーセットページング
+     * 指定された条件だけをWHERE句に含め、ステータス・購入者・発行日のインデックスを使えるようにする
+     *
+     * @param afterId 前ページの nextCursor（最初のページはnull）
+     */
+    @Transactional(readOnly = true)
+    public GiftVoucherDto.AdminPage searchVouchersForAdmin(GiftVoucherStatus status, LocalDate issuedFrom,
+            LocalDate issuedTo, Long purchaserId, Boolean freeIssue, Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_ADMIN_PAGE_SIZE));
+
+        StringBuilder jpql = new StringBuilder("SELECT g FROM GiftVoucher g LEFT JOIN FETCH g.purchaser WHERE 1 = 1");
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (status != null) {
+            jpql.append(" AND g.status = :status");
+            params.put("status", status);
+        }
+        if (issuedFrom != null) {
+            jpql.append(" AND g.createdAt >= :issuedFrom");
+            params.put("issuedFrom", issuedFrom.atStartOfDay());
+        }
+        if (issuedTo != null) {
+            jpql.append(" AND g.createdAt < :issuedTo");
+            params.put("issuedTo", issuedTo.plusDays(1).atStartOfDay());
+        }
+        if (purchaserId != null) {
+            jpql.append(" AND g.purchaser.id = :purchaserId");
+            params.put("purchaserId", purchaserId);
+        }
+        if (freeIssue != null) {
+            jpql.append(" AND g.freeIssue = :freeIssue");
+            params.put("freeIssue", freeIssue);
+        }
+        if (afterId != null) {
+            jpql.append(" AND g.id < :afterId");
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY g.id DESC");
+
+        TypedQuery<GiftVoucher> query = entityManager.createQuery(jpql.toString(), GiftVoucher.class);
+        params.forEach(query::setParameter);
+        // 1件多く取得して次ページの有無を判定
+        List<GiftVoucher> rows = query.setMaxResults(pageSize + 1).getResultList();
+
+        boolean hasMore = rows.size() > pageSize;
+        List<GiftVoucher> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Map<Long, BigDecimal> ledgerBalances = ledgerService.getLedgerBalances(page.stream()
+                .collect(Collectors.toMap(GiftVoucher::getId, GiftVoucher::getAmount)));
+
+        List<GiftVoucherDto> items = new ArrayList<>(page.size());
+        for (GiftVoucher voucher : page) {
+            GiftVoucherDto dto = toDto(voucher);
+            dto.setLedgerBalance(ledgerBalances.get(voucher.getId()));
+            items.add(dto);
+        }
+        return GiftVoucherDto.AdminPage.builder()
+                .items(items)
+                .nextCursor(hasMore ? page.get(page.size() - 1).getId() : null)
+                .build();
+    }
+
+    /**
+     * 管理者用: ギフト券の集計（1回の集計クエリから計算）
+     */
+    @Transactional(readOnly = true)
+    public GiftVoucherDto.AdminSummary getAdminSummary() {
+        long totalCount = 0;
+        Map<GiftVoucherStatus, Long> counts = new EnumMap<>(GiftVoucherStatus.class);
+        BigDecimal purchased = BigDecimal.ZERO;
+        BigDecimal freeIssued = BigDecimal.ZERO;
+        BigDecimal outstanding = BigDecimal.ZERO;
+        BigDecimal redeemed = BigDecimal.ZERO;
+        BigDecimal expired = BigDecimal.ZERO;
+
+        for (Object[] row : giftVoucherRepository.summarizeByStatus()) {
+            GiftVoucherStatus status = (GiftVoucherStatus) row[0];
+            boolean free = (Boolean) row[1];
+            long count = (Long) row[2];
+            BigDecimal amount = (BigDecimal) row[3];
+            BigDecimal balance = (BigDecimal) row[4];
+
+            totalCount += count;
+            counts.merge(status, count, Long::sum);
+            if (status == GiftVoucherStatus.PENDING || status == GiftVoucherStatus.CANCELLED) {
+                continue;
+            }
+            if (free) {
+                freeIssued = freeIssued.add(amount);
+            } else {
+                purchased = purchased.add(amount);
+            }
+            redeemed = redeemed.add(amount.subtract(balance));
+            if (status == GiftVoucherStatus.EXPIRED) {
+                expired = expired.add(balance);
+            } else {
+                outstanding = outstanding.add(balance);
+            }
+        }
+
+        Map<String, Long> countByStatus = new LinkedHashMap<>();
+        counts.forEach((status, count) -> countByStatus.put(status.name(), count));
+        return GiftVoucherDto.AdminSummary.builder()
+                .totalCount(totalCount)
+                .countByStatus(countByStatus)
+                .issuedAmount(purchased.add(freeIssued))
+                .purchasedAmount(purchased)
+                .freeIssuedAmount(freeIssued)
+                .outstandingBalance(outstanding)
+                .redeemedAmount(redeemed)
+                .expiredBalance(expired)
+                .build();
+    }
+
+    /**
+     * 管理者用: ギフト券の残高増減履歴を取得
+     */
+    public List<GiftVoucherDto.LedgerEntry> getLedgerEntries(Long voucherId) {
+        return ledgerService.getEntries(voucherId).stream()
+                .map(e -> GiftVoucherDto.LedgerEntry.builder()
+                        .id(e.getId())
+                        .paymentId(e.getPaymentId())
+                        .entryType(e.getEntryType().name())
+                        .amount(e.getAmount())
+                        .note(e.getNote())
+                        .createdAt(e.getCreatedAt())
+                        .build())
                 .collect(Collectors.toList());
     }
 
@@ -389,14 +548,11 @@ public class GiftVoucherService {
         }
 
         BigDecimal actualUsage = amount.min(voucher.getBalance());
-        voucher.setBalance(voucher.getBalance().subtract(actualUsage));
-
-        if (voucher.getBalance().compareTo(BigDecimal.ZERO) == 0) {
-            voucher.setStatus(GiftVoucherStatus.USED);
+        // 読み取り後に他の利用で残高が減っていた場合は条件付きUPDATEが失敗する
+        if (!ledgerService.debit(voucherId, null, actualUsage, "manual use")) {
+            throw new RuntimeException("ギフト券の残高が不足しています");
         }
 
-        giftVoucherRepository.save(voucher);
-
         return actualUsage;
     }
 
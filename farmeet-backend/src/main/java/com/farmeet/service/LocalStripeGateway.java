@@ -0,0 +1,47 @@
+package com.farmeet.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ローカル検証用のStripeスタブ（stripe.stub.enabled=true の場合のみ有効）
+ * <p>
+ * 登録された状態を返し、未登録のセッションはStripeと同様に存在しないものとして取得に失敗する。
+ * stripe.stub.latency-ms で外部呼び出しの遅延を再現できる。
+ */
+@Service
+@ConditionalOnProperty(name = "stripe.stub.enabled", havingValue = "true")
+public class LocalStripeGateway implements StripeGateway {
+
+    @Value("${stripe.stub.latency-ms:50}")
+    private long latencyMs;
+
+    private final Map<String, CheckoutState> states = new ConcurrentHashMap<>();
+
+    @Override
+    public CheckoutState fetchCheckoutState(String sessionId) throws Exception {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+        CheckoutState state = states.get(sessionId);
+        if (state == null) {
+            throw new RuntimeException("No such checkout session: " + sessionId);
+        }
+        return state;
+    }
+
+    /**
+     * セッションの状態を登録
+     */
+    public void put(CheckoutState state) {
+        states.put(state.sessionId(), state);
+    }
+
+    public void clear() {
+        states.clear();
+    }
+}
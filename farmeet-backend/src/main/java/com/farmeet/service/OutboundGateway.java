@@ -0,0 +1,290 @@
+package com.farmeet.service;
+
+import com.farmeet.exception.OutboundCallException;
+import com.sendgrid.Response;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 外部サービス呼び出しの共通基盤
+ * <p>
+ * 連携先（stripe, twilio, sendgrid, supabase, gemini）ごとに、接続プール付きHTTPクライアント、
+ * 接続・読み取りタイムアウト、同時実行数を制限するスレッドプール（バルクヘッド）、レイテンシ・エラー数の計測を提供する。
+ * 設定は {@code outbound.<連携先>.connect-timeout-ms / read-timeout-ms / max-concurrency / queue-capacity}。
+ */
+@Service
+public class OutboundGateway {
+
+    public static final String STRIPE = "stripe";
+    public static final String TWILIO = "twilio";
+    public static final String SENDGRID = "sendgrid";
+    public static final String SUPABASE = "supabase";
+    public static final String GEMINI = "gemini";
+
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 5_000;
+    private static final int DEFAULT_READ_TIMEOUT_MS = 30_000;
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+
+    /** 外部呼び出し本体（チェック例外をそのまま呼び出し元に伝える） */
+    @FunctionalInterface
+    public interface OutboundCall<T, E extends Exception> {
+        T execute() throws E;
+    }
+
+    private final Environment environment;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    private final Map<String, CloseableHttpClient> apacheClients = new ConcurrentHashMap<>();
+
+    public OutboundGateway(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * 連携先のバルクヘッド上で呼び出しを実行し、レイテンシとエラーを記録
+     * 例外に加えて、ステータス400以上のHTTPレスポンスを返した呼び出しもエラーとして数える
+     * 読み取りタイムアウトを超えた場合や同時実行数を超えた場合は {@link OutboundCallException}
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T call(String targetName, OutboundCall<T, E> call) throws E {
+        Target target = target(targetName);
+        long start = System.nanoTime();
+
+        Callable<T> task = call::execute;
+        Future<T> future;
+        try {
+            future = target.executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            target.rejected.increment();
+            throw new OutboundCallException(targetName + " is overloaded, call rejected");
+        }
+
+        try {
+            T result = future.get(target.callTimeoutMs, TimeUnit.MILLISECONDS);
+            target.record(System.nanoTime() - start, isErrorResponse(result));
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            target.timeouts.increment();
+            target.record(System.nanoTime() - start, true);
+            throw new OutboundCallException(targetName + " call timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OutboundCallException(targetName + " call interrupted", e);
+        } catch (ExecutionException e) {
+            target.record(System.nanoTime() - start, true);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * 連携先ごとの共有HTTPクライアント（Keep-Alive接続を再利用）
+     */
+    public HttpClient httpClient(String targetName) {
+        return target(targetName).httpClient;
+    }
+
+    /**
+     * 共有HTTPクライアントを使うRestTemplate
+     */
+    public RestTemplate restTemplate(String targetName) {
+        Target target = target(targetName);
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(target.httpClient);
+        factory.setReadTimeout(Duration.ofMillis(target.readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+
+    /**
+     * Apache HttpClientを使うSDK（Twilio, SendGrid）向けのタイムアウト設定
+     */
+    public RequestConfig apacheRequestConfig(String targetName) {
+        Target target = target(targetName);
+        return RequestConfig.custom()
+                .setConnectTimeout(target.connectTimeoutMs)
+                .setConnectionRequestTimeout(target.connectTimeoutMs)
+                .setSocketTimeout(target.readTimeoutMs)
+                .build();
+    }
+
+    /**
+     * Apache HttpClientを使うSDK向けの接続プール付きクライアント（連携先ごとに共有）
+     */
+    public CloseableHttpClient apacheHttpClient(String targetName) {
+        return apacheClients.computeIfAbsent(targetName, name -> {
+            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(maxConcurrency(name));
+            connectionManager.setDefaultMaxPerRoute(maxConcurrency(name));
+            return HttpClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(apacheRequestConfig(name))
+                    .build();
+        });
+    }
+
+    public int connectTimeoutMs(String targetName) {
+        return target(targetName).connectTimeoutMs;
+    }
+
+    public int readTimeoutMs(String targetName) {
+        return target(targetName).readTimeoutMs;
+    }
+
+    public int maxConcurrency(String targetName) {
+        return target(targetName).maxConcurrency;
+    }
+
+    /**
+     * 連携先ごとの呼び出し件数・エラー数・レイテンシ
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        targets.keySet().stream().sorted().forEach(name -> metrics.put(name, targets.get(name).snapshot()));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        targets.values().forEach(target -> target.executor.shutdownNow());
+        apacheClients.values().forEach(client -> {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // 停止時のため無視
+            }
+        });
+    }
+
+    /**
+     * 呼び出し結果がエラーのHTTPレスポンスか（SendGrid・RestTemplate・JDK HttpClientのレスポンスを判定）
+     */
+    private static boolean isErrorResponse(Object result) {
+        int status;
+        if (result instanceof Response response) {
+            status = response.getStatusCode();
+        } else if (result instanceof ResponseEntity<?> response) {
+            status = response.getStatusCode().value();
+        } else if (result instanceof HttpResponse<?> response) {
+            status = response.statusCode();
+        } else {
+            return false;
+        }
+        return status >= 400;
+    }
+
+    private Target target(String name) {
+        return targets.computeIfAbsent(name, this::createTarget);
+    }
+
+    private Target createTarget(String name) {
+        String prefix = "outbound." + name + ".";
+        int connectTimeoutMs = environment.getProperty(prefix + "connect-timeout-ms", Integer.class,
+                DEFAULT_CONNECT_TIMEOUT_MS);
+        int readTimeoutMs = environment.getProperty(prefix + "read-timeout-ms", Integer.class,
+                DEFAULT_READ_TIMEOUT_MS);
+        int maxConcurrency = environment.getProperty(prefix + "max-concurrency", Integer.class,
+                DEFAULT_MAX_CONCURRENCY);
+        int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class,
+                DEFAULT_QUEUE_CAPACITY);
+        return new Target(name, connectTimeoutMs, readTimeoutMs, maxConcurrency, queueCapacity);
+    }
+
+    private static final class Target {
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+        private final int maxConcurrency;
+        /** 接続と読み取りの合計を呼び出し全体の上限とする（SDK側のリトライ分の余裕を含める） */
+        private final long callTimeoutMs;
+        private final HttpClient httpClient;
+        private final ThreadPoolExecutor executor;
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        private Target(String name, int connectTimeoutMs, int readTimeoutMs, int maxConcurrency, int queueCapacity) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.maxConcurrency = maxConcurrency;
+            this.callTimeoutMs = 2L * (connectTimeoutMs + readTimeoutMs);
+            this.httpClient = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, "outbound-" + name + "-" + threadCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private void record(long nanos, boolean failed) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        private Map<String, Object> snapshot() {
+            long count = calls.sum();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("calls", count);
+            snapshot.put("errors", errors.sum());
+            snapshot.put("timeouts", timeouts.sum());
+            snapshot.put("rejected", rejected.sum());
+            snapshot.put("avgLatencyMs", count > 0 ? totalNanos.sum() / count / 1_000_000.0 : 0.0);
+            snapshot.put("maxLatencyMs", maxNanos.get() / 1_000_000.0);
+            snapshot.put("active", executor.getActiveCount());
+            snapshot.put("queued", executor.getQueue().size());
+            snapshot.put("maxConcurrency", maxConcurrency);
+            snapshot.put("connectTimeoutMs", connectTimeoutMs);
+            snapshot.put("readTimeoutMs", readTimeoutMs);
+            return snapshot;
+        }
+    }
+}
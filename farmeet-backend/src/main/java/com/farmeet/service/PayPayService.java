@@ -69,24 +69,15 @@ public class PayPayService {
     }
 
     /**
-     * 返金処理（モック実装）
-     * 本番環境では PayPay Refund API を使用
+     * 返金を実行して返金IDを返す（モック実装。DBは更新しないため、トランザクション外から呼び出す）
+     * 本番環境では PayPay Refund API を使用し、merchantRefundId に冪等キーを渡す
      */
-    @Transactional
-    public Payment refund(Payment payment, BigDecimal refundAmount) {
-        // 本番環境では PayPay Refund API を呼び出す
-
-        BigDecimal totalRefunded = payment.getRefundedAmount().add(refundAmount);
-        payment.setRefundedAmount(totalRefunded);
-        payment.setRefundedAt(LocalDateTime.now());
-
-        if (totalRefunded.compareTo(payment.getAmount()) >= 0) {
-            payment.setPaymentStatus(PaymentStatus.REFUNDED);
-        } else {
-            payment.setPaymentStatus(PaymentStatus.PARTIALLY_REFUNDED);
+    public String requestRefund(String paypayPaymentId, BigDecimal refundAmount, String idempotencyKey) {
+        if (paypayPaymentId == null) {
+            throw new RuntimeException("No PayPay payment ID found");
         }
-
-        return paymentRepository.save(payment);
+        // 本番環境では PayPay Refund API を呼び出す
+        return "PAYPAY_REFUND_" + idempotencyKey;
     }
 
     /**
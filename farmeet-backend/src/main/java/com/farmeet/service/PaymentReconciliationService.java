@@ -0,0 +1,370 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.ReconciliationRun;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.repository.PaymentRepository;
+import com.farmeet.repository.ReconciliationRunRepository;
+import com.farmeet.scheduler.SchedulerLockService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stripeとローカルの決済状態を照合し、差分を修正・記録する
+ * <p>
+ * 決済をID順にチャンク単位で読み込み、Stripeへの問い合わせは同時実行数を制限して並列に行う。
+ * 修正はチャンクごとに1トランザクションのバッチUPDATEで反映し、条件付きUPDATEで並行更新との競合を避ける。
+ */
+@Service
+public class PaymentReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    public static final String JOB_NAME = "payment.reconcile-stripe";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofHours(2);
+    /** レポートに保存する差分明細の上限 */
+    private static final int MAX_REPORTED_DIFFS = 1000;
+
+    private static final List<PaymentStatus> TARGET_STATUSES = List.of(
+            PaymentStatus.PENDING, PaymentStatus.COMPLETED, PaymentStatus.PARTIALLY_REFUNDED);
+    private static final List<ReservationStatus> PENDING_RESERVATION_STATUSES = List.of(
+            ReservationStatus.PENDING_PAYMENT, ReservationStatus.AWAITING_TRANSFER);
+
+    public enum DiffType {
+        /** Stripeでは支払い済みだがローカルは決済待ち（自動修正） */
+        MISSING_COMPLETION,
+        /** Stripeでは支払い済みだが予約がすでにキャンセル・完了している（要返金・手動対応） */
+        PAID_BUT_RESERVATION_CLOSED,
+        /** Stripeの返金額がローカルより多い（自動修正） */
+        REFUND_NOT_RECORDED,
+        /** ローカルは決済完了だがStripeでは未払い（要手動対応） */
+        NOT_PAID_AT_PROVIDER,
+        /** 決済額が一致しない（要手動対応） */
+        AMOUNT_MISMATCH,
+        /** Stripeから状態を取得できなかった */
+        FETCH_FAILED
+    }
+
+    /**
+     * 差分の明細
+     */
+    public record Diff(Long paymentId, Long reservationId, String sessionId, DiffType type,
+            String local, String provider, boolean corrected) {
+    }
+
+    private record PaymentRow(Long paymentId, String sessionId, PaymentStatus status, BigDecimal amount,
+            BigDecimal refundedAmount, Long reservationId, ReservationStatus reservationStatus, Long voucherId) {
+    }
+
+    private final PaymentRepository paymentRepository;
+    private final ReconciliationRunRepository runRepository;
+    private final PaymentService paymentService;
+    private final StripeGateway stripeGateway;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${reconciliation.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${reconciliation.concurrency:8}")
+    private int concurrency;
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository,
+            ReconciliationRunRepository runRepository,
+            PaymentService paymentService,
+            StripeGateway stripeGateway,
+            SchedulerLockService schedulerLockService,
+            TransactionTemplate transactionTemplate,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper) {
+        this.paymentRepository = paymentRepository;
+        this.runRepository = runRepository;
+        this.paymentService = paymentService;
+        this.stripeGateway = stripeGateway;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * リースを取得できた場合のみ照合を実行
+     *
+     * @return 実行した場合は結果、他ノードが実行中の場合は空
+     */
+    public Optional<ReconciliationRun> runExclusively(Duration lockAtLeastFor) {
+        AtomicReference<ReconciliationRun> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            ReconciliationRun run = reconcile();
+            result.set(run);
+            return run.getCheckedCount();
+        });
+        return Optional.ofNullable(result.get());
+    }
+
+    public List<ReconciliationRun> getRecentRuns() {
+        return runRepository.findTop20ByOrderByIdDesc();
+    }
+
+    public Optional<ReconciliationRun> getRun(Long id) {
+        return runRepository.findById(id);
+    }
+
+    private ReconciliationRun reconcile() {
+        ReconciliationRun run = new ReconciliationRun();
+        run.setStartedAt(LocalDateTime.now());
+        List<Diff> diffs = new ArrayList<>();
+        int checked = 0;
+        int corrected = 0;
+        int failed = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long afterId = 0L;
+            while (true) {
+                long cursor = afterId;
+                List<Object[]> rawRows = transactionTemplate.execute(status -> paymentRepository
+                        .findReconciliationRows(PaymentMethod.STRIPE, TARGET_STATUSES, cursor,
+                                PageRequest.of(0, chunkSize)));
+                if (rawRows == null || rawRows.isEmpty()) {
+                    break;
+                }
+                List<PaymentRow> rows = rawRows.stream().map(this::toRow).toList();
+                afterId = rows.get(rows.size() - 1).paymentId();
+
+                List<StripeGateway.CheckoutState> states = fetchStates(rows, executor);
+                List<Diff> chunkDiffs = compare(rows, states);
+                List<Diff> applied = transactionTemplate.execute(status -> applyCorrections(rows, states, chunkDiffs));
+
+                checked += rows.size();
+                for (Diff diff : applied != null ? applied : chunkDiffs) {
+                    if (diff.corrected()) {
+                        corrected++;
+                    }
+                    if (diff.type() == DiffType.FETCH_FAILED) {
+                        failed++;
+                    }
+                    if (diffs.size() < MAX_REPORTED_DIFFS) {
+                        diffs.add(diff);
+                    }
+                }
+                run.setDiffCount(run.getDiffCount() + chunkDiffs.size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        run.setCheckedCount(checked);
+        run.setCorrectedCount(corrected);
+        run.setFailedCount(failed);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setDiffs(toJson(diffs));
+        ReconciliationRun saved = runRepository.save(run);
+
+        logger.info("Reconciled {} Stripe payments: {} diffs, {} corrected, {} fetch failures",
+                checked, saved.getDiffCount(), corrected, failed);
+        return saved;
+    }
+
+    /**
+     * チャンク内の全決済の状態を並列に取得（取得に失敗した要素はnull）
+     */
+    private List<StripeGateway.CheckoutState> fetchStates(List<PaymentRow> rows, ExecutorService executor) {
+        List<CompletableFuture<StripeGateway.CheckoutState>> futures = rows.stream()
+                .map(row -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return stripeGateway.fetchCheckoutState(row.sessionId());
+                    } catch (Exception e) {
+                        logger.warn("Failed to fetch Stripe session {}: {}", row.sessionId(), e.getMessage());
+                        return null;
+                    }
+                }, executor))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private List<Diff> compare(List<PaymentRow> rows, List<StripeGateway.CheckoutState> states) {
+        List<Diff> diffs = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            PaymentRow row = rows.get(i);
+            StripeGateway.CheckoutState state = states.get(i);
+            if (state == null) {
+                diffs.add(diff(row, DiffType.FETCH_FAILED, null));
+                continue;
+            }
+
+            if (state.amountTotal() != null && row.amount().longValue() != state.amountTotal()) {
+                diffs.add(diff(row, DiffType.AMOUNT_MISMATCH, state));
+                continue;
+            }
+
+            if (row.status() == PaymentStatus.PENDING) {
+                if (state.isPaid()) {
+                    diffs.add(diff(row, PENDING_RESERVATION_STATUSES.contains(row.reservationStatus())
+                            ? DiffType.MISSING_COMPLETION
+                            : DiffType.PAID_BUT_RESERVATION_CLOSED, state));
+                }
+                continue;
+            }
+
+            if (!state.isPaid()) {
+                diffs.add(diff(row, DiffType.NOT_PAID_AT_PROVIDER, state));
+            } else if (state.amountRefunded() > row.refundedAmount().longValue()) {
+                diffs.add(diff(row, DiffType.REFUND_NOT_RECORDED, state));
+            }
+        }
+        return diffs;
+    }
+
+    /**
+     * 自動修正できる差分をバッチUPDATEで反映（並行して更新された決済は条件が一致せずスキップされる）
+     */
+    private List<Diff> applyCorrections(List<PaymentRow> rows, List<StripeGateway.CheckoutState> states,
+            List<Diff> diffs) {
+        List<Diff> completions = diffs.stream().filter(d -> d.type() == DiffType.MISSING_COMPLETION).toList();
+        List<Diff> refunds = diffs.stream().filter(d -> d.type() == DiffType.REFUND_NOT_RECORDED).toList();
+        if (completions.isEmpty() && refunds.isEmpty()) {
+            return diffs;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Diff> result = new ArrayList<>(diffs);
+
+        if (!completions.isEmpty()) {
+            // 予約を先に確定し、確定できた予約の決済だけを完了にする
+            // 期限切れ・キャンセル済みの予約は決済を完了にせず、返金が必要な差分として報告する
+            List<Object[]> reservationArgs = new ArrayList<>();
+            for (Diff d : completions) {
+                reservationArgs.add(new Object[] { d.reservationId() });
+            }
+            int[] confirmed = jdbcTemplate.batchUpdate(
+                    "UPDATE reservations SET status = 'CONFIRMED' WHERE id = ? "
+                            + "AND status IN ('PENDING_PAYMENT', 'AWAITING_TRANSFER')",
+                    reservationArgs);
+
+            List<Diff> confirmedCompletions = new ArrayList<>();
+            List<Object[]> args = new ArrayList<>();
+            for (int i = 0; i < completions.size(); i++) {
+                Diff d = completions.get(i);
+                if (confirmed[i] == 0) {
+                    result.set(result.indexOf(d), withType(d, DiffType.PAID_BUT_RESERVATION_CLOSED));
+                    continue;
+                }
+                StripeGateway.CheckoutState state = stateOf(rows, states, d.paymentId());
+                confirmedCompletions.add(d);
+                args.add(new Object[] { now, state.paymentIntentId(), now, d.paymentId() });
+            }
+            if (!args.isEmpty()) {
+                // 0件更新は完了通知の処理で先に完了になった場合（予約の確定も同じ結果になる）
+                int[] counts = jdbcTemplate.batchUpdate(
+                        "UPDATE payments SET payment_status = 'COMPLETED', paid_at = ?, stripe_payment_intent_id = ?, "
+                                + "updated_at = ? WHERE id = ? AND payment_status = 'PENDING'",
+                        args);
+                for (int i = 0; i < confirmedCompletions.size(); i++) {
+                    if (counts[i] == 0) {
+                        continue;
+                    }
+                    Diff d = confirmedCompletions.get(i);
+                    result.set(result.indexOf(d), markCorrected(d));
+
+                    // ギフト券を併用していた場合は残高を消費
+                    if (rowOf(rows, d.paymentId()).voucherId() != null) {
+                        paymentRepository.findById(d.paymentId()).ifPresent(paymentService::consumeVoucher);
+                    }
+                }
+            }
+        }
+
+        if (!refunds.isEmpty()) {
+            List<Object[]> args = new ArrayList<>();
+            for (Diff d : refunds) {
+                PaymentRow row = rowOf(rows, d.paymentId());
+                BigDecimal refunded = BigDecimal.valueOf(stateOf(rows, states, d.paymentId()).amountRefunded());
+                PaymentStatus newStatus = refunded.compareTo(row.amount()) >= 0
+                        ? PaymentStatus.REFUNDED
+                        : PaymentStatus.PARTIALLY_REFUNDED;
+                args.add(new Object[] { refunded, newStatus.name(), now, now, d.paymentId(), row.status().name(),
+                        row.refundedAmount() });
+            }
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "UPDATE payments SET refunded_amount = ?, payment_status = ?, refunded_at = ?, updated_at = ? "
+                            + "WHERE id = ? AND payment_status = ? AND refunded_amount = ?",
+                    args);
+            for (int i = 0; i < refunds.size(); i++) {
+                if (counts[i] != 0) {
+                    Diff d = refunds.get(i);
+                    result.set(result.indexOf(d), markCorrected(d));
+                }
+            }
+        }
+        return result;
+    }
+
+    private PaymentRow toRow(Object[] row) {
+        return new PaymentRow(
+                (Long) row[0],
+                (String) row[1],
+                (PaymentStatus) row[2],
+                (BigDecimal) row[3],
+                row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO,
+                (Long) row[5],
+                (ReservationStatus) row[6],
+                (Long) row[7]);
+    }
+
+    private PaymentRow rowOf(List<PaymentRow> rows, Long paymentId) {
+        return rows.stream().filter(r -> r.paymentId().equals(paymentId)).findFirst().orElseThrow();
+    }
+
+    private StripeGateway.CheckoutState stateOf(List<PaymentRow> rows, List<StripeGateway.CheckoutState> states,
+            Long paymentId) {
+        return states.get(rows.indexOf(rowOf(rows, paymentId)));
+    }
+
+    private Diff diff(PaymentRow row, DiffType type, StripeGateway.CheckoutState state) {
+        String local = row.status() + " amount=" + row.amount() + " refunded=" + row.refundedAmount()
+                + " reservation=" + row.reservationStatus();
+        String provider = state == null ? null
+                : state.sessionStatus() + "/" + state.paymentStatus() + " amount=" + state.amountTotal()
+                        + " refunded=" + state.amountRefunded();
+        return new Diff(row.paymentId(), row.reservationId(), row.sessionId(), type, local, provider, false);
+    }
+
+    private Diff withType(Diff d, DiffType type) {
+        return new Diff(d.paymentId(), d.reservationId(), d.sessionId(), type, d.local(), d.provider(), false);
+    }
+
+    private Diff markCorrected(Diff d) {
+        return new Diff(d.paymentId(), d.reservationId(), d.sessionId(), d.type(), d.local(), d.provider(), true);
+    }
+
+    private String toJson(List<Diff> diffs) {
+        try {
+            return objectMapper.writeValueAsString(diffs);
+        } catch (JsonProcessingException e) {
+            return "[]";
+        }
+    }
+}
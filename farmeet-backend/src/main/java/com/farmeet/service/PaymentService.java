@@ -1,42 +1,75 @@
 package com.farmeet.service;
 
 import com.farmeet.entity.GiftVoucher;
-import com.farmeet.entity.GiftVoucherStatus;
+import com.farmeet.entity.GiftVoucherLedgerEntry;
 import com.farmeet.entity.Payment;
 import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentOperation;
 import com.farmeet.entity.PaymentStatus;
 import com.farmeet.entity.Reservation;
 import com.farmeet.repository.GiftVoucherRepository;
+import com.farmeet.repository.PaymentOperationRepository;
 import com.farmeet.repository.PaymentRepository;
 import com.farmeet.repository.ReservationRepository;
+import com.farmeet.scheduler.PaymentDeadlineScheduler;
 import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class PaymentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
+    /** 有効期限がこれより近いCheckout Sessionは再利用しない（決済画面での入力中に失効しないように） */
+    private static final Duration CHECKOUT_REUSE_MARGIN = Duration.ofMinutes(10);
+
     private final PaymentRepository paymentRepository;
     private final ReservationRepository reservationRepository;
     private final GiftVoucherRepository giftVoucherRepository;
     private final StripeService stripeService;
     private final PayPayService payPayService;
+    private final PaymentDeadlineScheduler paymentDeadlineScheduler;
+    private final PaymentOperationRepository paymentOperationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final GiftVoucherLedgerService giftVoucherLedgerService;
 
     public PaymentService(PaymentRepository paymentRepository,
             ReservationRepository reservationRepository,
             GiftVoucherRepository giftVoucherRepository,
             StripeService stripeService,
-            PayPayService payPayService) {
+            PayPayService payPayService,
+            PaymentDeadlineScheduler paymentDeadlineScheduler,
+            PaymentOperationRepository paymentOperationRepository,
+            TransactionTemplate transactionTemplate,
+            GiftVoucherLedgerService giftVoucherLedgerService) {
         this.paymentRepository = paymentRepository;
         this.reservationRepository = reservationRepository;
         this.giftVoucherRepository = giftVoucherRepository;
         this.stripeService = stripeService;
         this.payPayService = payPayService;
+        this.paymentDeadlineScheduler = paymentDeadlineScheduler;
+        this.paymentOperationRepository = paymentOperationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.giftVoucherLedgerService = giftVoucherLedgerService;
     }
 
     /**
@@ -49,9 +82,44 @@ public class PaymentService {
 
     /**
      * 決済情報を作成（ギフト券適用あり）
+     * ギフト券の使用額はこの時点で残高から確保する（残高が足りない場合は例外）
      */
     @Transactional
     public Payment createPayment(Reservation reservation, PaymentMethod paymentMethod, Long voucherId) {
+        Payment payment = new Payment();
+        payment.setReservation(reservation);
+        payment.setPaymentMethod(paymentMethod);
+        payment.setPaymentStatus(PaymentStatus.PENDING);
+        payment.setRefundedAmount(BigDecimal.ZERO);
+        applyVoucher(payment, reservation, voucherId);
+
+        if (paymentMethod == PaymentMethod.BANK_TRANSFER) {
+            // 振込期限: イベント日の3日前 または 7日後 の早い方
+            LocalDateTime eventDate = reservation.getEvent().getEventDate();
+            LocalDateTime sevenDaysLater = LocalDateTime.now().plusDays(7);
+            LocalDateTime threeDaysBeforeEvent = eventDate.minusDays(3);
+
+            LocalDateTime transferDeadline = sevenDaysLater.isBefore(threeDaysBeforeEvent)
+                    ? sevenDaysLater
+                    : threeDaysBeforeEvent;
+
+            // 振込期限がすでに過ぎている場合は銀行振込不可
+            if (transferDeadline.isBefore(LocalDateTime.now().plusDays(1))) {
+                throw new RuntimeException("イベント開催日が近いため、銀行振込はご利用いただけません。クレジットカードまたはPayPayをご利用ください。");
+            }
+
+            payment.setTransferDeadline(transferDeadline);
+        }
+
+        Payment saved = paymentRepository.save(payment);
+        holdVoucher(saved);
+        return saved;
+    }
+
+    /**
+     * ギフト券を適用して決済額を計算（voucherIdがnullの場合はギフト券なし）
+     */
+    private void applyVoucher(Payment payment, Reservation reservation, Long voucherId) {
         BigDecimal totalPrice = reservation.getTotalPrice();
         BigDecimal voucherAmount = BigDecimal.ZERO;
         GiftVoucher usedVoucher = null;
@@ -74,74 +142,189 @@ public class PaymentService {
             voucherAmount = usedVoucher.getBalance().min(totalPrice);
         }
 
-        Payment payment = new Payment();
-        payment.setReservation(reservation);
-        payment.setPaymentMethod(paymentMethod);
-        payment.setPaymentStatus(PaymentStatus.PENDING);
         payment.setAmount(totalPrice.subtract(voucherAmount)); // 実際の決済額
         payment.setVoucherAmount(voucherAmount);
         payment.setUsedVoucher(usedVoucher);
-        payment.setRefundedAmount(BigDecimal.ZERO);
-
-        if (paymentMethod == PaymentMethod.BANK_TRANSFER) {
-            // 振込期限: イベント日の3日前 または 7日後 の早い方
-            LocalDateTime eventDate = reservation.getEvent().getEventDate();
-            LocalDateTime sevenDaysLater = LocalDateTime.now().plusDays(7);
-            LocalDateTime threeDaysBeforeEvent = eventDate.minusDays(3);
-
-            LocalDateTime transferDeadline = sevenDaysLater.isBefore(threeDaysBeforeEvent)
-                    ? sevenDaysLater
-                    : threeDaysBeforeEvent;
-
-            // 振込期限がすでに過ぎている場合は銀行振込不可
-            if (transferDeadline.isBefore(LocalDateTime.now().plusDays(1))) {
-                throw new RuntimeException("イベント開催日が近いため、銀行振込はご利用いただけません。クレジットカードまたはPayPayをご利用ください。");
-            }
+    }
 
-            payment.setTransferDeadline(transferDeadline);
+    /**
+     * ギフト券の使用額を残高から確保（決済の作成・ギフト券の変更時に呼び出し）
+     * 残高は条件付きUPDATEで減らすため、同じギフト券を使った決済が同時に作成されても残高を超えて割り引かない
+     */
+    private void holdVoucher(Payment payment) {
+        if (payment.getUsedVoucher() == null || payment.getVoucherAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        Long voucherId = payment.getUsedVoucher().getId();
+        // 台帳は決済ごとに1回しか記帳できないため、一度払い戻したギフト券は同じ決済で確保し直せない
+        if (giftVoucherLedgerService.hasEntry(voucherId, payment.getId(), GiftVoucherLedgerEntry.EntryType.CREDIT)) {
+            throw new RuntimeException("一度取り消したギフト券は、この予約では再度ご利用いただけません");
         }
+        if (!giftVoucherLedgerService.debit(voucherId, payment.getId(), payment.getVoucherAmount(),
+                "reservation " + payment.getReservation().getId())) {
+            throw new RuntimeException("ギフト券の残高が不足しているか、使用できません");
+        }
+    }
 
-        return paymentRepository.save(payment);
+    /**
+     * 未完了の決済で確保したギフト券の使用額を残高に戻す（予約のキャンセル・ギフト券の変更時）
+     */
+    @Transactional
+    public void releaseVoucherHold(Payment payment) {
+        if (payment.getUsedVoucher() == null || payment.getVoucherAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        giftVoucherLedgerService.credit(payment.getUsedVoucher().getId(), payment.getId(),
+                payment.getVoucherAmount(), "released for reservation " + payment.getReservation().getId());
     }
 
     /**
-     * ギフト券の残高を消費（決済完了時に呼び出し）
+     * 決済完了時にギフト券の使用額を確定
+     * 通常は決済作成時に確保済みのため何もしない。確保していない・確保を払い戻し済みで引き落とせない場合は、
+     * 不足額を決済に記録して管理画面から確認できるようにする
      */
     @Transactional
     public void consumeVoucher(Payment payment) {
-        if (payment.getUsedVoucher() != null && payment.getVoucherAmount().compareTo(BigDecimal.ZERO) > 0) {
-            GiftVoucher voucher = payment.getUsedVoucher();
-            voucher.setBalance(voucher.getBalance().subtract(payment.getVoucherAmount()));
+        if (payment.getUsedVoucher() == null || payment.getVoucherAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        Long voucherId = payment.getUsedVoucher().getId();
+        boolean released = giftVoucherLedgerService.hasEntry(voucherId, payment.getId(),
+                GiftVoucherLedgerEntry.EntryType.CREDIT);
+        if (!released && giftVoucherLedgerService.debit(voucherId, payment.getId(), payment.getVoucherAmount(),
+                "reservation " + payment.getReservation().getId())) {
+            return;
+        }
+        if (payment.getAmount().compareTo(BigDecimal.ZERO) == 0) {
+            // ギフト券のみで支払う場合は決済を完了させない
+            throw new RuntimeException("ギフト券の残高が不足しているか、使用できません");
+        }
+        // 残りは決済サービスで支払い済みのため決済は完了させ、不足額を記録する
+        payment.setVoucherShortfall(payment.getVoucherAmount());
+        paymentRepository.save(payment);
+        logger.warn("Gift voucher {} could not cover {} for payment {}; recorded as shortfall",
+                voucherId, payment.getVoucherAmount(), payment.getId());
+    }
 
-            if (voucher.getBalance().compareTo(BigDecimal.ZERO) == 0) {
-                voucher.setStatus(GiftVoucherStatus.USED);
-            }
+    /**
+     * ギフト券の残高から引き落とせなかった決済（新しい順、最大100件）
+     */
+    public List<Map<String, Object>> getVoucherShortfalls() {
+        return paymentRepository.findVoucherShortfalls(PageRequest.of(0, 100)).stream()
+                .map(row -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("paymentId", row[0]);
+                    item.put("reservationId", row[1]);
+                    item.put("voucherId", row[2]);
+                    item.put("shortfall", row[3]);
+                    item.put("paidAt", row[4]);
+                    return item;
+                })
+                .toList();
+    }
 
-            giftVoucherRepository.save(voucher);
+    /**
+     * キャンセル時にギフト券の使用分を返金率に応じて残高に払い戻す
+     */
+    private void creditVoucher(Reservation reservation, Payment payment) {
+        if (payment.getUsedVoucher() == null || payment.getVoucherAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        BigDecimal creditAmount = payment.getVoucherAmount().multiply(refundRate(reservation))
+                .setScale(0, RoundingMode.DOWN);
+        if (creditAmount.compareTo(BigDecimal.ZERO) > 0) {
+            giftVoucherLedgerService.credit(payment.getUsedVoucher().getId(), payment.getId(), creditAmount,
+                    "refund for reservation " + reservation.getId());
         }
     }
 
     /**
      * Stripe Checkout URLを取得
      */
-    @Transactional
     public String initiateStripePayment(Long reservationId) throws StripeException {
         return initiateStripePayment(reservationId, null);
     }
 
     /**
      * Stripe Checkout URLを取得（ギフト券適用あり）
+     * 有効期限内で金額・ギフト券が変わっていないCheckout Sessionがあればそれを再利用する。
+     * DBの準備と結果の反映はそれぞれ短いトランザクションで行い、Stripe APIはトランザクション外で呼び出す
      */
-    @Transactional
     public String initiateStripePayment(Long reservationId, Long voucherId) throws StripeException {
+        CheckoutPreparation preparation = transactionTemplate
+                .execute(status -> prepareStripeCheckout(reservationId, voucherId));
+        if (preparation == null) {
+            return null; // 決済不要
+        }
+        if (preparation.reusableUrl() != null) {
+            return preparation.reusableUrl();
+        }
+
+        StripeService.CheckoutRequest request = preparation.request();
+        Session session;
+        try {
+            session = stripeService.createCheckoutSession(request, "checkout-op-" + request.operationId());
+        } catch (StripeException | RuntimeException e) {
+            recordOperationFailure(request.operationId(), e);
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Payment payment = paymentRepository.findById(request.paymentId())
+                    .orElseThrow(() -> new RuntimeException("Payment not found"));
+            payment.setStripeCheckoutSessionId(session.getId());
+            payment.setStripeCheckoutUrl(session.getUrl());
+            payment.setStripeCheckoutExpiresAt(session.getExpiresAt() != null
+                    ? LocalDateTime.ofInstant(Instant.ofEpochSecond(session.getExpiresAt()), ZoneId.systemDefault())
+                    : null);
+            payment.setStripeCheckoutAmount(request.amount());
+            payment.setStripeCheckoutVoucherId(preparation.voucherId());
+            paymentRepository.save(payment);
+            paymentOperationRepository.markSucceeded(request.operationId(), PaymentOperation.Status.SUCCEEDED,
+                    session.getId(), LocalDateTime.now());
+        });
+
+        // 金額やギフト券が変わる前の古いセッションで支払われないよう失効させる
+        if (preparation.replacedSessionId() != null) {
+            stripeService.expireCheckoutSession(preparation.replacedSessionId());
+        }
+
+        return session.getUrl();
+    }
+
+    /**
+     * Checkout Session作成の準備結果
+     *
+     * @param reusableUrl       再利用できる既存セッションのURL
+     * @param request           新規作成する場合のリクエスト
+     * @param voucherId         適用したギフト券ID
+     * @param replacedSessionId 置き換える古いセッションID
+     */
+    private record CheckoutPreparation(String reusableUrl, StripeService.CheckoutRequest request,
+            Long voucherId, String replacedSessionId) {
+    }
+
+    /**
+     * Checkout Session作成の準備（決済情報と操作記録を作成）
+     * ギフト券で全額支払いの場合はその場で決済を完了し、nullを返す
+     */
+    private CheckoutPreparation prepareStripeCheckout(Long reservationId, Long voucherId) {
         Reservation reservation = getReservationById(reservationId);
 
         Payment payment = paymentRepository.findByReservationId(reservationId)
                 .orElseGet(() -> createPayment(reservation, PaymentMethod.STRIPE, voucherId));
 
+        // 決済待ちのままギフト券の指定が変わった場合は、確保済みの額を戻してから決済額を計算し直す
+        if (payment.getPaymentStatus() == PaymentStatus.PENDING && !Objects.equals(usedVoucherId(payment), voucherId)) {
+            releaseVoucherHold(payment);
+            applyVoucher(payment, reservation, voucherId);
+            paymentRepository.save(payment);
+            holdVoucher(payment);
+        }
+
         // 決済額が0の場合（ギフト券で全額支払い）
         if (payment.getAmount().compareTo(BigDecimal.ZERO) == 0) {
-            // ギフト券の残高を消費
+            // ギフト券の使用額を確定
             consumeVoucher(payment);
 
             // 決済完了として処理
@@ -152,10 +335,42 @@ public class PaymentService {
             reservation.setStatus(Reservation.ReservationStatus.CONFIRMED);
             reservationRepository.save(reservation);
 
-            return null; // 決済不要
+            return null;
         }
 
-        return stripeService.createCheckoutSession(payment, reservation);
+        if (isCheckoutSessionReusable(payment)) {
+            return new CheckoutPreparation(payment.getStripeCheckoutUrl(), null, usedVoucherId(payment), null);
+        }
+
+        PaymentOperation operation = recordOperation(payment, PaymentOperation.OperationType.CHECKOUT_SESSION,
+                payment.getAmount());
+
+        StripeService.CheckoutRequest request = new StripeService.CheckoutRequest(
+                operation.getId(),
+                payment.getId(),
+                reservation.getId(),
+                payment.getAmount(),
+                reservation.getEvent().getTitle(),
+                reservation.getEvent().getFarm().getName() + " - " + reservation.getNumberOfPeople() + "名様");
+        return new CheckoutPreparation(null, request, usedVoucherId(payment), payment.getStripeCheckoutSessionId());
+    }
+
+    /**
+     * 保存済みのCheckout Sessionが再利用できるか（有効期限内・決済待ち・金額とギフト券が作成時と同じ）
+     */
+    private boolean isCheckoutSessionReusable(Payment payment) {
+        return payment.getPaymentStatus() == PaymentStatus.PENDING
+                && payment.getStripeCheckoutSessionId() != null
+                && payment.getStripeCheckoutUrl() != null
+                && payment.getStripeCheckoutExpiresAt() != null
+                && payment.getStripeCheckoutExpiresAt().isAfter(LocalDateTime.now().plus(CHECKOUT_REUSE_MARGIN))
+                && payment.getStripeCheckoutAmount() != null
+                && payment.getStripeCheckoutAmount().compareTo(payment.getAmount()) == 0
+                && Objects.equals(payment.getStripeCheckoutVoucherId(), usedVoucherId(payment));
+    }
+
+    private Long usedVoucherId(Payment payment) {
+        return payment.getUsedVoucher() != null ? payment.getUsedVoucher().getId() : null;
     }
 
     /**
@@ -228,6 +443,9 @@ public class PaymentService {
         reservation.setStatus(Reservation.ReservationStatus.AWAITING_TRANSFER);
         reservationRepository.save(reservation);
 
+        // 振込待ちも支払い期限で自動キャンセルされるよう登録
+        paymentDeadlineScheduler.schedule(reservation);
+
         return payment;
     }
 
@@ -243,7 +461,7 @@ public class PaymentService {
             throw new RuntimeException("This payment is not a bank transfer");
         }
 
-        // ギフト券の残高を消費
+        // ギフト券の使用額を確定
         consumeVoucher(payment);
 
         payment.setPaymentStatus(PaymentStatus.COMPLETED);
@@ -270,7 +488,7 @@ public class PaymentService {
             throw new RuntimeException("This payment is not a PayPay payment");
         }
 
-        // ギフト券の残高を消費
+        // ギフト券の使用額を確定
         consumeVoucher(payment);
 
         payment.setPaymentStatus(PaymentStatus.COMPLETED);
@@ -297,69 +515,156 @@ public class PaymentService {
 
     /**
      * 返金処理（キャンセルポリシーに基づく）
+     * 返金操作の記録と結果の反映はそれぞれ短いトランザクションで行い、決済サービスはトランザクション外で呼び出す
      */
-    @Transactional
     public Payment processRefund(Long reservationId) throws StripeException {
-        Reservation reservation = getReservationById(reservationId);
-        Payment payment = paymentRepository.findByReservationId(reservationId)
+        Long operationId = transactionTemplate.execute(status -> prepareRefund(getReservationById(reservationId)));
+        if (operationId == null) {
+            return paymentRepository.findByReservationId(reservationId)
+                    .orElseThrow(() -> new RuntimeException("Payment not found for reservation"));
+        }
+        return executeRefund(operationId);
+    }
+
+    /**
+     * 返金操作を記録（呼び出し元のトランザクション内で実行）
+     * 外部サービスへの返金が不要な場合（返金額0・銀行振込）はその場で反映し、nullを返す
+     *
+     * @return 返金操作ID（{@link #executeRefund(Long)} にトランザクション外で渡す）
+     */
+    @Transactional
+    public Long prepareRefund(Reservation reservation) {
+        Payment payment = paymentRepository.findByReservationId(reservation.getId())
                 .orElseThrow(() -> new RuntimeException("Payment not found for reservation"));
 
         if (payment.getPaymentStatus() != PaymentStatus.COMPLETED) {
             throw new RuntimeException("Cannot refund: payment is not completed");
         }
 
+        // ギフト券の使用分は決済サービスを介さずに払い戻す（記帳済みなら何もしない）
+        creditVoucher(reservation, payment);
+
+        // 未完了の返金操作があれば二重に記録しない
+        Optional<PaymentOperation> inFlight = paymentOperationRepository.findFirstByPaymentIdAndOperationTypeAndStatusIn(
+                payment.getId(), PaymentOperation.OperationType.REFUND,
+                List.of(PaymentOperation.Status.PENDING, PaymentOperation.Status.FAILED));
+        if (inFlight.isPresent()) {
+            return inFlight.get().getId();
+        }
+
         // 返金額を計算
         BigDecimal refundAmount = calculateRefundAmount(reservation, payment);
 
         if (refundAmount.compareTo(BigDecimal.ZERO) <= 0) {
             // 返金なし
-            payment.setPaymentStatus(PaymentStatus.COMPLETED);
-            return paymentRepository.save(payment);
+            return null;
         }
 
-        // 決済方法に応じて返金処理
         switch (payment.getPaymentMethod()) {
             case STRIPE:
-                return stripeService.refund(payment, refundAmount);
             case PAYPAY:
-                return payPayService.refund(payment, refundAmount);
+                return recordOperation(payment, PaymentOperation.OperationType.REFUND, refundAmount).getId();
             case BANK_TRANSFER:
                 // 銀行振込の返金は手動対応
-                payment.setRefundedAmount(refundAmount);
-                payment.setRefundedAt(LocalDateTime.now());
-                if (refundAmount.compareTo(payment.getAmount()) >= 0) {
-                    payment.setPaymentStatus(PaymentStatus.REFUNDED);
-                } else {
-                    payment.setPaymentStatus(PaymentStatus.PARTIALLY_REFUNDED);
-                }
-                return paymentRepository.save(payment);
+                applyRefund(payment, refundAmount);
+                return null;
             default:
                 throw new RuntimeException("Unknown payment method");
         }
     }
 
+    /**
+     * 記録済みの返金操作を決済サービスに送信し、結果を反映（トランザクション外から呼び出す）
+     * 冪等キーに操作IDを使うため、再実行しても二重返金にはならない
+     */
+    public Payment executeRefund(Long operationId) throws StripeException {
+        PaymentOperation operation = paymentOperationRepository.findWithPaymentById(operationId)
+                .orElseThrow(() -> new RuntimeException("Payment operation not found"));
+        Payment payment = operation.getPayment();
+        if (operation.getStatus() == PaymentOperation.Status.SUCCEEDED) {
+            return payment;
+        }
+
+        String idempotencyKey = "refund-op-" + operationId;
+        String refundId;
+        try {
+            refundId = switch (payment.getPaymentMethod()) {
+                case STRIPE -> stripeService.createRefund(
+                        payment.getStripePaymentIntentId(), operation.getAmount(), idempotencyKey);
+                case PAYPAY -> payPayService.requestRefund(
+                        payment.getPaypayPaymentId(), operation.getAmount(), idempotencyKey);
+                default -> throw new RuntimeException("Unsupported refund method: " + payment.getPaymentMethod());
+            };
+        } catch (StripeException | RuntimeException e) {
+            recordOperationFailure(operationId, e);
+            throw e;
+        }
+
+        return transactionTemplate.execute(status -> {
+            Payment current = paymentRepository.findById(payment.getId())
+                    .orElseThrow(() -> new RuntimeException("Payment not found"));
+            // 同じ操作の結果を二重に反映しない
+            int updated = paymentOperationRepository.markSucceeded(operationId, PaymentOperation.Status.SUCCEEDED,
+                    refundId, LocalDateTime.now());
+            if (updated > 0) {
+                applyRefund(current, operation.getAmount());
+            }
+            return current;
+        });
+    }
+
+    private void applyRefund(Payment payment, BigDecimal refundAmount) {
+        BigDecimal totalRefunded = payment.getRefundedAmount().add(refundAmount);
+        payment.setRefundedAmount(totalRefunded);
+        payment.setRefundedAt(LocalDateTime.now());
+
+        if (totalRefunded.compareTo(payment.getAmount()) >= 0) {
+            payment.setPaymentStatus(PaymentStatus.REFUNDED);
+        } else {
+            payment.setPaymentStatus(PaymentStatus.PARTIALLY_REFUNDED);
+        }
+        paymentRepository.save(payment);
+    }
+
+    private PaymentOperation recordOperation(Payment payment, PaymentOperation.OperationType type,
+            BigDecimal amount) {
+        PaymentOperation operation = new PaymentOperation();
+        operation.setPayment(payment);
+        operation.setOperationType(type);
+        operation.setStatus(PaymentOperation.Status.PENDING);
+        operation.setAmount(amount);
+        return paymentOperationRepository.save(operation);
+    }
+
+    private void recordOperationFailure(Long operationId, Exception e) {
+        transactionTemplate.executeWithoutResult(status -> paymentOperationRepository.markFailed(
+                operationId, PaymentOperation.Status.FAILED, PaymentOperation.Status.SUCCEEDED,
+                e.getClass().getSimpleName() + ": " + e.getMessage(), LocalDateTime.now()));
+    }
+
     /**
      * キャンセルポリシーに基づく返金額を計算
      * - 4日前まで: 100%
      * - 1〜3日前: 50%
      * - 当日: 0%
-     * 注: ギフト券使用分は返金対象外（そのまま残高に戻す等の対応が必要な場合は別途実装）
+     * 注: ギフト券使用分は含まない（同じ返金率でギフト券の残高に払い戻す）
      */
     public BigDecimal calculateRefundAmount(Reservation reservation, Payment payment) {
+        return payment.getAmount().multiply(refundRate(reservation)).setScale(0, RoundingMode.DOWN);
+    }
+
+    private BigDecimal refundRate(Reservation reservation) {
         LocalDateTime eventDate = reservation.getEvent().getEventDate();
         LocalDateTime now = LocalDateTime.now();
         long daysUntilEvent = ChronoUnit.DAYS.between(now, eventDate);
 
-        BigDecimal refundRate;
         if (daysUntilEvent >= 4) {
-            refundRate = BigDecimal.ONE; // 100%
+            return BigDecimal.ONE; // 100%
         } else if (daysUntilEvent >= 1) {
-            refundRate = new BigDecimal("0.5"); // 50%
+            return new BigDecimal("0.5"); // 50%
         } else {
-            refundRate = BigDecimal.ZERO; // 0%
+            return BigDecimal.ZERO; // 0%
         }
-
-        return payment.getAmount().multiply(refundRate).setScale(0, RoundingMode.DOWN);
     }
 
     /**
@@ -389,15 +694,24 @@ public class PaymentService {
 
     /**
      * StripeのCheckout Session完了を処理
+     * Checkout Sessionの取得はトランザクション外で行い、反映のみを短いトランザクションで実行
      */
-    @Transactional
     public void handleStripeCheckoutComplete(String sessionId) throws StripeException {
-        Payment payment = stripeService.handleCheckoutSessionCompleted(sessionId);
-        if (payment.getPaymentStatus() == PaymentStatus.COMPLETED) {
-            // ギフト券の残高を消費
-            consumeVoucher(payment);
-            confirmReservationPayment(payment.getReservation().getId());
+        // 同じセッションの完了通知が重複して届いた場合は何もしない（Webhookとリダイレクトの両方から呼ばれる）
+        // ここでの確認はStripeへの問い合わせを省くためのもので、重複の防止は条件付き更新で行う
+        Payment existing = paymentRepository.findByStripeCheckoutSessionId(sessionId).orElse(null);
+        if (existing != null && existing.getPaymentStatus() != PaymentStatus.PENDING) {
+            return;
         }
+
+        StripeGateway.CheckoutState state = stripeService.fetchCheckoutState(sessionId);
+
+        transactionTemplate.executeWithoutResult(status -> stripeService.handleCheckoutSessionCompleted(state)
+                .ifPresent(payment -> {
+                    // ギフト券の使用額を確定
+                    consumeVoucher(payment);
+                    confirmReservationPayment(payment.getReservation().getId());
+                }));
     }
 
     private Reservation getReservationById(Long reservationId) {
@@ -0,0 +1,321 @@
+package com.farmeet.service;
+
+import com.farmeet.repository.ExperienceEventRepository;
+import com.farmeet.scheduler.SchedulerLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 人気の農園・イベントのランキング
+ *
+ * 予約件数はイベントごとのカウンター列（experience_events.reservation_count）として予約の作成・キャンセル時に増減する。
+ * ランキングはカウンターと直近の予約から定期的に作り直したメモリ上の順序付き集合で、その間はこのノードでの増減を反映する。
+ * 直近7日・30日のランキングは予約日時に応じて指数的に減衰させた件数で並べる。
+ */
+@Service
+public class PopularityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityService.class);
+
+    public static final String JOB_NAME = "popularity.rebuild-reservation-counts";
+    private static final Duration LOCK_AT_MOST_FOR = Duration.ofMinutes(30);
+
+    /** 減衰件数の集計対象期間（時定数の3倍より古い予約の重みは5%未満のため切り捨てる） */
+    private static final int DECAY_HORIZON_FACTOR = 3;
+
+    private static final String REBUILD_SQL = "UPDATE experience_events SET reservation_count = "
+            + "(SELECT COUNT(*) FROM reservations r WHERE r.event_id = experience_events.id AND r.status <> 'CANCELLED') "
+            + "WHERE reservation_count <> "
+            + "(SELECT COUNT(*) FROM reservations r WHERE r.event_id = experience_events.id AND r.status <> 'CANCELLED')";
+
+    /**
+     * ランキングの集計期間
+     */
+    public enum Window {
+        ALL(0),
+        LAST_7_DAYS(7),
+        LAST_30_DAYS(30);
+
+        /** 減衰の時定数（日）。0は減衰なし */
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        boolean decayed() {
+            return days > 0;
+        }
+
+        /**
+         * リクエストパラメータ（all / 7d / 30d）から変換
+         */
+        public static Window fromParam(String value) {
+            return switch (value) {
+                case "all" -> ALL;
+                case "7d" -> LAST_7_DAYS;
+                case "30d" -> LAST_30_DAYS;
+                default -> throw new RuntimeException("Unknown popularity window: " + value);
+            };
+        }
+    }
+
+    private record FarmInfo(String name, String location) {
+    }
+
+    private record EventInfo(String title, long farmId) {
+    }
+
+    /**
+     * ある時点で作り直したランキング一式
+     *
+     * 減衰件数は作り直した時刻を基準点とした重み exp((予約日時 - 基準点) / 時定数) の合計で保持する。
+     * 全件が同じ割合で減衰するため時間が経っても順位は変わらず、表示時だけ現在時刻まで減衰させればよい。
+     */
+    private static final class Snapshot {
+        final LocalDateTime landmark;
+        final Map<Long, FarmInfo> farms;
+        final Map<Long, EventInfo> events;
+        final Map<Window, TopKRanking> farmRankings = new EnumMap<>(Window.class);
+        final Map<Window, TopKRanking> eventRankings = new EnumMap<>(Window.class);
+
+        Snapshot(LocalDateTime landmark, Map<Long, FarmInfo> farms, Map<Long, EventInfo> events) {
+            this.landmark = landmark;
+            this.farms = farms;
+            this.events = events;
+            for (Window window : Window.values()) {
+                farmRankings.put(window, new TopKRanking());
+                eventRankings.put(window, new TopKRanking());
+            }
+        }
+
+        double weight(Window window, LocalDateTime at) {
+            if (!window.decayed()) {
+                return 1.0;
+            }
+            double days = Duration.between(landmark, at).toSeconds() / 86400.0;
+            return Math.exp(days / window.days);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExperienceEventRepository eventRepository;
+    private final SchedulerLockService schedulerLockService;
+
+    private volatile Snapshot snapshot = new Snapshot(LocalDateTime.now(), Map.of(), Map.of());
+
+    public PopularityService(JdbcTemplate jdbcTemplate, ExperienceEventRepository eventRepository,
+            SchedulerLockService schedulerLockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventRepository = eventRepository;
+        this.schedulerLockService = schedulerLockService;
+    }
+
+    /**
+     * イベントの予約件数を増減（呼び出し元のトランザクション内で実行し、ランキングへはコミット後に反映する）
+     *
+     * キャンセルによる減少は全期間のランキングにだけ即時反映し、減衰件数は次回の作り直しで反映する。
+     */
+    public void recordReservations(Long eventId, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        eventRepository.adjustReservationCount(eventId, delta);
+
+        LocalDateTime at = LocalDateTime.now();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(eventId, delta, at);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(eventId, delta, at);
+            }
+        });
+    }
+
+    private void apply(long eventId, int delta, LocalDateTime at) {
+        Snapshot current = snapshot;
+        EventInfo event = current.events.get(eventId);
+        if (event == null) {
+            // 作り直し以降に作成されたイベントは次回の作り直しで登録される
+            return;
+        }
+        for (Window window : Window.values()) {
+            if (window.decayed() && delta < 0) {
+                continue;
+            }
+            double weighted = delta * current.weight(window, at);
+            current.eventRankings.get(window).add(eventId, weighted);
+            current.farmRankings.get(window).add(event.farmId(), weighted);
+        }
+    }
+
+    /**
+     * カウンターと直近の予約からランキングを作り直す
+     *
+     * 作り直しの最中にコミットされた増減は古いランキングに適用されて失われることがあるが、次回の作り直しで反映される。
+     */
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        LocalDateTime landmark = LocalDateTime.now();
+
+        Map<Long, FarmInfo> farms = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, location FROM farms WHERE deleted = false",
+                rs -> {
+                    farms.put(rs.getLong(1), new FarmInfo(rs.getString(2), rs.getString(3)));
+                });
+
+        Map<Window, Map<Long, Double>> farmScores = new EnumMap<>(Window.class);
+        Map<Window, Map<Long, Double>> eventScores = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            Map<Long, Double> scores = new HashMap<>();
+            farms.keySet().forEach(farmId -> scores.put(farmId, 0.0));
+            farmScores.put(window, scores);
+            eventScores.put(window, new HashMap<>());
+        }
+
+        // 削除済みイベントの予約も農園の件数には含める
+        Map<Long, EventInfo> events = new HashMap<>();
+        jdbcTemplate.query("SELECT id, title, farm_id, reservation_count, deleted FROM experience_events",
+                rs -> {
+                    long eventId = rs.getLong(1);
+                    long farmId = rs.getLong(3);
+                    long count = rs.getLong(4);
+                    events.put(eventId, new EventInfo(rs.getString(2), farmId));
+                    farmScores.get(Window.ALL).computeIfPresent(farmId, (id, score) -> score + count);
+                    if (!rs.getBoolean(5)) {
+                        eventScores.values().forEach(scores -> scores.put(eventId, 0.0));
+                        eventScores.get(Window.ALL).put(eventId, (double) count);
+                    }
+                });
+
+        Snapshot next = new Snapshot(landmark, farms, events);
+        loadDecayedScores(next, farmScores, eventScores);
+        for (Window window : Window.values()) {
+            farmScores.get(window).forEach(next.farmRankings.get(window)::put);
+            eventScores.get(window).forEach(next.eventRankings.get(window)::put);
+        }
+
+        snapshot = next;
+        logger.debug("Refreshed popularity rankings for {} farms and {} events in {} ms",
+                farms.size(), events.size(), System.currentTimeMillis() - start);
+    }
+
+    private void loadDecayedScores(Snapshot next, Map<Window, Map<Long, Double>> farmScores,
+            Map<Window, Map<Long, Double>> eventScores) {
+        int horizonDays = Window.LAST_30_DAYS.days * DECAY_HORIZON_FACTOR;
+        LocalDate today = next.landmark.toLocalDate();
+
+        jdbcTemplate.query("SELECT r.event_id, CAST(r.created_at AS DATE), COUNT(*) FROM reservations r "
+                + "WHERE r.status <> 'CANCELLED' AND r.created_at >= ? "
+                + "GROUP BY r.event_id, CAST(r.created_at AS DATE)",
+                rs -> {
+                    long eventId = rs.getLong(1);
+                    EventInfo event = next.events.get(eventId);
+                    if (event == null) {
+                        return;
+                    }
+                    LocalDate date = rs.getDate(2).toLocalDate();
+                    long count = rs.getLong(3);
+                    // 日単位の集計のため、当日分は基準点、それ以前はその日の正午に予約されたものとして扱う
+                    LocalDateTime at = date.equals(today) ? next.landmark : date.atTime(12, 0);
+                    for (Window window : Window.values()) {
+                        if (!window.decayed()) {
+                            continue;
+                        }
+                        double weighted = count * next.weight(window, at);
+                        eventScores.get(window).computeIfPresent(eventId, (id, score) -> score + weighted);
+                        farmScores.get(window).computeIfPresent(event.farmId(), (id, score) -> score + weighted);
+                    }
+                }, Timestamp.valueOf(today.minusDays(horizonDays).atStartOfDay()));
+    }
+
+    /**
+     * 人気の農園（予約件数の多い順）
+     */
+    public List<Map<String, Object>> getPopularFarms(Window window, int limit) {
+        Snapshot current = snapshot;
+        double decay = decayToNow(current, window);
+        List<Map<String, Object>> farms = new ArrayList<>();
+        for (TopKRanking.Entry entry : current.farmRankings.get(window).top(limit)) {
+            FarmInfo info = current.farms.get(entry.id());
+            Map<String, Object> farm = new HashMap<>();
+            farm.put("id", entry.id());
+            farm.put("name", info.name());
+            farm.put("location", info.location());
+            farm.put("reservationCount", count(window, entry.score() * decay));
+            farms.add(farm);
+        }
+        return farms;
+    }
+
+    /**
+     * 人気のイベント（予約件数の多い順）
+     */
+    public List<Map<String, Object>> getPopularEvents(Window window, int limit) {
+        Snapshot current = snapshot;
+        double decay = decayToNow(current, window);
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (TopKRanking.Entry entry : current.eventRankings.get(window).top(limit)) {
+            EventInfo info = current.events.get(entry.id());
+            FarmInfo farmInfo = current.farms.get(info.farmId());
+            Map<String, Object> event = new HashMap<>();
+            event.put("id", entry.id());
+            event.put("title", info.title());
+            event.put("farmName", farmInfo != null ? farmInfo.name() : null);
+            event.put("reservationCount", count(window, entry.score() * decay));
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static double decayToNow(Snapshot current, Window window) {
+        return 1.0 / current.weight(window, LocalDateTime.now());
+    }
+
+    private static Object count(Window window, double value) {
+        if (!window.decayed()) {
+            return Math.round(value);
+        }
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * リースを取得できた場合のみ予約件数のカウンターを予約テーブルから作り直し、ランキングも作り直す
+     *
+     * @return 件数を修正したイベント数。他ノードが実行中の場合は空
+     */
+    public Optional<Integer> rebuildExclusively(Duration lockAtLeastFor) {
+        AtomicReference<Integer> result = new AtomicReference<>();
+        schedulerLockService.runExclusively(JOB_NAME, LOCK_AT_MOST_FOR, lockAtLeastFor, () -> {
+            long start = System.currentTimeMillis();
+            int corrected = jdbcTemplate.update(REBUILD_SQL);
+            if (corrected > 0) {
+                logger.info("Corrected reservation counts for {} events in {} ms",
+                        corrected, System.currentTimeMillis() - start);
+            }
+            result.set(corrected);
+            return corrected;
+        });
+        refresh();
+        return Optional.ofNullable(result.get());
+    }
+}
@@ -0,0 +1,118 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.repository.ExperienceEventRepository;
+import com.farmeet.repository.PaymentRepository;
+import com.farmeet.repository.ReservationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 支払い期限を過ぎた未決済予約をキャンセルしてスロットと確保済みのギフト券の使用額を戻すサービス
+ */
+@Service
+public class ReservationExpiryService {
+
+    /** 支払い待ちとして扱うステータス */
+    public static final List<ReservationStatus> PENDING_STATUSES = List.of(
+            ReservationStatus.PENDING_PAYMENT,
+            ReservationStatus.AWAITING_TRANSFER);
+
+    /** ギフト券の使用額を確保したまま完了していない決済のステータス */
+    private static final List<PaymentStatus> UNFINISHED_PAYMENT_STATUSES = List.of(
+            PaymentStatus.PENDING, PaymentStatus.FAILED, PaymentStatus.CANCELLED);
+
+    private final ReservationRepository reservationRepository;
+    private final ExperienceEventRepository eventRepository;
+    private final PopularityService popularityService;
+    private final PaymentRepository paymentRepository;
+    private final GiftVoucherLedgerService giftVoucherLedgerService;
+
+    public ReservationExpiryService(ReservationRepository reservationRepository,
+            ExperienceEventRepository eventRepository, PopularityService popularityService,
+            PaymentRepository paymentRepository, GiftVoucherLedgerService giftVoucherLedgerService) {
+        this.reservationRepository = reservationRepository;
+        this.eventRepository = eventRepository;
+        this.popularityService = popularityService;
+        this.paymentRepository = paymentRepository;
+        this.giftVoucherLedgerService = giftVoucherLedgerService;
+    }
+
+    /**
+     * 予約がまだ未決済ならキャンセルしてスロットを戻す
+     *
+     * @return キャンセルした場合true（決済済み・キャンセル済み・存在しない場合はfalse）
+     */
+    @Transactional
+    public boolean expireIfPending(Long reservationId) {
+        List<Object[]> rows = reservationRepository.findEventIdAndPeopleById(reservationId);
+        if (rows.isEmpty()) {
+            return false;
+        }
+
+        int updated = reservationRepository.updateStatusIfIn(
+                reservationId, PENDING_STATUSES, ReservationStatus.CANCELLED);
+        if (updated == 0) {
+            return false;
+        }
+
+        Long eventId = (Long) rows.get(0)[0];
+        int people = ((Number) rows.get(0)[1]).intValue();
+        eventRepository.incrementAvailableSlots(eventId, people);
+        popularityService.recordReservations(eventId, -1);
+        releaseVoucherHolds(List.of(reservationId));
+        return true;
+    }
+
+    /**
+     * 行ロック済みの予約（ID・イベントID・人数）をキャンセルし、実際にキャンセルした分のスロットと予約件数を戻す
+     * 呼び出し側のトランザクション内で、ロックを取得したまま呼び出すこと
+     *
+     * @return キャンセルした件数
+     */
+    public int cancelLocked(List<Object[]> lockedRows, List<ReservationStatus> fromStatuses) {
+        if (lockedRows.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>();
+        Map<Long, int[]> peopleByEvent = new LinkedHashMap<>();
+        for (Object[] row : lockedRows) {
+            ids.add((Long) row[0]);
+            int[] totals = peopleByEvent.computeIfAbsent((Long) row[1], eventId -> new int[2]);
+            totals[0] += ((Number) row[2]).intValue();
+            totals[1]++;
+        }
+
+        int updated = reservationRepository.bulkUpdateStatusByIds(ids, fromStatuses, ReservationStatus.CANCELLED);
+        if (updated != ids.size()) {
+            // ロック中は変わらないはずだが、一致しない場合はロールバックして次回に再試行する
+            throw new RuntimeException("Expected to cancel " + ids.size() + " reservations but updated " + updated);
+        }
+
+        // イベントごとに人数と件数をまとめてスロットと予約件数を戻す
+        peopleByEvent.forEach((eventId, totals) -> {
+            eventRepository.incrementAvailableSlots(eventId, totals[0]);
+            popularityService.recordReservations(eventId, -totals[1]);
+        });
+        releaseVoucherHolds(ids);
+        return updated;
+    }
+
+    /**
+     * キャンセルした予約の未完了の決済が確保していたギフト券の使用額を残高に戻す（払い戻し済みなら何もしない）
+     */
+    private void releaseVoucherHolds(List<Long> reservationIds) {
+        for (Object[] hold : paymentRepository.findVoucherHolds(reservationIds, UNFINISHED_PAYMENT_STATUSES)) {
+            Long paymentId = (Long) hold[0];
+            giftVoucherLedgerService.credit((Long) hold[1], paymentId, (BigDecimal) hold[2],
+                    "released for expired payment " + paymentId);
+        }
+    }
+}
@@ -11,13 +11,18 @@ import com.farmeet.repository.ExperienceEventRepository;
 import com.farmeet.repository.PaymentRepository;
 import com.farmeet.repository.ReservationParticipantRepository;
 import com.farmeet.repository.ReservationRepository;
+import com.farmeet.scheduler.PaymentDeadlineScheduler;
 import com.stripe.exception.StripeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +32,12 @@ import java.util.UUID;
 @Service
 public class ReservationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReservationService.class);
+
+    /** 利用者がキャンセルできるステータス（キャンセル済み以外） */
+    private static final List<Reservation.ReservationStatus> CANCELLABLE_STATUSES = List.copyOf(
+            EnumSet.complementOf(EnumSet.of(Reservation.ReservationStatus.CANCELLED)));
+
     @Autowired
     private ReservationRepository reservationRepository;
 
@@ -42,6 +53,15 @@ public class ReservationService {
     @Autowired
     private ReservationParticipantRepository participantRepository;
 
+    @Autowired
+    private PaymentDeadlineScheduler paymentDeadlineScheduler;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PopularityService popularityService;
+
     @Transactional(readOnly = true)
     public List<ReservationDto> getUserReservationsAsDto(Long userId) {
         // 自分が予約者の予約
@@ -128,11 +148,18 @@ public class ReservationService {
         reservation.setStatus(Reservation.ReservationStatus.PENDING_PAYMENT);
         reservation.setTotalPrice(totalPrice);
 
-        // Update available slots
-        event.setAvailableSlots(event.getAvailableSlots() - totalPeople);
-        eventRepository.save(event);
+        // 空き枠は条件付きUPDATEで確保する（期限切れキャンセルなどと同時に更新しても失われない）
+        if (eventRepository.decrementAvailableSlotsIfEnough(eventId, totalPeople) == 0) {
+            throw new RuntimeException("Not enough available slots");
+        }
+
+        Reservation saved = reservationRepository.save(reservation);
+        popularityService.recordReservations(eventId, 1);
+
+        // 支払い期限で自動キャンセルされるよう登録
+        paymentDeadlineScheduler.schedule(saved);
 
-        return reservationRepository.save(reservation);
+        return saved;
     }
 
     // 後方互換性のためのオーバーロード（既存API用）
@@ -141,8 +168,25 @@ public class ReservationService {
         return createReservation(user, eventId, numberOfPeople, 0, 0);
     }
 
-    @Transactional
+    /**
+     * 予約をキャンセル
+     * キャンセルと返金操作の記録を1つの短いトランザクションで確定し、決済サービスへの返金要求はトランザクション外で行う
+     */
     public void cancelReservation(Long reservationId, User user) {
+        Long refundOperationId = transactionTemplate.execute(status -> cancelAndRecordRefund(reservationId, user));
+        if (refundOperationId == null) {
+            return;
+        }
+
+        try {
+            paymentService.executeRefund(refundOperationId);
+        } catch (StripeException | RuntimeException e) {
+            // キャンセルは確定済み。返金はPaymentSchedulerが再実行する
+            logger.warn("Refund for reservation {} failed and will be retried: {}", reservationId, e.getMessage());
+        }
+    }
+
+    private Long cancelAndRecordRefund(Long reservationId, User user) {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new RuntimeException("Reservation not found"));
 
@@ -150,31 +194,28 @@ public class ReservationService {
             throw new RuntimeException("Unauthorized");
         }
 
-        if (reservation.getStatus() == Reservation.ReservationStatus.CANCELLED) {
+        // キャンセル済みでない場合のみ条件付きUPDATEでキャンセルする
+        // 支払い期限のキャンセルと競合した場合は一方だけが成功し、スロットは1回だけ戻る
+        int cancelled = reservationRepository.updateStatusIfIn(reservationId, CANCELLABLE_STATUSES,
+                Reservation.ReservationStatus.CANCELLED);
+        if (cancelled == 0) {
             throw new RuntimeException("Reservation already cancelled");
         }
 
-        // 決済が完了している場合は返金処理を実行
+        // 決済が完了している場合は返金操作を記録し、未完了の場合は確保したギフト券の使用額を戻す
+        Long refundOperationId = null;
         Optional<Payment> paymentOpt = paymentRepository.findByReservationId(reservationId);
-        if (paymentOpt.isPresent()) {
-            Payment payment = paymentOpt.get();
-            if (payment.getPaymentStatus() == PaymentStatus.COMPLETED) {
-                try {
-                    paymentService.processRefund(reservationId);
-                } catch (StripeException e) {
-                    throw new RuntimeException("返金処理に失敗しました: " + e.getMessage());
-                }
-            }
+        if (paymentOpt.isPresent() && paymentOpt.get().getPaymentStatus() == PaymentStatus.COMPLETED) {
+            refundOperationId = paymentService.prepareRefund(reservation);
+        } else if (paymentOpt.isPresent() && paymentOpt.get().getPaymentStatus() == PaymentStatus.PENDING) {
+            paymentService.releaseVoucherHold(paymentOpt.get());
         }
 
-        reservation.setStatus(Reservation.ReservationStatus.CANCELLED);
-
         // Restore available slots
-        ExperienceEvent event = reservation.getEvent();
-        event.setAvailableSlots(event.getAvailableSlots() + reservation.getNumberOfPeople());
-        eventRepository.save(event);
-
-        reservationRepository.save(reservation);
+        Long eventId = reservation.getEvent().getId();
+        eventRepository.incrementAvailableSlots(eventId, reservation.getNumberOfPeople());
+        popularityService.recordReservations(eventId, -1);
+        return refundOperationId;
     }
 
     // ========== 招待リンク機能 ==========
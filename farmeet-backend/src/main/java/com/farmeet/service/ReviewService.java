@@ -1,5 +1,6 @@
 package com.farmeet.service;
 
+import com.farmeet.dto.ReviewDto;
 import com.farmeet.entity.Farm;
 import com.farmeet.entity.Reservation.ReservationStatus;
 import com.farmeet.entity.Review;
@@ -7,17 +8,23 @@ import com.farmeet.entity.User;
 import com.farmeet.repository.FarmRepository;
 import com.farmeet.repository.ReservationRepository;
 import com.farmeet.repository.ReviewRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ReviewService {
 
+    /** レビュー一覧の1ページの最大件数 */
+    public static final int MAX_PAGE_SIZE = 50;
+
     private final ReviewRepository reviewRepository;
     private final FarmRepository farmRepository;
     private final ReservationRepository reservationRepository;
@@ -44,23 +51,35 @@ public class ReviewService {
             throw new RuntimeException("この農園での体験を完了してからレビューを投稿できます");
         }
 
-        // 既にレビュー済みの場合は更新
-        Review review = reviewRepository.findByUserAndFarm(user, farm)
+        if (rating == null || rating < 1 || rating > 5) {
+            throw new RuntimeException("評価は1〜5で指定してください");
+        }
+
+        // 既にレビュー済みの場合は更新（変更前の評価を読んでから件数を増減するまで行ロックを保持）
+        // 初回の投稿が同時に重なった場合は一意制約で片方が失敗する
+        Review review = reviewRepository.lockByUserAndFarm(user, farm)
                 .orElse(new Review());
+        int previousRating = review.getRating() != null ? review.getRating() : 0;
 
         review.setUser(user);
         review.setFarm(farm);
         review.setRating(rating);
         review.setComment(comment);
 
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        // 農園の評価件数を同じトランザクションで増減
+        if (previousRating != rating) {
+            farmRepository.applyRatingChange(farmId, rating, previousRating);
+        }
+        return saved;
     }
 
     /**
      * レビューを削除
      */
     public void deleteReview(User user, Long reviewId) {
-        Review review = reviewRepository.findById(reviewId)
+        // 同時に削除・更新された場合に件数を二重に減らさないよう行ロックして取得
+        Review review = reviewRepository.lockById(reviewId)
                 .orElseThrow(() -> new RuntimeException("Review not found"));
 
         // 本人または管理者のみ削除可能
@@ -69,56 +88,80 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        farmRepository.applyRatingChange(review.getFarm().getId(), 0, review.getRating());
     }
 
     /**
-     * 農園のレビュー一覧取得
+     * 農園のレビューを新しい順に1ページ分取得
+     *
+     * @param cursor 前ページの nextCursor（最初のページはnull）
      */
     @Transactional(readOnly = true)
-    public List<Review> getReviewsByFarm(Long farmId) {
-        Farm farm = farmRepository.findById(farmId)
-                .orElseThrow(() -> new RuntimeException("Farm not found"));
-
-        return reviewRepository.findByFarmOrderByCreatedAtDesc(farm);
+    public ReviewDto.Page getReviewPage(Long farmId, Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // 1件多く取得して次ページの有無を判定
+        List<Review> rows = reviewRepository.findPageByFarmId(farmId,
+                cursor != null ? cursor : Long.MAX_VALUE, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Review> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        ReviewDto.Page result = new ReviewDto.Page();
+        result.setReviews(page.stream().map(ReviewDto::fromEntity).collect(Collectors.toList()));
+        result.setNextCursor(hasMore ? page.get(page.size() - 1).getId() : null);
+        return result;
     }
 
     /**
-     * 農園の平均評価を取得
+     * 農園のレビュー集計を取得（農園に保持している評価件数を1回のクエリで読む）
      */
     @Transactional(readOnly = true)
-    public Double getAverageRating(Long farmId) {
-        Farm farm = farmRepository.findById(farmId).orElse(null);
-        if (farm == null)
-            return null;
-
-        return reviewRepository.getAverageRatingByFarm(farm);
-    }
+    public ReviewDto.Summary getReviewSummary(Long farmId) {
+        List<Object[]> rows = farmRepository.findRatingCounts(List.of(farmId));
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Farm not found");
+        }
 
-    /**
-     * 農園のレビュー数を取得
-     */
-    @Transactional(readOnly = true)
-    public Long getReviewCount(Long farmId) {
-        Farm farm = farmRepository.findById(farmId).orElse(null);
-        if (farm == null)
-            return 0L;
+        Object[] row = rows.get(0);
+        Map<Integer, Long> distribution = new LinkedHashMap<>();
+        long count = 0;
+        long sum = 0;
+        for (int rating = 1; rating <= 5; rating++) {
+            long ratingCount = (Long) row[rating];
+            distribution.put(rating, ratingCount);
+            count += ratingCount;
+            sum += rating * ratingCount;
+        }
 
-        return reviewRepository.getReviewCountByFarm(farm);
+        ReviewDto.Summary summary = new ReviewDto.Summary();
+        summary.setAverageRating(count > 0 ? (double) sum / count : null);
+        summary.setReviewCount(count);
+        summary.setDistribution(distribution);
+        return summary;
     }
 
     /**
-     * 複数農園の評価情報を一括取得
+     * 複数農園の評価情報を一括取得（農園に保持している評価件数から計算）
      */
     @Transactional(readOnly = true)
     public Map<Long, double[]> getRatingsForFarms(List<Long> farmIds) {
-        List<Object[]> results = reviewRepository.getAverageRatingsForFarms(farmIds);
         Map<Long, double[]> ratingsMap = new HashMap<>();
+        if (farmIds.isEmpty()) {
+            return ratingsMap;
+        }
 
-        for (Object[] result : results) {
-            Long farmId = (Long) result[0];
-            Double avgRating = (Double) result[1];
-            Long count = (Long) result[2];
-            ratingsMap.put(farmId, new double[] { avgRating, count });
+        for (Object[] result : farmRepository.findRatingCounts(farmIds)) {
+            long count = 0;
+            long sum = 0;
+            for (int rating = 1; rating <= 5; rating++) {
+                long ratingCount = (Long) result[rating];
+                count += ratingCount;
+                sum += rating * ratingCount;
+            }
+            // レビューがない農園は含めない（従来の集計と同じ）
+            if (count > 0) {
+                ratingsMap.put((Long) result[0], new double[] { (double) sum / count, count });
+            }
         }
 
         return ratingsMap;
@@ -1,5 +1,8 @@
 package com.farmeet.service;
 
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,6 +17,24 @@ public class SmsService {
     @org.springframework.beans.factory.annotation.Value("${twilio.phone.number:}")
     private String twilioPhoneNumber;
 
+    private final OutboundGateway outboundGateway;
+
+    /** 送信ごとに初期化せず、接続プール付きのクライアントを使い回す */
+    private TwilioRestClient twilioClient;
+
+    public SmsService(OutboundGateway outboundGateway) {
+        this.outboundGateway = outboundGateway;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (accountSid != null && !accountSid.isEmpty() && authToken != null && !authToken.isEmpty()) {
+            twilioClient = new TwilioRestClient.Builder(accountSid, authToken)
+                    .httpClient(new NetworkHttpClient(outboundGateway.apacheRequestConfig(OutboundGateway.TWILIO)))
+                    .build();
+        }
+    }
+
     public void sendOtp(String phoneNumber, String otp) {
         // Log to console for debugging/fallback
         System.out.println("==================================================");
@@ -21,17 +42,14 @@ public class SmsService {
         System.out.println("OTP Code: " + otp);
         System.out.println("==================================================");
 
-        if (accountSid != null && !accountSid.isEmpty() &&
-                authToken != null && !authToken.isEmpty() &&
-                twilioPhoneNumber != null && !twilioPhoneNumber.isEmpty()) {
+        if (twilioClient != null && twilioPhoneNumber != null && !twilioPhoneNumber.isEmpty()) {
 
             try {
-                com.twilio.Twilio.init(accountSid, authToken);
-                com.twilio.rest.api.v2010.account.Message.creator(
+                outboundGateway.call(OutboundGateway.TWILIO, () -> com.twilio.rest.api.v2010.account.Message.creator(
                         new com.twilio.type.PhoneNumber(phoneNumber),
                         new com.twilio.type.PhoneNumber(twilioPhoneNumber),
                         "Your FarMeet verification code is: " + otp)
-                        .create();
+                        .create(twilioClient));
                 System.out.println("SMS sent via Twilio to " + phoneNumber);
             } catch (Exception e) {
                 System.err.println("Failed to send SMS via Twilio: " + e.getMessage());
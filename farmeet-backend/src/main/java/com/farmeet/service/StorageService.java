@@ -20,7 +20,13 @@ public class StorageService {
     @Value("${supabase.bucket:farmeet-images}")
     private String bucketName;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final OutboundGateway outboundGateway;
+    private final RestTemplate restTemplate;
+
+    public StorageService(OutboundGateway outboundGateway) {
+        this.outboundGateway = outboundGateway;
+        this.restTemplate = outboundGateway.restTemplate(OutboundGateway.SUPABASE);
+    }
 
     /**
      * Upload an image to Supabase Storage
@@ -56,11 +62,12 @@ public class StorageService {
             HttpEntity<byte[]> requestEntity = new HttpEntity<>(file.getBytes(), headers);
 
             // Upload file
-            ResponseEntity<String> response = restTemplate.exchange(
-                    uploadUrl,
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class);
+            ResponseEntity<String> response = outboundGateway.call(OutboundGateway.SUPABASE,
+                    () -> restTemplate.exchange(
+                            uploadUrl,
+                            HttpMethod.POST,
+                            requestEntity,
+                            String.class));
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 // Return public URL
@@ -100,7 +107,8 @@ public class StorageService {
 
             HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
 
-            restTemplate.exchange(deleteUrl, HttpMethod.DELETE, requestEntity, String.class);
+            outboundGateway.call(OutboundGateway.SUPABASE,
+                    () -> restTemplate.exchange(deleteUrl, HttpMethod.DELETE, requestEntity, String.class));
             System.out.println("Deleted image: " + filePath);
 
         } catch (Exception e) {
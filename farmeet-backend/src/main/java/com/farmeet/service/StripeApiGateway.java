@@ -0,0 +1,43 @@
+package com.farmeet.service;
+
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.checkout.SessionRetrieveParams;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stripe APIから決済状態を取得（Payment Intentと最新のChargeを展開して1回の呼び出しで取得する）
+ */
+@Service
+@ConditionalOnProperty(name = "stripe.stub.enabled", havingValue = "false", matchIfMissing = true)
+public class StripeApiGateway implements StripeGateway {
+
+    private final OutboundGateway outboundGateway;
+
+    public StripeApiGateway(OutboundGateway outboundGateway) {
+        this.outboundGateway = outboundGateway;
+    }
+
+    @Override
+    public CheckoutState fetchCheckoutState(String sessionId) throws Exception {
+        SessionRetrieveParams params = SessionRetrieveParams.builder()
+                .addExpand("payment_intent.latest_charge")
+                .build();
+        Session session = outboundGateway.call(OutboundGateway.STRIPE,
+                () -> Session.retrieve(sessionId, params, (RequestOptions) null));
+
+        PaymentIntent paymentIntent = session.getPaymentIntentObject();
+        Charge charge = paymentIntent != null ? paymentIntent.getLatestChargeObject() : null;
+
+        return new CheckoutState(
+                session.getId(),
+                session.getStatus(),
+                session.getPaymentStatus(),
+                session.getPaymentIntent(),
+                session.getAmountTotal(),
+                charge != null && charge.getAmountRefunded() != null ? charge.getAmountRefunded() : 0L);
+    }
+}
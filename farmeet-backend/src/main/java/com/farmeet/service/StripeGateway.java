@@ -0,0 +1,30 @@
+package com.farmeet.service;
+
+/**
+ * Stripe上の決済状態を取得するゲートウェイ
+ * <p>
+ * 本番は {@link StripeApiGateway}、{@code stripe.stub.enabled=true} の場合は {@link LocalStripeGateway} を使用する。
+ */
+public interface StripeGateway {
+
+    /**
+     * Checkout Sessionと関連するPayment Intent・返金状況を取得
+     */
+    CheckoutState fetchCheckoutState(String sessionId) throws Exception;
+
+    /**
+     * Stripe側のCheckout Sessionの状態
+     *
+     * @param sessionStatus   open / complete / expired
+     * @param paymentStatus   paid / unpaid / no_payment_required
+     * @param amountTotal     決済額（円、不明な場合はnull）
+     * @param amountRefunded  返金済み額（円）
+     */
+    record CheckoutState(String sessionId, String sessionStatus, String paymentStatus,
+            String paymentIntentId, Long amountTotal, long amountRefunded) {
+
+        public boolean isPaid() {
+            return "complete".equals(sessionStatus) && "paid".equals(paymentStatus);
+        }
+    }
+}
@@ -1,26 +1,36 @@
 package com.farmeet.service;
 
 import com.farmeet.entity.Payment;
+import com.farmeet.entity.PaymentOperation;
 import com.farmeet.entity.PaymentStatus;
-import com.farmeet.entity.Reservation;
+import com.farmeet.repository.PaymentOperationRepository;
 import com.farmeet.repository.PaymentRepository;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Refund;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.RefundCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class StripeService {
 
+    private static final Logger logger = LoggerFactory.getLogger(StripeService.class);
+
     @Value("${stripe.secret-key:}")
     private String stripeSecretKey;
 
@@ -30,10 +40,24 @@ public class StripeService {
     @Value("${app.frontend-url:http://localhost:3000}")
     private String frontendUrl;
 
+    @Value("${stripe.max-network-retries:2}")
+    private int maxNetworkRetries;
+
+    /** Checkout Sessionの有効期限（Stripeの制約上30分〜24時間） */
+    @Value("${stripe.checkout.session-ttl-minutes:60}")
+    private int checkoutSessionTtlMinutes;
+
     private final PaymentRepository paymentRepository;
+    private final PaymentOperationRepository paymentOperationRepository;
+    private final OutboundGateway outboundGateway;
+    private final StripeGateway stripeGateway;
 
-    public StripeService(PaymentRepository paymentRepository) {
+    public StripeService(PaymentRepository paymentRepository, PaymentOperationRepository paymentOperationRepository,
+            OutboundGateway outboundGateway, StripeGateway stripeGateway) {
         this.paymentRepository = paymentRepository;
+        this.paymentOperationRepository = paymentOperationRepository;
+        this.outboundGateway = outboundGateway;
+        this.stripeGateway = stripeGateway;
     }
 
     @PostConstruct
@@ -41,12 +65,23 @@ public class StripeService {
         if (stripeSecretKey != null && !stripeSecretKey.isEmpty()) {
             Stripe.apiKey = stripeSecretKey;
         }
+        Stripe.setConnectTimeout(outboundGateway.connectTimeoutMs(OutboundGateway.STRIPE));
+        Stripe.setReadTimeout(outboundGateway.readTimeoutMs(OutboundGateway.STRIPE));
+        // POSTのリトライにはSDKが冪等キーを付与するため、二重決済にはならない
+        Stripe.setMaxNetworkRetries(maxNetworkRetries);
+    }
+
+    /**
+     * Checkout Sessionの作成に必要な情報（トランザクション外で使用するためエンティティから切り離す）
+     */
+    public record CheckoutRequest(Long operationId, Long paymentId, Long reservationId,
+            BigDecimal amount, String productName, String description) {
     }
 
     /**
-     * Stripe Checkout Sessionを作成
+     * Stripe Checkout Sessionを作成（DBは更新しないため、トランザクション外から呼び出す）
      */
-    public String createCheckoutSession(Payment payment, Reservation reservation) throws StripeException {
+    public Session createCheckoutSession(CheckoutRequest request, String idempotencyKey) throws StripeException {
         if (stripeSecretKey == null || stripeSecretKey.isEmpty()) {
             throw new RuntimeException("Stripe is not configured. Please set stripe.secret-key");
         }
@@ -54,85 +89,123 @@ public class StripeService {
         SessionCreateParams params = SessionCreateParams.builder()
                 .setMode(SessionCreateParams.Mode.PAYMENT)
                 .setSuccessUrl(frontendUrl + "/payment/stripe/success?session_id={CHECKOUT_SESSION_ID}")
-                .setCancelUrl(frontendUrl + "/payment/stripe/cancel?reservation_id=" + reservation.getId())
+                .setCancelUrl(frontendUrl + "/payment/stripe/cancel?reservation_id=" + request.reservationId())
                 .addLineItem(
                         SessionCreateParams.LineItem.builder()
                                 .setQuantity(1L)
                                 .setPriceData(
                                         SessionCreateParams.LineItem.PriceData.builder()
                                                 .setCurrency("jpy")
-                                                .setUnitAmount(payment.getAmount().longValue())
+                                                .setUnitAmount(request.amount().longValue())
                                                 .setProductData(
                                                         SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                                .setName(reservation.getEvent().getTitle())
-                                                                .setDescription(
-                                                                        reservation.getEvent().getFarm().getName()
-                                                                                + " - " +
-                                                                                reservation.getNumberOfPeople() + "名様")
+                                                                .setName(request.productName())
+                                                                .setDescription(request.description())
                                                                 .build())
                                                 .build())
                                 .build())
-                .putMetadata("reservation_id", reservation.getId().toString())
-                .putMetadata("payment_id", payment.getId().toString())
+                .putMetadata("reservation_id", request.reservationId().toString())
+                .putMetadata("payment_id", request.paymentId().toString())
                 .setLocale(SessionCreateParams.Locale.JA)
+                .setExpiresAt(Instant.now().plus(Duration.ofMinutes(checkoutSessionTtlMinutes)).getEpochSecond())
                 .build();
 
-        Session session = Session.create(params);
+        RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+        return outboundGateway.call(OutboundGateway.STRIPE, () -> Session.create(params, options));
+    }
 
-        // Checkout Session IDを保存
-        payment.setStripeCheckoutSessionId(session.getId());
-        paymentRepository.save(payment);
+    /**
+     * 置き換えたCheckout Sessionを失効させる（失敗しても決済フローは止めない）
+     */
+    public void expireCheckoutSession(String sessionId) {
+        try {
+            outboundGateway.call(OutboundGateway.STRIPE, () -> {
+                Session session = Session.retrieve(sessionId);
+                if ("open".equals(session.getStatus())) {
+                    session.expire();
+                }
+                return session;
+            });
+        } catch (StripeException | RuntimeException e) {
+            logger.warn("Failed to expire Stripe checkout session {}", sessionId, e);
+        }
+    }
 
-        return session.getUrl();
+    /**
+     * Checkout Sessionの状態を取得（トランザクション外から呼び出す。stripe.stub.enabled=true の場合はローカルスタブから取得）
+     */
+    public StripeGateway.CheckoutState fetchCheckoutState(String sessionId) throws StripeException {
+        try {
+            return stripeGateway.fetchCheckoutState(sessionId);
+        } catch (StripeException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching checkout session " + sessionId, e);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch checkout session " + sessionId, e);
+        }
     }
 
     /**
-     * Checkout Sessionから決済情報を取得し更新
+     * 取得済みのCheckout Sessionの内容で決済情報を更新
+     * 置き換え済みの古いセッションで支払われた場合も、Checkout Session作成の操作記録から決済を特定する
+     *
+     * @return この呼び出しで未決済から完了にした場合はその決済（未完了・処理済みの場合は空）
      */
     @Transactional
-    public Payment handleCheckoutSessionCompleted(String sessionId) throws StripeException {
-        Session session = Session.retrieve(sessionId);
+    public Optional<Payment> handleCheckoutSessionCompleted(StripeGateway.CheckoutState state) {
+        Payment payment = paymentRepository.findByStripeCheckoutSessionId(state.sessionId())
+                .or(() -> findByReplacedSession(state))
+                .orElseThrow(() -> new RuntimeException("Payment not found for session: " + state.sessionId()));
 
-        Payment payment = paymentRepository.findByStripeCheckoutSessionId(sessionId)
-                .orElseThrow(() -> new RuntimeException("Payment not found for session: " + sessionId));
-
-        if ("complete".equals(session.getStatus()) && "paid".equals(session.getPaymentStatus())) {
-            payment.setStripePaymentIntentId(session.getPaymentIntent());
-            payment.setPaymentStatus(PaymentStatus.COMPLETED);
-            payment.setPaidAt(LocalDateTime.now());
-            paymentRepository.save(payment);
+        if (!state.isPaid()) {
+            return Optional.empty();
+        }
+        // Webhookとリダイレクトが同時に届いても、未決済から完了にできた1件だけが後続の処理を行う
+        int updated = paymentRepository.completeIfPending(payment.getId(), PaymentStatus.PENDING,
+                PaymentStatus.COMPLETED, state.sessionId(), state.paymentIntentId(), LocalDateTime.now());
+        if (updated == 0) {
+            return Optional.empty();
         }
+        return paymentRepository.findById(payment.getId());
+    }
 
+    private Optional<Payment> findByReplacedSession(StripeGateway.CheckoutState state) {
+        List<Long> paymentIds = paymentOperationRepository.findPaymentIdsByExternalId(
+                PaymentOperation.OperationType.CHECKOUT_SESSION, state.sessionId());
+        if (paymentIds.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Payment> payment = paymentRepository.findById(paymentIds.get(0));
+        payment.ifPresent(p -> {
+            if (state.isPaid() && state.amountTotal() != null
+                    && p.getAmount().compareTo(BigDecimal.valueOf(state.amountTotal())) != 0) {
+                logger.warn("Payment {} was paid on replaced checkout session {} for {} (current amount {})",
+                        p.getId(), state.sessionId(), state.amountTotal(), p.getAmount());
+            }
+        });
         return payment;
     }
 
     /**
-     * 返金処理
+     * 返金を実行してRefund IDを返す（DBは更新しないため、トランザクション外から呼び出す）
+     * 同じ冪等キーで再実行した場合、Stripe側で二重返金にはならない
      */
-    @Transactional
-    public Payment refund(Payment payment, BigDecimal refundAmount) throws StripeException {
-        if (payment.getStripePaymentIntentId() == null) {
+    public String createRefund(String paymentIntentId, BigDecimal refundAmount, String idempotencyKey)
+            throws StripeException {
+        if (paymentIntentId == null) {
             throw new RuntimeException("No Stripe payment intent ID found");
         }
 
         RefundCreateParams params = RefundCreateParams.builder()
-                .setPaymentIntent(payment.getStripePaymentIntentId())
+                .setPaymentIntent(paymentIntentId)
                 .setAmount(refundAmount.longValue())
                 .build();
 
-        Refund.create(params);
-
-        BigDecimal totalRefunded = payment.getRefundedAmount().add(refundAmount);
-        payment.setRefundedAmount(totalRefunded);
-        payment.setRefundedAt(LocalDateTime.now());
-
-        if (totalRefunded.compareTo(payment.getAmount()) >= 0) {
-            payment.setPaymentStatus(PaymentStatus.REFUNDED);
-        } else {
-            payment.setPaymentStatus(PaymentStatus.PARTIALLY_REFUNDED);
-        }
-
-        return paymentRepository.save(payment);
+        RequestOptions options = RequestOptions.builder().setIdempotencyKey(idempotencyKey).build();
+        Refund refund = outboundGateway.call(OutboundGateway.STRIPE, () -> Refund.create(params, options));
+        return refund.getId();
     }
 
     public String getWebhookSecret() {
@@ -0,0 +1,110 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.StripeWebhookEvent;
+import com.farmeet.repository.StripeWebhookEventRepository;
+import com.farmeet.scheduler.StripeWebhookProcessor;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stripe Webhookの受信処理（署名検証と受信箱への保存のみを行い、業務処理は非同期で実行）
+ */
+@Service
+public class StripeWebhookInboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookInboxService.class);
+
+    /** 受信箱に保存するイベント種別 */
+    private static final Set<String> HANDLED_EVENT_TYPES = Set.of(
+            "checkout.session.completed",
+            "checkout.session.async_payment_succeeded");
+
+    private final StripeService stripeService;
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final StripeWebhookProcessor webhookProcessor;
+
+    public StripeWebhookInboxService(StripeService stripeService,
+            StripeWebhookEventRepository webhookEventRepository,
+            StripeWebhookProcessor webhookProcessor) {
+        this.stripeService = stripeService;
+        this.webhookEventRepository = webhookEventRepository;
+        this.webhookProcessor = webhookProcessor;
+    }
+
+    /**
+     * Webhookを検証して受信箱に保存
+     *
+     * @return 新規に保存した場合はtrue（対象外・重複の場合はfalse）
+     */
+    public boolean receive(String payload, String sigHeader) throws SignatureVerificationException {
+        String secret = stripeService.getWebhookSecret();
+        if (secret == null || secret.isEmpty()) {
+            throw new RuntimeException("Stripe webhook secret is not configured. Please set stripe.webhook-secret");
+        }
+
+        Event event = Webhook.constructEvent(payload, sigHeader, secret);
+        if (!HANDLED_EVENT_TYPES.contains(event.getType())) {
+            return false;
+        }
+
+        // 再送されたイベントは保存済みなので受け付けるだけ
+        if (webhookEventRepository.existsByStripeEventId(event.getId())) {
+            return false;
+        }
+
+        Session session = extractSession(event);
+
+        StripeWebhookEvent inboxEvent = new StripeWebhookEvent();
+        inboxEvent.setStripeEventId(event.getId());
+        inboxEvent.setEventType(event.getType());
+        inboxEvent.setSessionId(session.getId());
+        inboxEvent.setTarget(resolveTarget(session.getMetadata()));
+        inboxEvent.setPayload(payload);
+
+        StripeWebhookEvent saved;
+        try {
+            saved = webhookEventRepository.save(inboxEvent);
+        } catch (DataIntegrityViolationException e) {
+            // 同じイベントが並行して届いた場合は一意制約で弾かれる
+            log.debug("Duplicate Stripe webhook event ignored: {}", event.getId());
+            return false;
+        }
+
+        webhookProcessor.submit(saved.getId());
+        return true;
+    }
+
+    private Session extractSession(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            // APIバージョンが異なる場合でも、Checkout SessionのIDとメタデータは取り出せる
+            try {
+                object = event.getDataObjectDeserializer().deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                throw new RuntimeException("Stripeイベントを解析できません: " + event.getId(), e);
+            }
+        }
+        if (!(object instanceof Session session)) {
+            throw new RuntimeException("Checkout Session以外のイベントです: " + event.getId());
+        }
+        return session;
+    }
+
+    private StripeWebhookEvent.Target resolveTarget(Map<String, String> metadata) {
+        if (metadata != null && "gift_voucher".equals(metadata.get("type"))) {
+            return StripeWebhookEvent.Target.GIFT_VOUCHER;
+        }
+        return StripeWebhookEvent.Target.RESERVATION;
+    }
+}
@@ -0,0 +1,60 @@
+package com.farmeet.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * IDごとのスコアをスコア順に保持するランキング
+ *
+ * スコアが変わるたびに順序付き集合のエントリを入れ替えるため、上位K件の取得は先頭からK件たどるだけで済む。
+ */
+final class TopKRanking {
+
+    /** スコアの降順、同点はIDの昇順 */
+    private static final Comparator<Entry> ORDER = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::id);
+
+    record Entry(long id, double score) {
+    }
+
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final TreeSet<Entry> ordered = new TreeSet<>(ORDER);
+
+    /**
+     * スコアを設定（既存のスコアは置き換える）
+     */
+    synchronized void put(long id, double score) {
+        Double previous = scores.put(id, score);
+        if (previous != null) {
+            ordered.remove(new Entry(id, previous));
+        }
+        ordered.add(new Entry(id, score));
+    }
+
+    /**
+     * 登録済みのIDのスコアに加算（未登録のIDは無視する）
+     */
+    synchronized void add(long id, double delta) {
+        Double previous = scores.get(id);
+        if (previous != null) {
+            put(id, Math.max(0, previous + delta));
+        }
+    }
+
+    /**
+     * スコアの高い順に最大K件
+     */
+    synchronized List<Entry> top(int k) {
+        List<Entry> result = new ArrayList<>(Math.min(k, ordered.size()));
+        Iterator<Entry> it = ordered.iterator();
+        while (result.size() < k && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+}
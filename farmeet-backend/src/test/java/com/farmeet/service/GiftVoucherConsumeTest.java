@@ -0,0 +1,308 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ExperienceEvent;
+import com.farmeet.entity.GiftVoucher;
+import com.farmeet.entity.GiftVoucherLedgerEntry;
+import com.farmeet.entity.GiftVoucherLedgerEntry.EntryType;
+import com.farmeet.entity.GiftVoucherStatus;
+import com.farmeet.entity.Payment;
+import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.entity.User;
+import com.farmeet.repository.GiftVoucherLedgerRepository;
+import com.farmeet.repository.GiftVoucherRepository;
+import com.farmeet.repository.PaymentRepository;
+import com.stripe.model.checkout.Session;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 1枚のギフト券を同時に使う場合の残高と台帳の整合性の確認
+ * <p>
+ * 決済作成時の残高の確保（{@link PaymentService#initiateStripePayment(Long, Long)}）と、
+ * 決済完了時の確定（{@link PaymentService#consumeVoucher}）をそれぞれ並列に実行する。
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:gift-voucher-consume-test;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class GiftVoucherConsumeTest {
+
+    private static final BigDecimal FACE_VALUE = new BigDecimal("10000");
+    private static final BigDecimal PRICE = new BigDecimal("3000");
+    private static final BigDecimal DEBIT_AMOUNT = new BigDecimal("1000");
+    private static final int RESERVATIONS = 25;
+
+    @MockBean
+    private StripeService stripeService;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private ReservationExpiryService reservationExpiryService;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private GiftVoucherRepository giftVoucherRepository;
+    @Autowired
+    private GiftVoucherLedgerRepository ledgerRepository;
+
+    private ExecutorService executor;
+    private User user;
+    private GiftVoucher voucher;
+    private List<Reservation> reservations;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(8);
+
+        user = fixtures.createUser("voucher-test");
+        ExperienceEvent event = fixtures.createEvent(user, RESERVATIONS, PRICE);
+
+        voucher = createVoucher(FACE_VALUE);
+
+        reservations = new ArrayList<>();
+        for (int i = 0; i < RESERVATIONS; i++) {
+            reservations.add(fixtures.createReservation(user, event, ReservationStatus.PENDING_PAYMENT));
+        }
+
+        when(stripeService.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+            StripeService.CheckoutRequest request = invocation.getArgument(0);
+            Session session = new Session();
+            session.setId("cs_test_" + request.paymentId());
+            session.setUrl("https://checkout.example.com/" + request.paymentId());
+            session.setExpiresAt(Instant.now().plusSeconds(3600).getEpochSecond());
+            return session;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverDiscountMoreThanTheBalance() throws Exception {
+        runConcurrently(reservations.stream()
+                .<Callable<Object>>map(r -> () -> paymentService.initiateStripePayment(r.getId(), voucher.getId()))
+                .toList(), true);
+
+        List<Payment> payments = reservations.stream()
+                .map(r -> paymentRepository.findByReservationId(r.getId()))
+                .flatMap(Optional::stream)
+                .toList();
+        GiftVoucher current = giftVoucherRepository.findById(voucher.getId()).orElseThrow();
+        Map<Long, BigDecimal> debits = debitsByPayment();
+
+        // 割り引いた決済にはすべて同額の確保があり、残高を超えて割り引いていない
+        BigDecimal discounted = BigDecimal.ZERO;
+        for (Payment payment : payments) {
+            if (payment.getVoucherAmount().signum() > 0) {
+                assertThat(debits.get(payment.getId())).isEqualByComparingTo(payment.getVoucherAmount());
+                discounted = discounted.add(payment.getVoucherAmount());
+            }
+        }
+        assertThat(current.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(discounted).isEqualByComparingTo(FACE_VALUE.subtract(current.getBalance()));
+        assertThat(debits.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(discounted);
+
+        // 決済の完了通知が重複して届いても、確保済みの額から増えず不足も記録されない
+        List<Callable<Object>> completions = new ArrayList<>();
+        for (Payment payment : payments) {
+            completions.add(() -> consume(payment));
+            completions.add(() -> consume(payment));
+        }
+        Collections.shuffle(completions);
+        runConcurrently(completions, false);
+
+        assertThat(giftVoucherRepository.findById(voucher.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(current.getBalance());
+        assertThat(debitsByPayment()).isEqualTo(debits);
+        assertThat(shortfalls()).isEmpty();
+    }
+
+    @Test
+    void expiredCheckoutReleasesHoldAndLateCompletionIsRecorded() throws Exception {
+        // 残りをカードで支払うよう、料金より少ない額面のギフト券を使う
+        GiftVoucher partial = createVoucher(DEBIT_AMOUNT);
+        Reservation reservation = reservations.get(0);
+        paymentService.initiateStripePayment(reservation.getId(), partial.getId());
+        assertThat(giftVoucherRepository.findById(partial.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(BigDecimal.ZERO);
+
+        assertThat(reservationExpiryService.expireIfPending(reservation.getId())).isTrue();
+        assertThat(giftVoucherRepository.findById(partial.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(DEBIT_AMOUNT);
+
+        // 失効後に支払いが完了した場合は引き落とし直さず、不足額として記録する
+        Payment payment = paymentRepository.findByReservationId(reservation.getId()).orElseThrow();
+        paymentService.consumeVoucher(payment);
+
+        assertThat(giftVoucherRepository.findById(partial.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(DEBIT_AMOUNT);
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getVoucherShortfall())
+                .isEqualByComparingTo(DEBIT_AMOUNT);
+    }
+
+    @Test
+    void concurrentCompletionsWithoutHoldKeepBalanceAndLedgerConsistent() throws Exception {
+        List<Payment> payments = createPaymentsWithoutHold();
+
+        // 同じ決済の完了通知が重複して届く場合を再現するため、各決済を2回ずつ同時に確定する
+        List<Callable<Object>> deliveries = new ArrayList<>();
+        for (Payment payment : payments) {
+            deliveries.add(() -> consume(payment));
+            deliveries.add(() -> consume(payment));
+        }
+        Collections.shuffle(deliveries);
+        runConcurrently(deliveries, false);
+
+        GiftVoucher current = giftVoucherRepository.findById(voucher.getId()).orElseThrow();
+        List<GiftVoucherLedgerEntry> debits = ledgerRepository.findByVoucherIdOrderByIdAsc(voucher.getId()).stream()
+                .filter(entry -> entry.getEntryType() == EntryType.DEBIT)
+                .toList();
+
+        assertThat(current.getBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        BigDecimal debited = debits.stream().map(GiftVoucherLedgerEntry::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(debited).isEqualByComparingTo(FACE_VALUE.subtract(current.getBalance()));
+
+        Map<Long, Long> debitsPerPayment = debits.stream()
+                .collect(Collectors.groupingBy(GiftVoucherLedgerEntry::getPaymentId, Collectors.counting()));
+        assertThat(debitsPerPayment.values()).allMatch(count -> count == 1);
+
+        // 額面の範囲でちょうど使い切り、引き落とせなかった決済は不足額として記録される
+        int covered = FACE_VALUE.divide(DEBIT_AMOUNT).intValue();
+        assertThat(debits).hasSize(covered);
+        assertThat(current.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(current.getStatus()).isEqualTo(GiftVoucherStatus.USED);
+        assertThat(shortfalls()).hasSize(RESERVATIONS - covered);
+    }
+
+    @Test
+    void duplicatePaymentIsDebitedOnce() throws Exception {
+        Payment payment = createPaymentsWithoutHold().get(0);
+        List<Callable<Object>> deliveries = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            deliveries.add(() -> consume(payment));
+        }
+        runConcurrently(deliveries, false);
+
+        GiftVoucher current = giftVoucherRepository.findById(voucher.getId()).orElseThrow();
+        assertThat(current.getBalance()).isEqualByComparingTo(FACE_VALUE.subtract(DEBIT_AMOUNT));
+        assertThat(ledgerRepository.findByVoucherIdOrderByIdAsc(voucher.getId()))
+                .extracting(GiftVoucherLedgerEntry::getPaymentId, GiftVoucherLedgerEntry::getEntryType)
+                .containsExactly(Tuple.tuple(payment.getId(), EntryType.DEBIT));
+    }
+
+    /**
+     * 残高を確保せずに作成された決済（確保を導入する前の決済）
+     * 残りはカードで支払うため、残高不足でも例外にはならない
+     */
+    private List<Payment> createPaymentsWithoutHold() {
+        List<Payment> payments = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            Payment payment = new Payment();
+            payment.setReservation(reservation);
+            payment.setPaymentMethod(PaymentMethod.STRIPE);
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setAmount(PRICE.subtract(DEBIT_AMOUNT));
+            payment.setVoucherAmount(DEBIT_AMOUNT);
+            payment.setUsedVoucher(voucher);
+            payments.add(paymentRepository.save(payment));
+        }
+        return payments;
+    }
+
+    private GiftVoucher createVoucher(BigDecimal faceValue) {
+        GiftVoucher created = new GiftVoucher();
+        created.setCode(UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase());
+        created.setAmount(faceValue);
+        created.setBalance(faceValue);
+        created.setStatus(GiftVoucherStatus.ACTIVE);
+        created.setOwner(user);
+        created.setExpiresAt(LocalDateTime.now().plusMonths(12));
+        created.setActivatedAt(LocalDateTime.now());
+        return giftVoucherRepository.save(created);
+    }
+
+    /**
+     * このテストのギフト券で記録された不足（DBは同じクラスのテスト間で共有される）
+     */
+    private List<Map<String, Object>> shortfalls() {
+        return paymentService.getVoucherShortfalls().stream()
+                .filter(row -> voucher.getId().equals(row.get("voucherId")))
+                .toList();
+    }
+
+    private Object consume(Payment payment) {
+        paymentService.consumeVoucher(payment);
+        return null;
+    }
+
+    private Map<Long, BigDecimal> debitsByPayment() {
+        return ledgerRepository.findByVoucherIdOrderByIdAsc(voucher.getId()).stream()
+                .filter(entry -> entry.getEntryType() == EntryType.DEBIT)
+                .collect(Collectors.toMap(GiftVoucherLedgerEntry::getPaymentId, GiftVoucherLedgerEntry::getAmount,
+                        BigDecimal::add));
+    }
+
+    /**
+     * 一斉に開始して全件の終了を待つ
+     *
+     * @param allowRejections 業務上の失敗（残高不足など）を許容する場合true
+     */
+    private void runConcurrently(List<Callable<Object>> tasks, boolean allowRejections) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (Callable<Object> task : tasks) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            try {
+                result.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                if (!allowRejections || !(e.getCause() instanceof RuntimeException)) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
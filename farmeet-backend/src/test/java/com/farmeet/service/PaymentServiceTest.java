@@ -0,0 +1,220 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ExperienceEvent;
+import com.farmeet.entity.Payment;
+import com.farmeet.entity.PaymentMethod;
+import com.farmeet.entity.PaymentOperation;
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.entity.User;
+import com.farmeet.repository.ExperienceEventRepository;
+import com.farmeet.repository.PaymentOperationRepository;
+import com.farmeet.repository.PaymentRepository;
+import com.farmeet.repository.ReservationRepository;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.checkout.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 決済サービスの呼び出し中にDB接続を保持しないことの確認
+ * <p>
+ * 接続プールをN本に絞り、Stripeのスタブを応答させないままM（&gt; N）件の予約キャンセル（返金）・Checkout作成を同時に実行する。
+ * 外部呼び出しの間も接続を保持していると、N件を超えた時点でプールの取得待ちになりM件がスタブに到達しない。
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-service-test;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=" + PaymentServiceTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=3000"
+})
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class PaymentServiceTest {
+
+    static final int POOL_SIZE = 4;
+    private static final int IN_FLIGHT = 12;
+    private static final BigDecimal PRICE = new BigDecimal("5000");
+
+    @MockBean
+    private StripeService stripeService;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ExperienceEventRepository eventRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private PaymentOperationRepository paymentOperationRepository;
+
+    private ExecutorService executor;
+    private User user;
+    private ExperienceEvent event;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(IN_FLIGHT);
+        user = fixtures.createUser("payment-test");
+        event = fixtures.createEvent(user, IN_FLIGHT * 2, PRICE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cancellationsDoNotHoldConnectionsWhileStripeIsSlow() throws Exception {
+        List<Reservation> reservations = createPaidReservations();
+
+        SlowStripe slow = new SlowStripe();
+        when(stripeService.createRefund(any(), any(), any())).thenAnswer(invocation -> {
+            slow.enter();
+            return "re_" + invocation.getArgument(2);
+        });
+
+        List<Future<?>> results = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            results.add(executor.submit(() -> reservationService.cancelReservation(reservation.getId(), user)));
+        }
+
+        slow.awaitAllInFlightAndRelease();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        for (Reservation reservation : reservations) {
+            assertThat(reservationRepository.findById(reservation.getId()).orElseThrow().getStatus())
+                    .isEqualTo(ReservationStatus.CANCELLED);
+            Payment refunded = paymentRepository.findByReservationId(reservation.getId()).orElseThrow();
+            assertThat(refunded.getPaymentStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(refunded.getRefundedAmount()).isEqualByComparingTo(PRICE);
+        }
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getAvailableSlots())
+                .isEqualTo(event.getAvailableSlots() + IN_FLIGHT);
+    }
+
+    @Test
+    void failedRefundKeepsCancellationAndLeavesOperationForRetry() throws Exception {
+        Reservation reservation = createPaidReservations().get(0);
+        when(stripeService.createRefund(any(), any(), any()))
+                .thenThrow(new ApiConnectionException("connection reset"));
+
+        reservationService.cancelReservation(reservation.getId(), user);
+
+        assertThat(reservationRepository.findById(reservation.getId()).orElseThrow().getStatus())
+                .isEqualTo(ReservationStatus.CANCELLED);
+        Payment payment = paymentRepository.findByReservationId(reservation.getId()).orElseThrow();
+        assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        // PaymentSchedulerが再実行する失敗済みの返金操作が残る
+        PaymentOperation operation = paymentOperationRepository.findFirstByPaymentIdAndOperationTypeAndStatusIn(
+                payment.getId(), PaymentOperation.OperationType.REFUND, List.of(PaymentOperation.Status.FAILED))
+                .orElseThrow();
+        assertThat(operation.getAmount()).isEqualByComparingTo(PRICE);
+    }
+
+    @Test
+    void checkoutSessionsDoNotHoldConnectionsWhileStripeIsSlow() throws Exception {
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            reservations.add(fixtures.createReservation(user, event, ReservationStatus.PENDING_PAYMENT));
+        }
+
+        SlowStripe slow = new SlowStripe();
+        when(stripeService.createCheckoutSession(any(), any())).thenAnswer(invocation -> {
+            slow.enter();
+            StripeService.CheckoutRequest request = invocation.getArgument(0);
+            Session session = new Session();
+            session.setId("cs_test_" + request.paymentId());
+            session.setUrl("https://checkout.example.com/" + request.paymentId());
+            session.setExpiresAt(Instant.now().plusSeconds(3600).getEpochSecond());
+            return session;
+        });
+
+        List<Future<String>> results = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            results.add(executor.submit(() -> paymentService.initiateStripePayment(reservation.getId())));
+        }
+
+        slow.awaitAllInFlightAndRelease();
+
+        for (int i = 0; i < reservations.size(); i++) {
+            String url = results.get(i).get(30, TimeUnit.SECONDS);
+            Payment payment = paymentRepository.findByReservationId(reservations.get(i).getId()).orElseThrow();
+            assertThat(url).isEqualTo("https://checkout.example.com/" + payment.getId());
+            assertThat(payment.getStripeCheckoutSessionId()).isEqualTo("cs_test_" + payment.getId());
+            assertThat(payment.getPaymentStatus()).isEqualTo(PaymentStatus.PENDING);
+        }
+    }
+
+    /**
+     * Stripeで決済済みの確定予約をM件作成
+     */
+    private List<Reservation> createPaidReservations() {
+        List<Reservation> reservations = new ArrayList<>();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            Reservation reservation = fixtures.createReservation(user, event, ReservationStatus.CONFIRMED);
+            Payment payment = new Payment();
+            payment.setReservation(reservation);
+            payment.setPaymentMethod(PaymentMethod.STRIPE);
+            payment.setPaymentStatus(PaymentStatus.COMPLETED);
+            payment.setAmount(PRICE);
+            payment.setStripePaymentIntentId("pi_test_" + i);
+            payment.setPaidAt(LocalDateTime.now());
+            paymentRepository.save(payment);
+            reservations.add(reservation);
+        }
+        return reservations;
+    }
+
+    /**
+     * 全件が到達するまで応答しないStripeのスタブ
+     */
+    private static class SlowStripe {
+        private final CountDownLatch arrived = new CountDownLatch(IN_FLIGHT);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        void enter() throws InterruptedException {
+            arrived.countDown();
+            released.await(30, TimeUnit.SECONDS);
+        }
+
+        void awaitAllInFlightAndRelease() throws InterruptedException {
+            try {
+                assertThat(arrived.await(20, TimeUnit.SECONDS))
+                        .as("all %d calls should reach Stripe with a pool of %d connections", IN_FLIGHT, POOL_SIZE)
+                        .isTrue();
+            } finally {
+                released.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ExperienceEvent;
+import com.farmeet.entity.Payment;
+import com.farmeet.entity.PaymentStatus;
+import com.farmeet.entity.Reservation;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.entity.User;
+import com.farmeet.repository.PaymentRepository;
+import com.farmeet.repository.ReservationRepository;
+import com.stripe.model.checkout.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 置き換え済みのCheckout Sessionで支払われた場合の完了処理の確認
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stripe-checkout-completion-test;DB_CLOSE_DELAY=-1",
+        "stripe.stub.enabled=true",
+        "stripe.stub.latency-ms=0"
+})
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class StripeCheckoutCompletionTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("5000");
+
+    @SpyBean
+    private StripeService stripeService;
+
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private PaymentService paymentService;
+    @Autowired
+    private LocalStripeGateway stripeGateway;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @AfterEach
+    void tearDown() {
+        stripeGateway.clear();
+    }
+
+    @Test
+    void lateCompletionOfReplacedSessionCompletesPayment() throws Exception {
+        User user = fixtures.createUser("checkout-test");
+        ExperienceEvent event = fixtures.createEvent(user, 10, PRICE);
+        Reservation reservation = fixtures.createReservation(user, event, ReservationStatus.PENDING_PAYMENT);
+
+        doReturn(session("cs_test_old"), session("cs_test_new"))
+                .when(stripeService).createCheckoutSession(any(), any());
+        doNothing().when(stripeService).expireCheckoutSession(any());
+
+        paymentService.initiateStripePayment(reservation.getId());
+        // 有効期限が近づいたセッションは再利用されず、新しいセッションに置き換わる
+        Payment payment = paymentRepository.findByReservationId(reservation.getId()).orElseThrow();
+        payment.setStripeCheckoutExpiresAt(LocalDateTime.now());
+        paymentRepository.save(payment);
+        paymentService.initiateStripePayment(reservation.getId());
+
+        verify(stripeService).expireCheckoutSession("cs_test_old");
+        assertThat(paymentRepository.findById(payment.getId()).orElseThrow().getStripeCheckoutSessionId())
+                .isEqualTo("cs_test_new");
+
+        // 失効前に古いセッションで支払われ、その完了通知が後から届く
+        stripeGateway.put(new StripeGateway.CheckoutState("cs_test_old", "complete", "paid", "pi_test_old",
+                PRICE.longValue(), 0L));
+        paymentService.handleStripeCheckoutComplete("cs_test_old");
+        // 重複した通知は何もしない
+        paymentService.handleStripeCheckoutComplete("cs_test_old");
+
+        Payment completed = paymentRepository.findById(payment.getId()).orElseThrow();
+        assertThat(completed.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(completed.getStripeCheckoutSessionId()).isEqualTo("cs_test_old");
+        assertThat(completed.getStripePaymentIntentId()).isEqualTo("pi_test_old");
+        assertThat(reservationRepository.findById(reservation.getId()).orElseThrow().getStatus())
+                .isEqualTo(ReservationStatus.CONFIRMED);
+    }
+
+    private static Session session(String id) {
+        Session session = new Session();
+        session.setId(id);
+        session.setUrl("https://checkout.example.com/" + id);
+        session.setExpiresAt(Instant.now().plusSeconds(3600).getEpochSecond());
+        return session;
+    }
+}
@@ -0,0 +1,81 @@
+package com.farmeet.service;
+
+import com.farmeet.entity.ExperienceEvent;
+import com.farmeet.entity.Farm;
+import com.farmeet.entity.Reservation;
+import com.farmeet.entity.Reservation.ReservationStatus;
+import com.farmeet.entity.User;
+import com.farmeet.repository.ExperienceEventRepository;
+import com.farmeet.repository.FarmRepository;
+import com.farmeet.repository.ReservationRepository;
+import com.farmeet.repository.UserRepository;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * テスト用の利用者・農園・イベント・予約の作成（{@code @Import(TestFixtures.class)} で利用する）
+ */
+@TestComponent
+public class TestFixtures {
+
+    private final UserRepository userRepository;
+    private final FarmRepository farmRepository;
+    private final ExperienceEventRepository eventRepository;
+    private final ReservationRepository reservationRepository;
+
+    public TestFixtures(UserRepository userRepository, FarmRepository farmRepository,
+            ExperienceEventRepository eventRepository, ReservationRepository reservationRepository) {
+        this.userRepository = userRepository;
+        this.farmRepository = farmRepository;
+        this.eventRepository = eventRepository;
+        this.reservationRepository = reservationRepository;
+    }
+
+    /**
+     * 他のテストと重ならないユーザー名・メールアドレスで利用者を作成
+     */
+    public User createUser(String prefix) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(prefix + "-" + suffix);
+        user.setEmail(prefix + "-" + suffix + "@example.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    /**
+     * 30日後に開催するイベントを、指定した利用者が所有する農園に作成
+     */
+    public ExperienceEvent createEvent(User owner, int slots, BigDecimal price) {
+        Farm farm = new Farm();
+        farm.setName("テスト農園");
+        farm.setLocation("テスト県");
+        farm.setOwner(owner);
+        farm = farmRepository.save(farm);
+
+        ExperienceEvent event = new ExperienceEvent();
+        event.setFarm(farm);
+        event.setTitle("収穫体験");
+        event.setEventDate(LocalDateTime.now().plusDays(30));
+        event.setCapacity(slots);
+        event.setAvailableSlots(slots);
+        event.setPrice(price);
+        return eventRepository.save(event);
+    }
+
+    /**
+     * 1名分の予約を作成（空き枠は変更しない）
+     */
+    public Reservation createReservation(User user, ExperienceEvent event, ReservationStatus status) {
+        Reservation reservation = new Reservation();
+        reservation.setUser(user);
+        reservation.setEvent(event);
+        reservation.setNumberOfPeople(1);
+        reservation.setTotalPrice(event.getPrice());
+        reservation.setStatus(status);
+        return reservationRepository.save(reservation);
+    }
+}
@@ -14,7 +14,9 @@ export default function ReviewSection({ farmId }: ReviewSectionProps) {
     const [reviews, setReviews] = useState<Review[]>([]);
     const [averageRating, setAverageRating] = useState(0);
     const [reviewCount, setReviewCount] = useState(0);
+    const [nextCursor, setNextCursor] = useState<number | null>(null);
     const [loading, setLoading] = useState(true);
+    const [loadingMore, setLoadingMore] = useState(false);
 
     // Review form state
     const [showForm, setShowForm] = useState(false);
@@ -30,6 +32,7 @@ export default function ReviewSection({ farmId }: ReviewSectionProps) {
         try {
             const data = await api.getReviews(farmId);
             setReviews(data.reviews);
+            setNextCursor(data.nextCursor);
             setAverageRating(data.averageRating);
             setReviewCount(data.reviewCount);
         } catch (error) {
@@ -39,6 +42,20 @@ export default function ReviewSection({ farmId }: ReviewSectionProps) {
         }
     };
 
+    const loadMoreReviews = async () => {
+        if (nextCursor === null) return;
+        setLoadingMore(true);
+        try {
+            const data = await api.getReviews(farmId, nextCursor);
+            setReviews((prev) => [...prev, ...data.reviews]);
+            setNextCursor(data.nextCursor);
+        } catch (error) {
+            console.error('Failed to load more reviews:', error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const handleSubmit = async (e: React.FormEvent) => {
         e.preventDefault();
 
@@ -197,6 +214,17 @@ export default function ReviewSection({ farmId }: ReviewSectionProps) {
                             </div>
                         </div>
                     ))}
+                    {nextCursor !== null && (
+                        <div className="text-center">
+                            <button
+                                onClick={loadMoreReviews}
+                                disabled={loadingMore}
+                                className="text-green-600 font-medium px-6 py-2 rounded-lg hover:bg-gray-50 transition-colors disabled:opacity-50"
+                            >
+                                {loadingMore ? '読み込み中...' : 'もっと見る'}
+                            </button>
+                        </div>
+                    )}
                 </div>
             )}
         </div>
@@ -712,12 +712,15 @@ class ApiClient {
 
     // ========== Reviews ==========
 
-    async getReviews(farmId: number): Promise<{
+    // 新しい順に1ページ分（続きは nextCursor を cursor に渡して取得）
+    async getReviews(farmId: number, cursor?: number | null): Promise<{
         reviews: Review[];
+        nextCursor: number | null;
         averageRating: number;
         reviewCount: number;
     }> {
-        const response = await fetch(`${API_BASE_URL}/farms/${farmId}/reviews`);
+        const query = cursor ? `?cursor=${cursor}` : '';
+        const response = await fetch(`${API_BASE_URL}/farms/${farmId}/reviews${query}`);
         if (!response.ok) throw new Error('Failed to fetch reviews');
         return response.json();
     }